@@ -0,0 +1,89 @@
+package bench;
+
+import domain.Book;
+import domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog and user lookups: BookService.search, findBookByISBN and
+ * UserService.findUserByName. Keys rotate over a fixed sample so every
+ * call looks up a different record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Dlibrary.dataDir=target/bench-data"})
+public class CatalogBenchmark {
+
+    private static final int SAMPLE = 1024;
+
+    @State(Scope.Thread)
+    public static class Keys {
+        String[] isbns = new String[SAMPLE];
+        String[] titles = new String[SAMPLE];
+        String[] authors = new String[SAMPLE];
+        String[] users = new String[SAMPLE];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(LibraryState s) {
+            int users = Dataset.userCount(s.size);
+            for (int i = 0; i < SAMPLE; i++) {
+                int n = (int) ((i * 2654435761L) % s.size);
+                isbns[i] = Dataset.isbn(n);
+                titles[i] = "title " + n;
+                authors[i] = "author " + (n % 5000);
+                this.users[i] = Dataset.userName(n % users);
+            }
+        }
+
+        int next() {
+            next = (next + 1) & (SAMPLE - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    public List<Book> searchByTitle(LibraryState s, Keys k) {
+        return s.bookService.search(k.titles[k.next()]);
+    }
+
+    @Benchmark
+    public List<Book> searchByAuthor(LibraryState s, Keys k) {
+        return s.bookService.search(k.authors[k.next()]);
+    }
+
+    @Benchmark
+    public List<Book> searchByIsbn(LibraryState s, Keys k) {
+        return s.bookService.search(k.isbns[k.next()]);
+    }
+
+    @Benchmark
+    public List<Book> searchMiss(LibraryState s) {
+        return s.bookService.search("no such book");
+    }
+
+    @Benchmark
+    public Book findBookByISBN(LibraryState s, Keys k) {
+        return s.bookService.findBookByISBN(k.isbns[k.next()]);
+    }
+
+    @Benchmark
+    public User findUserByName(LibraryState s, Keys k) {
+        return s.userService.findUserByName(k.users[k.next()]);
+    }
+}
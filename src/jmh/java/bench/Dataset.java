@@ -0,0 +1,105 @@
+package bench;
+
+import file.DataDirectory;
+import file.FileManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a synthetic library of a given size into the data directory.
+ *
+ * For a size of N the dataset holds:
+ * - N books, N loans (one per book, every fourth one active)
+ * - N/10 users (every fiftieth with an unpaid fine) plus {@link #BENCH_USER}
+ * - N/10 CDs and N/10 CD loans
+ *
+ * Half of the active loans are overdue. Books whose index is not a multiple
+ * of four are available, so they can be borrowed during a benchmark.
+ */
+final class Dataset {
+
+    /**
+     * User without loans or fines, free to borrow during benchmarks.
+     */
+    static final String BENCH_USER = "bench-user";
+
+    private Dataset() {
+    }
+
+    /**
+     * Writes all data files for the given size, replacing previous content.
+     *
+     * @param size number of books and loans
+     */
+    static void write(int size) {
+        LocalDate today = LocalDate.now();
+        int users = userCount(size);
+        int cds = Math.max(1, size / 10);
+
+        List<String> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            lines.add("Title " + i + ",Author " + (i % 5000) + "," + isbn(i) + ",true,null,null");
+        }
+        FileManager.writeLines(DataDirectory.file("books.txt"), lines);
+
+        lines = new ArrayList<>(users + 1);
+        for (int i = 0; i < users; i++) {
+            lines.add(userName(i) + "," + userName(i) + "@example.com," + (i % 50 == 0 ? "5.0" : "0.0"));
+        }
+        lines.add(BENCH_USER + ",bench@example.com,0.0");
+        FileManager.writeLines(DataDirectory.file("users.txt"), lines);
+
+        lines = new ArrayList<>(cds);
+        for (int i = 0; i < cds; i++) {
+            lines.add("CD Title " + i + ",Artist " + (i % 1000) + ",cd-" + i + ",true,null,null");
+        }
+        FileManager.writeLines(DataDirectory.file("cds.txt"), lines);
+
+        FileManager.writeLines(DataDirectory.file("loans.txt"), loans(size, users, "", today));
+        FileManager.writeLines(DataDirectory.file("cdloans.txt"), loans(cds, users, "cd-", today));
+
+        FileManager.writeLines(DataDirectory.file("admins.txt"), List.of("admin,admin,1"));
+    }
+
+    /**
+     * @param i book index
+     * @return the ISBN of the i-th book
+     */
+    static String isbn(int i) {
+        return "isbn-" + i;
+    }
+
+    /**
+     * @param i user index
+     * @return the name of the i-th user
+     */
+    static String userName(int i) {
+        return "user" + i;
+    }
+
+    /**
+     * @param size dataset size
+     * @return number of generated users, not counting {@link #BENCH_USER}
+     */
+    static int userCount(int size) {
+        return Math.max(1, size / 10);
+    }
+
+    private static List<String> loans(int count, int users, String itemPrefix, LocalDate today) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String item = itemPrefix.isEmpty() ? isbn(i) : itemPrefix + i;
+            boolean active = i % 4 == 0;
+
+            LocalDate borrow;
+            if (!active) borrow = today.minusDays(400 + i % 365);
+            else if (i % 8 == 0) borrow = today.minusDays(40);
+            else borrow = today.minusDays(10);
+
+            lines.add(userName(i % users) + "," + item + "," + borrow + "," + borrow.plusDays(28) + "," + active);
+        }
+        return lines;
+    }
+}
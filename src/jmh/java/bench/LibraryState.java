@@ -0,0 +1,47 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import service.BookService;
+import service.CDLoanService;
+import service.CDService;
+import service.LoanService;
+import service.UserService;
+
+/**
+ * Services loaded from a generated dataset of {@link #size} records.
+ * The data directory comes from {@code -Dlibrary.dataDir}, which every
+ * benchmark fork sets to {@code target/bench-data}.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    public UserService userService;
+    public BookService bookService;
+    public CDService cdService;
+    public LoanService loanService;
+    public CDLoanService cdLoanService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset.write(size);
+
+        userService = new UserService();
+        bookService = new BookService();
+        cdService = new CDService();
+        loanService = new LoanService(bookService, userService);
+        cdLoanService = new CDLoanService(bookService, userService);
+
+        userService.loadUsersFromFile();
+        bookService.loadBooksFromFile();
+        cdService.loadCDsFromFile();
+        loanService.loadLoansFromFile();
+        cdLoanService.loadCDLoansFromFile(cdService.getAllCDs());
+    }
+}
@@ -0,0 +1,86 @@
+package bench;
+
+import domain.Book;
+import domain.CDLoan;
+import domain.Loan;
+import domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ReminderService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loan hot paths: a borrow followed by a return through LoanService,
+ * the overdue scan, and ReminderService.sendReminders over the overdue loans.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Dlibrary.dataDir=target/bench-data"})
+public class LoanBenchmark {
+
+    @State(Scope.Thread)
+    public static class Borrower {
+        User user;
+        List<Book> books = new ArrayList<>();
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(LibraryState s) {
+            user = s.userService.findUserByName(Dataset.BENCH_USER);
+            for (int i = 0; i < s.size && books.size() < 1024; i++) {
+                if (i % 4 != 0) books.add(s.bookService.findBookByISBN(Dataset.isbn(i)));
+            }
+        }
+
+        Book next() {
+            next = (next + 1) % books.size();
+            return books.get(next);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reminders {
+        ReminderService reminderService = new ReminderService();
+        List<Loan> overdue;
+        List<CDLoan> overdueCDs;
+        int notified;
+
+        @Setup(Level.Trial)
+        public void setUp(LibraryState s) {
+            reminderService.addObserver((user, message) -> notified++);
+            overdue = s.loanService.getOverdueLoans();
+            overdueCDs = s.cdLoanService.getOverdueCDLoans();
+        }
+    }
+
+    @Benchmark
+    public boolean createAndReturnLoan(LibraryState s, Borrower b) {
+        Book book = b.next();
+        return s.loanService.createLoan(b.user, book) & s.loanService.returnLoan(b.user, book);
+    }
+
+    @Benchmark
+    public List<Loan> getOverdueLoans(LibraryState s) {
+        return s.loanService.getOverdueLoans();
+    }
+
+    @Benchmark
+    public int sendReminders(Reminders r) {
+        r.reminderService.sendReminders(r.overdue, r.overdueCDs);
+        return r.notified;
+    }
+}
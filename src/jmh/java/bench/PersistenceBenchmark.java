@@ -0,0 +1,99 @@
+package bench;
+
+import domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full load and save of every data file. Loads read the files written by
+ * the previous save (or by the dataset generator), so both directions move
+ * the same amount of data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Dlibrary.dataDir=target/bench-data"})
+public class PersistenceBenchmark {
+
+    /**
+     * Loading loans appends to the users' active loan lists, so they are
+     * emptied before every call to keep repeated loads comparable.
+     */
+    @State(Scope.Thread)
+    public static class CleanUsers {
+        @Setup(Level.Invocation)
+        public void clearActiveLoans(LibraryState s) {
+            for (User u : s.userService.getAllUsers()) {
+                u.getActiveBookLoans().clear();
+                u.getActiveCDLoans().clear();
+            }
+        }
+    }
+
+    @Benchmark
+    public int loadBooks(LibraryState s) {
+        s.bookService.loadBooksFromFile();
+        return s.bookService.getAllBooks().size();
+    }
+
+    @Benchmark
+    public int loadUsers(LibraryState s) {
+        s.userService.loadUsersFromFile();
+        return s.userService.getAllUsers().size();
+    }
+
+    @Benchmark
+    public int loadCDs(LibraryState s) {
+        s.cdService.loadCDsFromFile();
+        return s.cdService.getAllCDs().size();
+    }
+
+    @Benchmark
+    public int loadLoans(LibraryState s, CleanUsers c) {
+        s.loanService.loadLoansFromFile();
+        return s.loanService.getAllLoans().size();
+    }
+
+    @Benchmark
+    public int loadCDLoans(LibraryState s, CleanUsers c) {
+        s.cdLoanService.loadCDLoansFromFile(s.cdService.getAllCDs());
+        return s.cdLoanService.getAllCDLoans().size();
+    }
+
+    @Benchmark
+    public void saveBooks(LibraryState s) {
+        s.bookService.saveBooksToFile();
+    }
+
+    @Benchmark
+    public void saveUsers(LibraryState s) {
+        s.userService.saveUsers();
+    }
+
+    @Benchmark
+    public void saveCDs(LibraryState s) {
+        s.cdService.saveCDsToFile();
+    }
+
+    @Benchmark
+    public void saveLoans(LibraryState s) {
+        s.loanService.saveAllLoansToFile();
+    }
+
+    @Benchmark
+    public void saveCDLoans(LibraryState s) {
+        s.cdLoanService.saveAllLoansToFile();
+    }
+}
@@ -0,0 +1,162 @@
+package notification;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sending one email over a new SMTP connection versus through
+ * {@link SmtpTransportPool}, against an in-process server on the loopback
+ * interface. Lives in the notification package because the pool is
+ * package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+@Threads(4)
+public class SmtpBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Mail {
+        LoopbackSmtpServer server;
+        Session session;
+        SmtpTransportPool pool;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            server = new LoopbackSmtpServer();
+            Properties props = new Properties();
+            props.put("mail.smtp.host", "127.0.0.1");
+            props.put("mail.smtp.port", String.valueOf(server.port()));
+            session = Session.getInstance(props);
+            pool = new SmtpTransportPool(session, 2, 100);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            pool.close();
+            server.close();
+        }
+
+        Message message() throws MessagingException {
+            Message msg = new MimeMessage(session);
+            msg.setFrom(new InternetAddress("library@example.com"));
+            msg.setRecipient(Message.RecipientType.TO, new InternetAddress("user@example.com"));
+            msg.setSubject("Library Overdue Notice");
+            msg.setText("You have 1 overdue item(s).");
+            return msg;
+        }
+    }
+
+    @Benchmark
+    public void connectionPerMessage(Mail m) throws MessagingException {
+        Transport.send(m.message());
+    }
+
+    @Benchmark
+    public void pooled(Mail m) throws MessagingException {
+        m.pool.send(m.message());
+    }
+
+    /**
+     * Minimal SMTP server that accepts every message, one thread per connection.
+     */
+    static final class LoopbackSmtpServer implements AutoCloseable {
+
+        private final ServerSocket socket;
+
+        LoopbackSmtpServer() throws IOException {
+            this.socket = new ServerSocket(0, 200, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::acceptLoop, "bench-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    Thread handler = new Thread(() -> serve(client), "bench-smtp-session");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client) {
+            try (client;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                 OutputStream out = client.getOutputStream()) {
+
+                reply(out, "220 bench-smtp ready");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() < 4 ? line : line.substring(0, 4).toUpperCase();
+                    switch (command) {
+                        case "EHLO", "HELO" -> reply(out, "250 bench-smtp");
+                        case "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                        case "DATA" -> {
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // message body is not needed
+                            }
+                            reply(out, "250 OK queued");
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Bye");
+                            return;
+                        }
+                        default -> reply(out, "500 Unknown command");
+                    }
+                }
+            } catch (IOException ignored) {
+                // client went away
+            }
+        }
+
+        private static void reply(OutputStream out, String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
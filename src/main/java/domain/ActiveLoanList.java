@@ -0,0 +1,150 @@
+package domain;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+
+/**
+ * A user's list of active loans that keeps the earliest due date up to date
+ * as loans are added and removed. This lets {@link User} answer "may this
+ * user have an overdue loan?" with a single comparison of epoch days; only
+ * when the answer is yes are the loans themselves inspected.
+ *
+ * A loan whose due date changes while it is in the list has to be reported
+ * through {@link #dueDateChanged(Object, int)}; Loan and CDLoan do this
+ * through their user.
+ *
+ * @param <T> the loan type (Loan or CDLoan)
+ */
+final class ActiveLoanList<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> loans = new ArrayList<>();
+    private final ToIntFunction<T> dueDay;
+    private int earliestDue = EpochDays.NONE;
+    private int undated;
+
+    /**
+     * @param dueDay reads a loan's due date as an epoch day ({@link EpochDays#NONE} if unset)
+     */
+    ActiveLoanList(ToIntFunction<T> dueDay) {
+        this.dueDay = dueDay;
+    }
+
+    @Override
+    public T get(int index) {
+        return loans.get(index);
+    }
+
+    @Override
+    public int size() {
+        return loans.size();
+    }
+
+    @Override
+    public void add(int index, T loan) {
+        loans.add(index, loan);
+        track(loan);
+    }
+
+    @Override
+    public T set(int index, T loan) {
+        T old = loans.set(index, loan);
+        untrack(old);
+        track(loan);
+        return old;
+    }
+
+    @Override
+    public T remove(int index) {
+        T old = loans.remove(index);
+        untrack(old);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        loans.clear();
+        earliestDue = EpochDays.NONE;
+        undated = 0;
+    }
+
+    /**
+     * Moves a loan from its old due date to its current one. Does nothing if
+     * the loan is not in the list.
+     *
+     * @param loan      the loan whose due date changed
+     * @param oldDueDay the previous due date as an epoch day ({@link EpochDays#NONE} if it was unset)
+     */
+    void dueDateChanged(T loan, int oldDueDay) {
+        if (loan == null || !loans.contains(loan)) return;
+
+        untrackDue(oldDueDay);
+        trackDue(dueDay.applyAsInt(loan));
+    }
+
+    /**
+     * Tells whether any loan in the list could be overdue on the given date.
+     * False is exact; true means the loans have to be checked (the earliest
+     * one may have been returned without leaving the list).
+     *
+     * @param date the reference date
+     * @return false if no loan can be overdue on that date
+     */
+    boolean mayHaveOverdue(LocalDate date) {
+        return mayHaveOverdue(EpochDays.of(date));
+    }
+
+    /**
+     * Same as {@link #mayHaveOverdue(LocalDate)} for a date given as an epoch day.
+     *
+     * @param todayEpochDay the reference day
+     * @return false if no loan can be overdue on that day
+     */
+    boolean mayHaveOverdue(int todayEpochDay) {
+        return undated > 0 || (earliestDue != EpochDays.NONE && todayEpochDay > earliestDue);
+    }
+
+    /**
+     * @return the earliest due date in the list, or null if there is none
+     */
+    LocalDate getEarliestDue() {
+        return EpochDays.toDate(earliestDue);
+    }
+
+    private void track(T loan) {
+        if (loan != null) trackDue(dueDay.applyAsInt(loan));
+    }
+
+    private void untrack(T loan) {
+        if (loan != null) untrackDue(dueDay.applyAsInt(loan));
+    }
+
+    private void trackDue(int due) {
+        if (due == EpochDays.NONE) {
+            undated++;
+        } else if (earliestDue == EpochDays.NONE || due < earliestDue) {
+            earliestDue = due;
+        }
+    }
+
+    private void untrackDue(int due) {
+        if (due == EpochDays.NONE) {
+            undated--;
+        } else if (due == earliestDue) {
+            recomputeEarliest();
+        }
+    }
+
+    private void recomputeEarliest() {
+        earliestDue = EpochDays.NONE;
+        for (T loan : loans) {
+            int due = loan == null ? EpochDays.NONE : dueDay.applyAsInt(loan);
+            if (due != EpochDays.NONE && (earliestDue == EpochDays.NONE || due < earliestDue)) {
+                earliestDue = due;
+            }
+        }
+    }
+}
@@ -1,12 +1,12 @@
 package domain;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 /**
  * This class represents a book in the library system.
  * Each book has basic information like title, author, and ISBN.
  * A book can be borrowed for a fixed period of 28 days, after which it becomes overdue.
+ * Borrow and due dates are kept as epoch days (see {@link EpochDays}).
  */
 public class Book {
 
@@ -14,8 +14,8 @@ public class Book {
     private final String author;
     private final String isbn;
     private boolean available;
-    private LocalDate borrowDate;
-    private LocalDate dueDate;
+    private int borrowDay = EpochDays.NONE;
+    private int dueDay = EpochDays.NONE;
 
     /**
      * Creates a new book instance. Books are created as available by default.
@@ -53,8 +53,8 @@ public class Book {
         }
 
         this.available = false;
-        this.borrowDate = borrowDate;
-        this.dueDate = borrowDate.plusDays(28);
+        this.borrowDay = EpochDays.of(borrowDate);
+        this.dueDay = borrowDay + 28;
     }
 
     /**
@@ -71,8 +71,8 @@ public class Book {
      */
     public void returnBook() {
         this.available = true;
-        this.borrowDate = null;
-        this.dueDate = null;
+        this.borrowDay = EpochDays.NONE;
+        this.dueDay = EpochDays.NONE;
     }
 
     /**
@@ -82,7 +82,17 @@ public class Book {
      * @return true if the book should have already been returned, otherwise false
      */
     public boolean isOverdue(LocalDate currentDate) {
-        return dueDate != null && currentDate.isAfter(dueDate);
+        return isOverdue(EpochDays.of(currentDate));
+    }
+
+    /**
+     * Checks whether the book is overdue on the given epoch day.
+     *
+     * @param todayEpochDay the reference day as an epoch day
+     * @return true if the book should have already been returned, otherwise false
+     */
+    public boolean isOverdue(int todayEpochDay) {
+        return dueDay != EpochDays.NONE && todayEpochDay > dueDay;
     }
 
     /**
@@ -102,22 +112,36 @@ public class Book {
      * @return number of remaining days (positive or negative)
      */
     public int getRemainingDays(LocalDate today) {
-        if (dueDate == null) return 0;
-        return (int) ChronoUnit.DAYS.between(today, dueDate);
+        if (dueDay == EpochDays.NONE) return 0;
+        return dueDay - EpochDays.of(today);
     }
 
     /**
      * @return the date when the book must be returned
      */
     public LocalDate getDueDate() {
-        return dueDate;
+        return EpochDays.toDate(dueDay);
+    }
+
+    /**
+     * @return the due date as an epoch day, or {@link EpochDays#NONE}
+     */
+    public int getDueEpochDay() {
+        return dueDay;
     }
 
     /**
      * @return the date when the book was borrowed
      */
     public LocalDate getBorrowDate() {
-        return borrowDate;
+        return EpochDays.toDate(borrowDay);
+    }
+
+    /**
+     * @return the borrow date as an epoch day, or {@link EpochDays#NONE}
+     */
+    public int getBorrowEpochDay() {
+        return borrowDay;
     }
 
     /**
@@ -167,7 +191,7 @@ public class Book {
      * @param borrowDate the date the book was borrowed
      */
     public void setBorrowDate(LocalDate borrowDate) {
-        this.borrowDate = borrowDate;
+        this.borrowDay = EpochDays.of(borrowDate);
     }
 
     /**
@@ -176,7 +200,25 @@ public class Book {
      * @param dueDate the new due date
      */
     public void setDueDate(LocalDate dueDate) {
-        this.dueDate = dueDate;
+        this.dueDay = EpochDays.of(dueDate);
+    }
+
+    /**
+     * Sets the borrow date as an epoch day, e.g. when loading saved data.
+     *
+     * @param borrowDay the epoch day, or {@link EpochDays#NONE}
+     */
+    public void setBorrowEpochDay(int borrowDay) {
+        this.borrowDay = borrowDay;
+    }
+
+    /**
+     * Sets the due date as an epoch day, e.g. when loading saved data.
+     *
+     * @param dueDay the epoch day, or {@link EpochDays#NONE}
+     */
+    public void setDueEpochDay(int dueDay) {
+        this.dueDay = dueDay;
     }
 
     /**
@@ -188,7 +230,7 @@ public class Book {
     public String toString() {
         return String.format(
                 "Book[%s by %s, ISBN=%s, Available=%s, BorrowDate=%s, DueDate=%s]",
-                title, author, isbn, available, borrowDate, dueDate
+                title, author, isbn, available, getBorrowDate(), getDueDate()
         );
     }
 }
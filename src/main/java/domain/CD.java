@@ -1,12 +1,12 @@
 package domain;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 /**
  * This class represents a CD item in the library system.
  * Each CD has a title, artist, and a unique ID.
  * CDs can be borrowed for 7 days and may become overdue.
+ * Borrow and due dates are kept as epoch days (see {@link EpochDays}).
  */
 public class CD {
 
@@ -14,8 +14,8 @@ public class CD {
     private final String artist;
     private final String id;
     private boolean available = true;
-    private LocalDate borrowDate;
-    private LocalDate dueDate;
+    private int borrowDay = EpochDays.NONE;
+    private int dueDay = EpochDays.NONE;
 
     /**
      * Creates a new CD with the given title, artist, and ID.
@@ -35,8 +35,8 @@ public class CD {
             throw new IllegalStateException("CD is already borrowed!");
         }
         this.available = false;
-        this.borrowDate = date;
-        this.dueDate = date.plusDays(7);
+        this.borrowDay = EpochDays.of(date);
+        this.dueDay = borrowDay + 7;
     }
 
     /**
@@ -51,15 +51,22 @@ public class CD {
      */
     public void returnCD() {
         this.available = true;
-        this.borrowDate = null;
-        this.dueDate = null;
+        this.borrowDay = EpochDays.NONE;
+        this.dueDay = EpochDays.NONE;
     }
 
     /**
      * Checks if overdue based on a specific date.
      */
     public boolean isOverdue(LocalDate currentDate) {
-        return dueDate != null && currentDate.isAfter(dueDate);
+        return isOverdue(EpochDays.of(currentDate));
+    }
+
+    /**
+     * Checks if overdue on the given epoch day.
+     */
+    public boolean isOverdue(int todayEpochDay) {
+        return dueDay != EpochDays.NONE && todayEpochDay > dueDay;
     }
 
     /**
@@ -73,8 +80,8 @@ public class CD {
      * Calculates remaining days (negative if overdue).
      */
     public int getRemainingDays(LocalDate today) {
-        if (dueDate == null) return 0;
-        return (int) ChronoUnit.DAYS.between(today, dueDate);
+        if (dueDay == EpochDays.NONE) return 0;
+        return dueDay - EpochDays.of(today);
     }
 
     public boolean isAvailable() {
@@ -82,11 +89,19 @@ public class CD {
     }
 
     public LocalDate getBorrowDate() {
-        return borrowDate;
+        return EpochDays.toDate(borrowDay);
     }
 
     public LocalDate getDueDate() {
-        return dueDate;
+        return EpochDays.toDate(dueDay);
+    }
+
+    public int getBorrowEpochDay() {
+        return borrowDay;
+    }
+
+    public int getDueEpochDay() {
+        return dueDay;
     }
 
     public String getTitle() {
@@ -105,14 +120,35 @@ public class CD {
      * Restores the borrow date when loading from a file.
      */
     public void setBorrowDate(LocalDate borrowDate) {
-        this.borrowDate = borrowDate;
+        this.borrowDay = EpochDays.of(borrowDate);
     }
 
     /**
      * Restores the due date when loading from a file.
      */
     public void setDueDate(LocalDate dueDate) {
-        this.dueDate = dueDate;
+        this.dueDay = EpochDays.of(dueDate);
+    }
+
+    /**
+     * Restores the availability flag when loading from a file.
+     */
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    /**
+     * Restores the borrow date, as an epoch day, when loading from a file.
+     */
+    public void setBorrowEpochDay(int borrowDay) {
+        this.borrowDay = borrowDay;
+    }
+
+    /**
+     * Restores the due date, as an epoch day, when loading from a file.
+     */
+    public void setDueEpochDay(int dueDay) {
+        this.dueDay = dueDay;
     }
 
     /**
@@ -122,7 +158,7 @@ public class CD {
     public String toString() {
         return String.format(
                 "CD[%s by %s, ID=%s, Available=%s, Borrowed=%s, Due=%s]",
-                title, artist, id, available, borrowDate, dueDate
+                title, artist, id, available, getBorrowDate(), getDueDate()
         );
     }
 }
@@ -4,35 +4,43 @@ import domain.fine.CDFineStrategy;
 import domain.fine.FineStrategy;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 public class CDLoan {
 
     private final User user;
     private final CD cd;
-    private LocalDate borrowDate;
-    private LocalDate dueDate;
+    private int borrowDay;
+    private int dueDay;
     private FineStrategy fineStrategy;
     private boolean active = true;
+    private DueDateListener<CDLoan> dueDateListener;
 
-    public CDLoan(User user, CD cd) {
+    public CDLoan(User user, CD cd, LocalDate borrowDate) {
         this.user = user;
         this.cd = cd;
 
         this.fineStrategy = new CDFineStrategy();
 
-        this.borrowDate = LocalDate.now();
-        this.dueDate = borrowDate.plusDays(7);
+        this.borrowDay = EpochDays.of(borrowDate);
+        this.dueDay = borrowDay + 7;
 
         cd.borrowCD(borrowDate);
     }
 
+    public CDLoan(User user, CD cd) {
+        this(user, cd, LocalDate.now());
+    }
+
     public CDLoan(User user, CD cd, LocalDate borrowDate, LocalDate dueDate, boolean active) {
+        this(user, cd, EpochDays.of(borrowDate), EpochDays.of(dueDate), active);
+    }
+
+    public CDLoan(User user, CD cd, int borrowDay, int dueDay, boolean active) {
         this.user = user;
         this.cd = cd;
         this.fineStrategy = new CDFineStrategy();
-        this.borrowDate = borrowDate;
-        this.dueDate = dueDate;
+        this.borrowDay = borrowDay;
+        this.dueDay = dueDay;
         this.active = active;
     }
 
@@ -47,16 +55,24 @@ public class CDLoan {
     }
 
     public boolean isOverdue(LocalDate date) {
-        return active && date.isAfter(dueDate);
+        return isOverdue(EpochDays.of(date));
+    }
+
+    public boolean isOverdue(int todayEpochDay) {
+        return active && dueDay != EpochDays.NONE && todayEpochDay > dueDay;
     }
 
     public boolean isOverdue() {
-        return isOverdue(LocalDate.now());
+        return isOverdue(EpochDays.today());
     }
 
     public int getOverdueDays() {
-        if (!isOverdue()) return 0;
-        return (int) ChronoUnit.DAYS.between(dueDate, LocalDate.now());
+        return getOverdueDays(EpochDays.today());
+    }
+
+    public int getOverdueDays(int todayEpochDay) {
+        if (!isOverdue(todayEpochDay)) return 0;
+        return todayEpochDay - dueDay;
     }
 
     public int calculateFine() {
@@ -64,11 +80,30 @@ public class CDLoan {
     }
 
     public void setBorrowDate(LocalDate borrowDate) {
-        this.borrowDate = borrowDate;
+        this.borrowDay = EpochDays.of(borrowDate);
     }
 
+    /**
+     * Changes the due date. The user's active loan list and the listener,
+     * if any, are told so they can re-index the loan.
+     */
     public void setDueDate(LocalDate dueDate) {
-        this.dueDate = dueDate;
+        int old = dueDay;
+        this.dueDay = EpochDays.of(dueDate);
+        if (old == dueDay) return;
+
+        if (user != null) user.cdLoanDueDateChanged(this, old);
+        DueDateListener<CDLoan> listener = dueDateListener;
+        if (listener != null) listener.dueDateChanged(this, old);
+    }
+
+    /**
+     * Sets the listener told about due date changes, replacing any previous one.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setDueDateListener(DueDateListener<CDLoan> listener) {
+        this.dueDateListener = listener;
     }
 
     public User getUser() {
@@ -80,11 +115,19 @@ public class CDLoan {
     }
 
     public LocalDate getBorrowDate() {
-        return borrowDate;
+        return EpochDays.toDate(borrowDay);
     }
 
     public LocalDate getDueDate() {
-        return dueDate;
+        return EpochDays.toDate(dueDay);
+    }
+
+    public int getBorrowEpochDay() {
+        return borrowDay;
+    }
+
+    public int getDueEpochDay() {
+        return dueDay;
     }
 
     @Override
@@ -92,8 +135,8 @@ public class CDLoan {
         return "CDLoan{" +
                 "user=" + user.getUserName() +
                 ", cd=" + cd.getTitle() +
-                ", borrowDate=" + borrowDate +
-                ", dueDate=" + dueDate +
+                ", borrowDate=" + getBorrowDate() +
+                ", dueDate=" + getDueDate() +
                 ", active=" + active +
                 '}';
     }
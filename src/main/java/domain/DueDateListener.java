@@ -0,0 +1,19 @@
+package domain;
+
+/**
+ * Told when a loan's due date changes, so that an index keyed by due date
+ * can move the loan to its new place.
+ *
+ * @param <T> the loan type (Loan or CDLoan)
+ */
+@FunctionalInterface
+public interface DueDateListener<T> {
+
+    /**
+     * Called after the due date of a loan was changed.
+     *
+     * @param loan      the loan, already carrying its new due date
+     * @param oldDueDay the previous due date as an epoch day ({@link EpochDays#NONE} if it was unset)
+     */
+    void dueDateChanged(T loan, int oldDueDay);
+}
@@ -0,0 +1,43 @@
+package domain;
+
+import java.time.LocalDate;
+
+/**
+ * Helpers for dates stored as epoch days (days since 1970-01-01).
+ * Books, CDs and loans keep their dates as plain ints so that overdue checks
+ * compare two numbers instead of two {@link LocalDate} objects.
+ */
+public final class EpochDays {
+
+    /**
+     * Marks a date that is not set (e.g. the due date of an available book).
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private EpochDays() {
+    }
+
+    /**
+     * @param date the date, may be null
+     * @return the date's epoch day, or {@link #NONE} for null
+     * @throws ArithmeticException if the date is too far from 1970 to fit in an int
+     */
+    public static int of(LocalDate date) {
+        return date == null ? NONE : Math.toIntExact(date.toEpochDay());
+    }
+
+    /**
+     * @param epochDay an epoch day or {@link #NONE}
+     * @return the matching date, or null for {@link #NONE}
+     */
+    public static LocalDate toDate(int epochDay) {
+        return epochDay == NONE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * @return today's epoch day in the system time zone
+     */
+    public static int today() {
+        return of(LocalDate.now());
+    }
+}
@@ -4,38 +4,50 @@ import domain.fine.BookFineStrategy;
 import domain.fine.FineStrategy;
 
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 
 public class Loan {
 
     private final User user;
     private final Book book;
-    private LocalDate borrowDate;
-    private LocalDate dueDate;
+    private int borrowDay;
+    private int dueDay;
     private FineStrategy fineStrategy;
     private boolean active = true;
+    private DueDateListener<Loan> dueDateListener;
 
-    public Loan(User user, Book book, FineStrategy fineStrategy) {
+    public Loan(User user, Book book, FineStrategy fineStrategy, LocalDate borrowDate) {
         this.user = user;
         this.book = book;
         this.fineStrategy = fineStrategy;
 
-        this.borrowDate = LocalDate.now();
-        this.dueDate = borrowDate.plusDays(28);
+        this.borrowDay = EpochDays.of(borrowDate);
+        this.dueDay = borrowDay + 28;
 
         book.borrowBook(borrowDate);
     }
 
+    public Loan(User user, Book book, FineStrategy fineStrategy) {
+        this(user, book, fineStrategy, LocalDate.now());
+    }
+
+    public Loan(User user, Book book, LocalDate borrowDate) {
+        this(user, book, new BookFineStrategy(), borrowDate);
+    }
+
     public Loan(User user, Book book) {
         this(user, book, new BookFineStrategy());
     }
 
     public Loan(User user, Book book, LocalDate borrowDate, LocalDate dueDate, boolean active) {
+        this(user, book, EpochDays.of(borrowDate), EpochDays.of(dueDate), active);
+    }
+
+    public Loan(User user, Book book, int borrowDay, int dueDay, boolean active) {
         this.user = user;
         this.book = book;
         this.fineStrategy = new BookFineStrategy();
-        this.borrowDate = borrowDate;
-        this.dueDate = dueDate;
+        this.borrowDay = borrowDay;
+        this.dueDay = dueDay;
         this.active = active;
     }
 
@@ -50,16 +62,24 @@ public class Loan {
     }
 
     public boolean isOverdue(LocalDate date) {
-        return active && dueDate != null && date.isAfter(dueDate);
+        return isOverdue(EpochDays.of(date));
+    }
+
+    public boolean isOverdue(int todayEpochDay) {
+        return active && dueDay != EpochDays.NONE && todayEpochDay > dueDay;
     }
 
     public boolean isOverdue() {
-        return isOverdue(LocalDate.now());
+        return isOverdue(EpochDays.today());
     }
 
     public int getOverdueDays() {
-        if (!isOverdue()) return 0;
-        return (int) ChronoUnit.DAYS.between(dueDate, LocalDate.now());
+        return getOverdueDays(EpochDays.today());
+    }
+
+    public int getOverdueDays(int todayEpochDay) {
+        if (!isOverdue(todayEpochDay)) return 0;
+        return todayEpochDay - dueDay;
     }
 
     public int calculateFine() {
@@ -67,11 +87,30 @@ public class Loan {
     }
 
     public void setBorrowDate(LocalDate borrowDate) {
-        this.borrowDate = borrowDate;
+        this.borrowDay = EpochDays.of(borrowDate);
     }
 
+    /**
+     * Changes the due date. The user's active loan list and the listener,
+     * if any, are told so they can re-index the loan.
+     */
     public void setDueDate(LocalDate dueDate) {
-        this.dueDate = dueDate;
+        int old = dueDay;
+        this.dueDay = EpochDays.of(dueDate);
+        if (old == dueDay) return;
+
+        if (user != null) user.loanDueDateChanged(this, old);
+        DueDateListener<Loan> listener = dueDateListener;
+        if (listener != null) listener.dueDateChanged(this, old);
+    }
+
+    /**
+     * Sets the listener told about due date changes, replacing any previous one.
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setDueDateListener(DueDateListener<Loan> listener) {
+        this.dueDateListener = listener;
     }
 
     public void setFineStrategy(FineStrategy fineStrategy) {
@@ -87,11 +126,19 @@ public class Loan {
     }
 
     public LocalDate getBorrowDate() {
-        return borrowDate;
+        return EpochDays.toDate(borrowDay);
     }
 
     public LocalDate getDueDate() {
-        return dueDate;
+        return EpochDays.toDate(dueDay);
+    }
+
+    public int getBorrowEpochDay() {
+        return borrowDay;
+    }
+
+    public int getDueEpochDay() {
+        return dueDay;
     }
 
     public FineStrategy getFineStrategy() {
@@ -103,8 +150,8 @@ public class Loan {
         return "Loan{" +
                 "user=" + user.getUserName() +
                 ", book=" + book.getTitle() +
-                ", borrow=" + borrowDate +
-                ", due=" + dueDate +
+                ", borrow=" + getBorrowDate() +
+                ", due=" + getDueDate() +
                 ", active=" + active +
                 '}';
     }
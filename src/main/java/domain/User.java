@@ -1,6 +1,6 @@
 package domain;
 
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -13,9 +13,9 @@ public class User {
 
     private final String name;
     private String email;
-    private double fineBalance;
-    private final List<Loan> activeBookLoans;
-    private final List<CDLoan> activeCDLoans;
+    private volatile double fineBalance;
+    private final ActiveLoanList<Loan> activeBookLoans;
+    private final ActiveLoanList<CDLoan> activeCDLoans;
 
     public User(String name) {
         this(name, "no-email@none.com");
@@ -25,8 +25,8 @@ public class User {
         this.name = name;
         this.email = email;
         this.fineBalance = 0;
-        this.activeBookLoans = new ArrayList<>();
-        this.activeCDLoans = new ArrayList<>();
+        this.activeBookLoans = new ActiveLoanList<>(Loan::getDueEpochDay);
+        this.activeCDLoans = new ActiveLoanList<>(CDLoan::getDueEpochDay);
     }
 
     public String getUserName() { return name; }
@@ -42,7 +42,15 @@ public class User {
      * Adds a new loan for a borrowed book.
      * Enforces rules required by tests.
      */
-    public void addLoan(Loan loan) {
+    public synchronized void addLoan(Loan loan) {
+        addLoan(loan, LocalDate.now());
+    }
+
+    /**
+     * Adds a new loan for a borrowed book, checking for overdue loans
+     * as of the given business date.
+     */
+    public synchronized void addLoan(Loan loan, LocalDate today) {
         if (loan == null) {
             throw new IllegalArgumentException("loan is null");
         }
@@ -51,7 +59,7 @@ public class User {
             throw new IllegalStateException("Cannot borrow: Unpaid fines.");
         }
 
-        if (hasOverdueLoans()) {
+        if (hasOverdueLoans(today)) {
             throw new IllegalStateException("Cannot borrow: Overdue loans exist.");
         }
 
@@ -62,7 +70,15 @@ public class User {
      * Adds a new loan for a borrowed CD.
      * Enforces rules required by tests.
      */
-    public void addCDLoan(CDLoan loan) {
+    public synchronized void addCDLoan(CDLoan loan) {
+        addCDLoan(loan, LocalDate.now());
+    }
+
+    /**
+     * Adds a new loan for a borrowed CD, checking for overdue loans
+     * as of the given business date.
+     */
+    public synchronized void addCDLoan(CDLoan loan, LocalDate today) {
         if (loan == null) {
             throw new IllegalArgumentException("loan is null");
         }
@@ -71,43 +87,106 @@ public class User {
             throw new IllegalStateException("Cannot borrow: Unpaid fines.");
         }
 
-        if (hasOverdueLoans()) {
+        if (hasOverdueLoans(today)) {
             throw new IllegalStateException("Cannot borrow: Overdue loans exist.");
         }
 
         activeCDLoans.add(loan);
     }
 
-    public void returnLoan(Loan loan) {
+    public synchronized void returnLoan(Loan loan) {
         if (activeBookLoans.remove(loan)) {
             loan.returnBook();
         }
     }
 
-    public void returnCDLoan(CDLoan loan) {
+    public synchronized void returnCDLoan(CDLoan loan) {
         if (activeCDLoans.remove(loan)) {
             loan.returnCD();
         }
     }
 
-    public boolean hasOverdueLoans() {
-        return activeBookLoans.stream().anyMatch(Loan::isOverdue)
-                || activeCDLoans.stream().anyMatch(CDLoan::isOverdue);
+    /**
+     * Re-tracks a book loan in the active list after its due date changed.
+     */
+    synchronized void loanDueDateChanged(Loan loan, int oldDueDay) {
+        activeBookLoans.dueDateChanged(loan, oldDueDay);
+    }
+
+    /**
+     * Re-tracks a CD loan in the active list after its due date changed.
+     */
+    synchronized void cdLoanDueDateChanged(CDLoan loan, int oldDueDay) {
+        activeCDLoans.dueDateChanged(loan, oldDueDay);
+    }
+
+    public synchronized boolean hasOverdueLoans() {
+        return hasOverdueLoans(LocalDate.now());
     }
 
-    public int getOverdueCount() {
-        return (int) activeBookLoans.stream().filter(Loan::isOverdue).count()
-                + (int) activeCDLoans.stream().filter(CDLoan::isOverdue).count();
+    /**
+     * Checks for overdue loans on the given date. The loan lists track their
+     * earliest due date, so a user with nothing overdue is answered without
+     * looking at individual loans.
+     */
+    public synchronized boolean hasOverdueLoans(LocalDate date) {
+        int day = EpochDays.of(date);
+        if (activeBookLoans.mayHaveOverdue(day)) {
+            for (Loan loan : activeBookLoans) {
+                if (loan != null && loan.isOverdue(day)) return true;
+            }
+        }
+        if (activeCDLoans.mayHaveOverdue(day)) {
+            for (CDLoan loan : activeCDLoans) {
+                if (loan != null && loan.isOverdue(day)) return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized int getOverdueCount() {
+        int today = EpochDays.today();
+        int count = 0;
+
+        if (activeBookLoans.mayHaveOverdue(today)) {
+            for (Loan loan : activeBookLoans) {
+                if (loan != null && loan.isOverdue(today)) count++;
+            }
+        }
+        if (activeCDLoans.mayHaveOverdue(today)) {
+            for (CDLoan loan : activeCDLoans) {
+                if (loan != null && loan.isOverdue(today)) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of books and CDs the user currently holds
+     */
+    public synchronized int getActiveLoanCount() {
+        return activeBookLoans.size() + activeCDLoans.size();
+    }
+
+    /**
+     * @return the earliest due date over all active loans, or null if there are none
+     */
+    public synchronized LocalDate getEarliestDueDate() {
+        LocalDate books = activeBookLoans.getEarliestDue();
+        LocalDate cds = activeCDLoans.getEarliestDue();
+        if (books == null) return cds;
+        if (cds == null) return books;
+        return books.isBefore(cds) ? books : cds;
     }
 
-    public void payFine(double amount) {
+    public synchronized void payFine(double amount) {
         if (amount >= fineBalance)
             fineBalance = 0;
         else
             fineBalance -= amount;
     }
 
-    public boolean canBeUnregistered() {
+    public synchronized boolean canBeUnregistered() {
 
         if (fineBalance > 0) {
             return false;
@@ -0,0 +1,360 @@
+package file;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * One comma-separated line, viewed as fields over a byte buffer.
+ * Field strings are only decoded when {@link #get(int)} asks for them, so a
+ * loader that skips a line never turns it into a String. Numbers, booleans
+ * and dates are parsed straight from the bytes by the typed getters.
+ *
+ * Fields follow {@code String.split(",")}: trailing empty fields are dropped,
+ * empty fields in the middle are kept. A field that starts with {@code "}
+ * runs to the next lone {@code "} and may contain commas; a doubled
+ * {@code ""} inside it stands for one quote. {@link #quote(String)} writes
+ * fields in that form. Line breaks inside fields are not supported.
+ *
+ * Records handed out by {@link FileManager#forEachRecord} are reused for the
+ * next line; callers must copy what they need before returning.
+ */
+public final class CsvRecord {
+
+    private static final long DAYS_0000_TO_1970 = 719528;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private byte[] buf;
+    private int length;
+    private int[] bounds = new int[16];
+    private boolean[] escaped = new boolean[8];
+    private int fields;
+
+    CsvRecord() {
+    }
+
+    /**
+     * Creates a standalone record from a text line.
+     *
+     * @param line the CSV line (must not be null)
+     * @return a record holding the line's fields
+     */
+    public static CsvRecord of(String line) {
+        CsvRecord r = new CsvRecord();
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        r.reset(bytes, bytes.length);
+        return r;
+    }
+
+    /**
+     * Quotes a field for writing if it contains a comma or a quote, so that
+     * reading the line back yields the same field.
+     *
+     * @param field the field value, may be null
+     * @return the field as it should appear in the line; {@code null} for null
+     */
+    public static String quote(String field) {
+        if (field == null) return FileManager.NULL_LITERAL;
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0) return field;
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Points this record at the first {@code length} bytes of {@code buf}
+     * and splits them into fields.
+     */
+    void reset(byte[] buf, int length) {
+        this.buf = buf;
+        this.length = length;
+        this.fields = 0;
+
+        int i = 0;
+        while (true) {
+            if (i < length && buf[i] == '"') {
+                int start = i + 1;
+                int end = start;
+                boolean doubled = false;
+                while (end < length) {
+                    if (buf[end] == '"') {
+                        if (end + 1 < length && buf[end + 1] == '"') {
+                            doubled = true;
+                            end += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    end++;
+                }
+                addField(start, end, doubled);
+
+                // anything between the closing quote and the next comma is ignored
+                i = end + 1;
+                while (i < length && buf[i] != ',') i++;
+            } else {
+                int start = i;
+                while (i < length && buf[i] != ',') i++;
+                addField(start, i, false);
+            }
+
+            if (i >= length) break;
+            i++;
+        }
+
+        while (fields > 0 && bounds[2 * fields - 1] == bounds[2 * fields - 2]) {
+            fields--;
+        }
+    }
+
+    /**
+     * @return number of fields, not counting trailing empty ones
+     */
+    public int size() {
+        return fields;
+    }
+
+    /**
+     * Returns a field as a string.
+     *
+     * @param index field index
+     * @return the field, or null if the line has fewer fields
+     */
+    public String get(int index) {
+        if (index < 0 || index >= fields) return null;
+
+        int start = bounds[2 * index];
+        String value = new String(buf, start, bounds[2 * index + 1] - start, StandardCharsets.UTF_8);
+        return escaped[index] ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * Returns a field through a string pool, so a value that is already
+     * pooled is not decoded again.
+     *
+     * @param index field index
+     * @param pool  the pool to look the value up in
+     * @return the field, or null if the line has fewer fields
+     */
+    public String get(int index, StringPool pool) {
+        if (index < 0 || index >= fields) return null;
+        if (escaped[index]) return pool.intern(get(index));
+
+        int start = bounds[2 * index];
+        return pool.intern(buf, start, bounds[2 * index + 1] - start);
+    }
+
+    /**
+     * Tells whether a field holds no value: it is missing, blank, or the
+     * literal {@code null} (in any case).
+     *
+     * @param index field index
+     * @return true if the field has no value
+     */
+    public boolean isNull(int index) {
+        if (index < 0 || index >= fields) return true;
+
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        return start == end || (end - start == 4 && matches(start, FileManager.NULL_LITERAL));
+    }
+
+    /**
+     * Parses a field as a decimal int. Surrounding whitespace is ignored.
+     *
+     * @param index field index
+     * @return the value
+     * @throws NumberFormatException if the field is missing or not an int
+     */
+    public int getInt(int index) {
+        if (index < 0 || index >= fields) throw new NumberFormatException("missing field " + index);
+
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        boolean negative = start < end && buf[start] == '-';
+        int i = negative || (start < end && buf[start] == '+') ? start + 1 : start;
+        if (i == end) throw invalidNumber(index);
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) throw invalidNumber(index);
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) throw invalidNumber(index);
+        }
+        if (negative) value = -value;
+        if (value > Integer.MAX_VALUE) throw invalidNumber(index);
+        return (int) value;
+    }
+
+    /**
+     * Parses a field as a double. Plain decimals such as {@code 12.50} are
+     * read from the bytes; other forms (exponents, very long numbers) go
+     * through {@link Double#parseDouble}. Surrounding whitespace is ignored.
+     *
+     * @param index field index
+     * @return the value
+     * @throws NumberFormatException if the field is missing or not a number
+     */
+    public double getDouble(int index) {
+        if (index < 0 || index >= fields) throw new NumberFormatException("missing field " + index);
+
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        boolean negative = start < end && buf[start] == '-';
+        int i = negative || (start < end && buf[start] == '+') ? start + 1 : start;
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        boolean any = false;
+        for (; i < end; i++) {
+            byte b = buf[i];
+            if (b == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || digits == 15 || decimals == 15) {
+                return Double.parseDouble(get(index).trim());
+            }
+            any = true;
+            mantissa = mantissa * 10 + digit;
+            if (mantissa > 0) digits++;
+            if (decimals >= 0) decimals++;
+        }
+        if (!any) throw invalidNumber(index);
+
+        // both numbers are exact doubles, so the division rounds correctly
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a field as a boolean: {@code true} in any case is true,
+     * everything else (including a missing field) is false.
+     *
+     * @param index field index
+     * @return the value
+     */
+    public boolean getBoolean(int index) {
+        if (index < 0 || index >= fields) return false;
+
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        return end - start == 4 && matches(start, "true");
+    }
+
+    /**
+     * Parses an ISO date ({@code yyyy-MM-dd}) into days since 1970-01-01
+     * without creating a {@link LocalDate}.
+     *
+     * @param index   field index
+     * @param missing value returned when {@link #isNull(int)} is true
+     * @return the epoch day, or {@code missing}
+     * @throws DateTimeParseException if the field is not a valid date
+     */
+    public int getEpochDay(int index, int missing) {
+        if (isNull(index)) return missing;
+
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        if (end - start != 10 || buf[start + 4] != '-' || buf[start + 7] != '-') {
+            // other years, or invalid: let LocalDate decide
+            return Math.toIntExact(LocalDate.parse(get(index).trim()).toEpochDay());
+        }
+
+        int year = digits(index, start, 4);
+        int month = digits(index, start + 5, 2);
+        int day = digits(index, start + 8, 2);
+        boolean leap = Year.isLeap(year);
+        if (month < 1 || month > 12 || day < 1 || day > Month.of(month).length(leap)) {
+            throw invalidDate(index);
+        }
+
+        // same arithmetic as LocalDate.toEpochDay for years 0..9999
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367L * month - 362) / 12 + day - 1;
+        if (month > 2) total -= leap ? 1 : 2;
+        return Math.toIntExact(total - DAYS_0000_TO_1970);
+    }
+
+    /**
+     * @return true if the line is empty or only holds whitespace
+     */
+    public boolean isBlank() {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(buf[i])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the whole line as a string
+     */
+    public String line() {
+        return new String(buf, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return line();
+    }
+
+    private void addField(int start, int end, boolean doubledQuotes) {
+        if (2 * fields + 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            escaped = Arrays.copyOf(escaped, bounds.length / 2);
+        }
+        bounds[2 * fields] = start;
+        bounds[2 * fields + 1] = end;
+        escaped[fields] = doubledQuotes;
+        fields++;
+    }
+
+    private int trimStart(int index) {
+        int start = bounds[2 * index];
+        int end = bounds[2 * index + 1];
+        while (start < end && buf[start] <= ' ') start++;
+        return start;
+    }
+
+    private int trimEnd(int index, int start) {
+        int end = bounds[2 * index + 1];
+        while (end > start && buf[end - 1] <= ' ') end--;
+        return end;
+    }
+
+    /**
+     * Compares the bytes at {@code start} with an ASCII word, ignoring case.
+     */
+    private boolean matches(int start, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.toLowerCase(buf[start + i]) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private int digits(int index, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) throw invalidDate(index);
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private NumberFormatException invalidNumber(int index) {
+        return new NumberFormatException("For input string: \"" + get(index) + "\"");
+    }
+
+    private DateTimeParseException invalidDate(int index) {
+        String text = get(index);
+        return new DateTimeParseException("Text '" + text + "' could not be parsed", text, 0);
+    }
+}
@@ -0,0 +1,37 @@
+package file;
+
+/**
+ * Locates the CSV data files used by the services.
+ * The directory defaults to {@value #DEFAULT} and can be moved with the
+ * {@code library.dataDir} system property, for example to run benchmarks
+ * against generated datasets without touching the real data.
+ * Services resolve their paths once, when their class is loaded.
+ */
+public final class DataDirectory {
+
+    /**
+     * System property holding the data directory.
+     */
+    public static final String PROPERTY = "library.dataDir";
+
+    /**
+     * Data directory used when the property is not set.
+     */
+    public static final String DEFAULT = "src/main/resources/data";
+
+    /**
+     * Prevents instantiation of this utility class.
+     */
+    private DataDirectory() {
+    }
+
+    /**
+     * Returns the path of a data file inside the configured directory.
+     *
+     * @param name the file name, e.g. {@code books.txt}
+     * @return the path of the file
+     */
+    public static String file(String name) {
+        return System.getProperty(PROPERTY, DEFAULT) + "/" + name;
+    }
+}
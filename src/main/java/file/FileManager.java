@@ -1,11 +1,27 @@
 package file;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Utility class for handling simple file operations such as reading, writing,
@@ -20,11 +36,43 @@ public class FileManager {
     private FileManager() {
     }
 
+    /**
+     * When {@link #writeLines} forces a replaced file to disk.
+     *
+     * - ALWAYS: before the new file is moved into place, so a finished write survives a crash
+     * - BATCH: files are moved into place right away and forced together by {@link #sync()}
+     * - NEVER: the operating system writes the files back whenever it likes
+     *
+     * Whatever the policy, a reader or a crash never sees a half-written file;
+     * with BATCH and NEVER a crash may bring back an older version, or on some
+     * file systems an empty one.
+     */
+    public enum SyncPolicy { ALWAYS, BATCH, NEVER }
+
+    private static volatile SyncPolicy syncPolicy = SyncPolicy.ALWAYS;
+
+    /**
+     * Files replaced under {@link SyncPolicy#BATCH} that were not forced yet.
+     */
+    private static final Set<Path> unsynced = ConcurrentHashMap.newKeySet();
+
+    private static final AtomicLong tempIds = new AtomicLong();
+
     /**
      * Represents a missing value in stored CSV files.
      */
     public static final String NULL_LITERAL = "null";
 
+    /**
+     * Largest part of a file mapped into memory at once by {@link #forEachRecord}.
+     */
+    static final int MAP_WINDOW = 64 << 20;
+
+    /**
+     * Smallest part of a file parsed as one task by {@link #parseRecords}.
+     */
+    static final long PARALLEL_CHUNK = 4 << 20;
+
     /**
      * Reads all lines from a text file and returns them as a List of strings.
      * If the file does not exist, it will be created automatically and an empty
@@ -35,56 +83,306 @@ public class FileManager {
      */
     public static List<String> readLines(String filePath) {
         try {
-            File f = new File(filePath);
+            if (createIfMissing(filePath)) {
+                return new ArrayList<>();
+            }
 
-            if (!f.exists()) {
-                File parent = f.getParentFile();
-                if (parent != null) {
-                    parent.mkdirs();
-                }
+            return Files.readAllLines(Paths.get(filePath));
 
-                boolean created = f.createNewFile();
-                if (!created && !f.exists()) {
-                    throw new IOException("Failed to create file: " + filePath);
-                }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                return new ArrayList<>();
+    /**
+     * Streams a CSV file line by line without loading it into memory.
+     * The file is mapped in windows of at most {@link #MAP_WINDOW} bytes and each
+     * line is handed to the action as a {@link CsvRecord}, so heap use does not
+     * grow with the file size. The record is reused for the next line.
+     * Lines may end with {@code \n} or {@code \r\n}. If the file does not exist,
+     * it is created and the action is never called.
+     *
+     * @param filePath the path to the file to read
+     * @param action   called once per line, in file order
+     */
+    public static void forEachRecord(String filePath, Consumer<CsvRecord> action) {
+        forEachRecord(filePath, MAP_WINDOW, action);
+    }
+
+    /**
+     * Same as {@link #forEachRecord(String, Consumer)} with a given window size.
+     */
+    static void forEachRecord(String filePath, int mapWindow, Consumer<CsvRecord> action) {
+        try {
+            if (createIfMissing(filePath)) return;
+
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+                scan(channel, 0, channel.size(), mapWindow, action);
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            return Files.readAllLines(Paths.get(filePath));
+    /**
+     * Parses a CSV file into objects, splitting it into chunks that are parsed
+     * in parallel and merged back in file order.
+     * Chunks run as fork/join tasks: in the caller's pool when called from a
+     * {@link ForkJoinPool} worker, otherwise in the common pool.
+     * If the file does not exist, it is created and an empty list is returned.
+     *
+     * @param filePath the path to the file to read
+     * @param parser   turns a line into an object, or returns null to skip it;
+     *                 called from several threads at once
+     * @param <T>      the parsed type
+     * @return the parsed objects in file order
+     */
+    public static <T> List<T> parseRecords(String filePath, Function<CsvRecord, T> parser) {
+        return parseRecords(filePath, PARALLEL_CHUNK, parser);
+    }
+
+    /**
+     * Same as {@link #parseRecords(String, Function)} with a given minimum chunk size.
+     */
+    static <T> List<T> parseRecords(String filePath, long minChunk, Function<CsvRecord, T> parser) {
+        try {
+            if (createIfMissing(filePath)) return new ArrayList<>();
+
+            try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+                long size = channel.size();
+                long chunks = Math.min((size + minChunk - 1) / minChunk,
+                        4L * Runtime.getRuntime().availableProcessors());
 
+                List<ForkJoinTask<List<T>>> tasks = new ArrayList<>();
+                long from = 0;
+                for (long c = 1; c <= chunks && from < size; c++) {
+                    long to = c == chunks ? size : lineStart(channel, Math.max(from, size * c / chunks), size);
+                    if (to <= from) continue;
+
+                    long chunkFrom = from;
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        List<T> out = new ArrayList<>();
+                        scan(channel, chunkFrom, to, MAP_WINDOW, r -> {
+                            T t = parser.apply(r);
+                            if (t != null) out.add(t);
+                        });
+                        return out;
+                    }));
+                    from = to;
+                }
+
+                ForkJoinTask.invokeAll(tasks);
+
+                List<T> out = new ArrayList<>();
+                for (ForkJoinTask<List<T>> task : tasks) {
+                    out.addAll(task.join());
+                }
+                return out;
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Finds where the line containing {@code pos} ends, so a chunk boundary
+     * never cuts a line in two.
+     *
+     * @return the position right after the next line break at or after pos, or size
+     */
+    private static long lineStart(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        while (pos < size) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n <= 0) break;
+
+            for (int i = 0; i < n; i++) {
+                if (buf.get(i) == '\n') return pos + i + 1;
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    /**
+     * Hands every line in {@code [from, to)} to the action. {@code from} must be
+     * the start of a line.
+     */
+    private static void scan(FileChannel channel, long from, long to, int mapWindow,
+                             Consumer<CsvRecord> action) throws IOException {
+        CsvRecord record = new CsvRecord();
+        byte[] line = new byte[256];
+        int len = 0;
+
+        for (long pos = from; pos < to; ) {
+            int window = (int) Math.min(mapWindow, to - pos);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, window);
+
+            int start = 0;
+            for (int i = 0; i < window; i++) {
+                if (buf.get(i) != '\n') continue;
+
+                line = append(line, len, buf, start, i - start);
+                len += i - start;
+                emit(record, line, len, action);
+                len = 0;
+                start = i + 1;
+            }
+
+            line = append(line, len, buf, start, window - start);
+            len += window - start;
+            pos += window;
+        }
+
+        if (len > 0) emit(record, line, len, action);
+    }
+
+    /**
+     * Creates the file and its parent directories if the file does not exist.
+     *
+     * @return true if the file was missing
+     */
+    private static boolean createIfMissing(String filePath) throws IOException {
+        File f = new File(filePath);
+        if (f.exists()) return false;
+
+        File parent = f.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        boolean created = f.createNewFile();
+        if (!created && !f.exists()) {
+            throw new IOException("Failed to create file: " + filePath);
+        }
+        return true;
+    }
+
+    private static byte[] append(byte[] line, int len, MappedByteBuffer buf, int from, int count) {
+        if (count == 0) return line;
+
+        if (len + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, len + count));
+        }
+        buf.get(from, line, len, count);
+        return line;
+    }
+
+    private static void emit(CsvRecord record, byte[] line, int len, Consumer<CsvRecord> action) {
+        if (len > 0 && line[len - 1] == '\r') len--;
+        record.reset(line, len);
+        action.accept(record);
+    }
+
+    /**
+     * Sets when {@link #writeLines} forces files to disk. Defaults to {@link SyncPolicy#ALWAYS}.
+     *
+     * @param policy the new policy
+     */
+    public static void setSyncPolicy(SyncPolicy policy) {
+        syncPolicy = policy;
+    }
+
+    /**
+     * @return the current policy
+     */
+    public static SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
     /**
      * Writes a list of lines into the file, replacing any previous content.
      * If the file or its parent directory does not exist, they will be created.
      *
+     * The lines go to a temporary file next to the target, which is then moved
+     * over it in one step, so the file holds either the old or the new lines,
+     * never a part of them. Whether the new file is forced to disk depends on
+     * the {@link SyncPolicy}.
+     *
      * @param filePath the path to the file to write to
      * @param lines    the list of lines to write into the file
      */
     public static void writeLines(String filePath, List<String> lines) {
         try {
-            File f = new File(filePath);
+            Path path = Paths.get(filePath).toAbsolutePath();
+            Path dir = path.getParent();
+            Files.createDirectories(dir);
 
-            if (!f.exists()) {
-                File parent = f.getParentFile();
-                if (parent != null) {
-                    parent.mkdirs();
+            SyncPolicy policy = syncPolicy;
+            Path tmp = dir.resolve(path.getFileName() + "." + tempIds.incrementAndGet() + ".tmp");
+            boolean moved = false;
+            try {
+                try (FileOutputStream out = new FileOutputStream(tmp.toFile());
+                     BufferedWriter writer = new BufferedWriter(
+                             new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+                    for (String line : lines) {
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                    writer.flush();
+                    if (policy == SyncPolicy.ALWAYS) {
+                        out.getChannel().force(false);
+                    }
                 }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+            } finally {
+                if (!moved) Files.deleteIfExists(tmp);
+            }
 
-                boolean created = f.createNewFile();
-                if (!created && !f.exists()) {
-                    throw new IOException("Failed to create file: " + filePath);
+            switch (policy) {
+                case ALWAYS -> forceDirectory(dir);
+                case BATCH -> unsynced.add(path);
+                case NEVER -> {
+                    // left to the operating system
                 }
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Forces the files replaced under {@link SyncPolicy#BATCH} since the last
+     * call, and their directories, to disk. Does nothing under the other policies.
+     */
+    public static void sync() {
+        if (unsynced.isEmpty()) return;
+
+        Set<Path> dirs = new HashSet<>();
+        for (Path path : unsynced) {
+            unsynced.remove(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.force(false);
+                dirs.add(path.getParent());
+            } catch (NoSuchFileException e) {
+                // deleted meanwhile; nothing to force
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        for (Path dir : dirs) {
+            forceDirectory(dir);
+        }
+    }
 
-            Files.write(Paths.get(filePath), lines);
+    /**
+     * @return number of files waiting for {@link #sync()}
+     */
+    static int unsyncedCount() {
+        return unsynced.size();
+    }
 
+    /**
+     * Forces a directory entry to disk so a file moved into it survives a crash.
+     * Not every platform can open a directory; there the move has to do.
+     */
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            // directories cannot be opened or forced on this platform
         }
     }
 
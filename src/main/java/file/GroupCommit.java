@@ -0,0 +1,210 @@
+package file;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides when journal records are forced to disk.
+ * Journals report themselves as dirty after every append, and the caller
+ * that finishes an operation (for example a borrow) calls {@link #commit()}.
+ *
+ * Durability modes:
+ * - SYNC: every commit forces all dirty journals before returning
+ * - GROUP: commits are collected into batches. The first caller of a batch
+ *   waits up to the window (or until the batch is full), then forces every
+ *   dirty journal once and releases the whole batch. Commits arriving while
+ *   a force is running form the next batch, so batches grow with load.
+ * - ASYNC: commits return immediately; a background thread forces dirty
+ *   journals every window (or as soon as a batch fills up)
+ */
+public class GroupCommit {
+
+    /**
+     * How long an operation waits for its changes to reach the disk.
+     */
+    public enum Durability { SYNC, GROUP, ASYNC }
+
+    private final Durability durability;
+    private final int maxBatch;
+    private final long windowNanos;
+    private final ScheduledExecutorService flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final Set<Journal> dirty = new LinkedHashSet<>();
+    private long generation;
+    private boolean flushing;
+    private int pending;
+    private long batchStart;
+
+    /**
+     * Creates a commit stage.
+     *
+     * @param durability   the durability mode
+     * @param maxBatch     number of commits that closes a batch early (GROUP and ASYNC)
+     * @param windowMillis longest time a batch stays open; 0 closes it as soon as no force is running
+     */
+    public GroupCommit(Durability durability, int maxBatch, long windowMillis) {
+        if (durability == null) throw new IllegalArgumentException("durability is null");
+        if (maxBatch < 1) throw new IllegalArgumentException("maxBatch must be positive");
+        if (windowMillis < 0) throw new IllegalArgumentException("windowMillis must not be negative");
+
+        this.durability = durability;
+        this.maxBatch = maxBatch;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+
+        if (durability == Durability.ASYNC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "group-commit-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            long period = Math.max(1, windowMillis);
+            flusher.scheduleWithFixedDelay(this::flush, period, period, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * @return the configured durability mode
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Registers a journal that has records not yet forced to disk.
+     *
+     * @param journal the journal that was appended to
+     */
+    public void markDirty(Journal journal) {
+        lock.lock();
+        try {
+            dirty.add(journal);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the end of an operation. Depending on the durability mode this
+     * forces the operation's changes now, waits for its batch, or returns at once.
+     * After {@link #close()} an ASYNC commit forces its changes before returning.
+     */
+    public void commit() {
+        switch (durability) {
+            case SYNC -> flush();
+            case GROUP -> awaitBatch();
+            case ASYNC -> {
+                if (flusher.isShutdown()) {
+                    // closed: nothing runs in the background any more
+                    flush();
+                    return;
+                }
+                boolean full;
+                lock.lock();
+                try {
+                    full = ++pending >= maxBatch;
+                } finally {
+                    lock.unlock();
+                }
+                if (full) flushInBackground();
+            }
+        }
+    }
+
+    /**
+     * Forces every dirty journal to disk. If a force is already running,
+     * waits for it and then forces whatever was dirtied meanwhile.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            while (flushing) {
+                flushed.awaitUninterruptibly();
+            }
+            forceBatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes outstanding changes and stops the background flusher.
+     */
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+    }
+
+    private void flushInBackground() {
+        try {
+            flusher.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // closed after the isShutdown check in commit()
+            flush();
+        }
+    }
+
+    private void awaitBatch() {
+        lock.lock();
+        try {
+            // a force that is already running may have missed this caller's records
+            long target = generation + (flushing ? 2 : 1);
+            if (pending++ == 0) batchStart = System.nanoTime();
+
+            while (generation < target) {
+                long remaining = batchStart + windowNanos - System.nanoTime();
+
+                if (!flushing && (pending >= maxBatch || remaining <= 0)) {
+                    forceBatch();
+                } else if (flushing) {
+                    flushed.awaitUninterruptibly();
+                } else {
+                    try {
+                        flushed.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forces the current batch. Must be called holding the lock while no other
+     * force is running; the lock is released during the disk writes so new
+     * commits can queue up for the next batch.
+     */
+    private void forceBatch() {
+        List<Journal> batch = new ArrayList<>(dirty);
+        dirty.clear();
+        pending = 0;
+        flushing = true;
+
+        lock.unlock();
+        try {
+            for (Journal j : batch) {
+                j.force();
+            }
+        } finally {
+            lock.lock();
+            flushing = false;
+            generation++;
+            flushed.signalAll();
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Append-only change log that sits next to a CSV data file.
+ * Instead of rewriting the whole CSV after every change, services append one
+ * small record per changed entity. The CSV file acts as the snapshot; a full
+ * save (compaction) rewrites it and clears the journal.
+ *
+ * Record format, one per line:
+ * - {@code A,<csv line>} appends a new row
+ * - {@code P,<csv line>} replaces the last row with the same key, or appends it
+ * - {@code D,<key>} removes the last row with that key
+ *
+ * Appends are written to the operating system right away. When a
+ * {@link GroupCommit} is attached, it decides when they are forced to disk.
+ *
+ * The first line is a header holding the size and modification time of the
+ * CSV file the journal was started against. If the CSV was rewritten after that
+ * (for example a crash between compaction and clearing the journal), the
+ * journal is already folded in and is ignored on replay.
+ */
+public class Journal {
+
+    /**
+     * Suffix appended to the data file name to build the journal file name.
+     */
+    public static final String SUFFIX = ".journal";
+
+    /**
+     * Number of records after which a compaction is recommended.
+     */
+    public static final int DEFAULT_COMPACT_THRESHOLD = 1000;
+
+    /**
+     * Smallest data file that {@link #parse} splits into chunks parsed in parallel.
+     */
+    public static final long PARALLEL_MIN_BYTES = 8 << 20;
+
+    private static final String HEADER = "#base,";
+
+    private final Path dataPath;
+    private final Path path;
+    private final int compactThreshold;
+    private FileChannel channel;
+    private int records;
+    private volatile GroupCommit groupCommit;
+
+    /**
+     * Creates a journal for the given data file using the default compaction threshold.
+     *
+     * @param dataFile path of the CSV file this journal belongs to
+     */
+    public Journal(String dataFile) {
+        this(dataFile, DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    /**
+     * Creates a journal for the given data file.
+     *
+     * @param dataFile         path of the CSV file this journal belongs to
+     * @param compactThreshold number of records after which {@link #needsCompaction()} returns true
+     */
+    public Journal(String dataFile, int compactThreshold) {
+        this.dataPath = Paths.get(dataFile);
+        this.path = Paths.get(dataFile + SUFFIX);
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Attaches the commit stage that forces this journal to disk.
+     *
+     * @param groupCommit the commit stage, or null to leave forcing to the operating system
+     */
+    public void setGroupCommit(GroupCommit groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    /**
+     * Records a newly created row.
+     *
+     * @param line the CSV line of the new row
+     */
+    public void add(String line) {
+        append("A," + line);
+    }
+
+    /**
+     * Records the new state of an existing row.
+     *
+     * @param line the CSV line holding the row's current state
+     */
+    public void put(String line) {
+        append("P," + line);
+    }
+
+    /**
+     * Records the removal of a row.
+     *
+     * @param key the key of the removed row
+     */
+    public void delete(String key) {
+        append("D," + key);
+    }
+
+    /**
+     * Forces all appended records to disk. Appends may continue while the
+     * force is in progress; records written after it started might not be covered.
+     */
+    public void force() {
+        FileChannel c;
+        synchronized (this) {
+            c = channel;
+        }
+        if (c == null) return;
+
+        try {
+            c.force(false);
+        } catch (ClosedChannelException e) {
+            // the journal was compacted and reset meanwhile; nothing left to force
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return true when enough records were appended that the owner should compact
+     */
+    public synchronized boolean needsCompaction() {
+        return records >= compactThreshold;
+    }
+
+    /**
+     * @return number of records appended since the last reset (including replayed ones)
+     */
+    public synchronized int size() {
+        return records;
+    }
+
+    /**
+     * Clears the journal. Called after the CSV file has been fully rewritten.
+     * Files still waiting for a batched sync are forced first, so the journal
+     * is never gone while the rewritten CSV might not be on disk yet.
+     */
+    public synchronized void reset() {
+        try {
+            FileManager.sync();
+            closeChannel();
+            Files.deleteIfExists(path);
+            records = 0;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Closes the underlying file without removing it.
+     */
+    public synchronized void close() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Applies the journal on top of the rows read from the CSV file.
+     * If there is no journal, the given list is returned unchanged.
+     *
+     * @param baseLines rows read from the CSV file (may be null)
+     * @param keyOf     extracts the key of a CSV line, or returns null if the line has none
+     * @return the rows after replaying all journal records
+     */
+    public synchronized List<String> replay(List<String> baseLines, Function<String, String> keyOf) {
+        List<String> records = readRecords();
+        if (records.isEmpty()) return baseLines;
+
+        List<String> lines = baseLines == null ? new ArrayList<>() : baseLines;
+        Map<String, Integer> lastIndex = new HashMap<>();
+        for (int i = 0; i < lines.size(); i++) {
+            indexLine(lastIndex, keyOf, lines.get(i), i);
+        }
+
+        Replay r = new Replay(records, keyOf, lastIndex, lines.size());
+        this.records = records.size();
+
+        List<String> out = new ArrayList<>(lines.size() + r.appended.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String l = r.replaced.containsKey(i) ? r.replaced.get(i) : lines.get(i);
+            if (l != null) out.add(l);
+        }
+        for (String l : r.appended) {
+            if (l != null) out.add(l);
+        }
+        return out;
+    }
+
+    /**
+     * Streams the CSV file with the journal applied on top, without loading
+     * the file into memory. Rows come in the same order as from
+     * {@link #replay(List, Function)}: file rows (replaced ones in place), then
+     * rows added by the journal.
+     *
+     * Without a journal the file is read once. Otherwise it is read twice: the
+     * first pass finds the rows the journal touches, the second hands them out.
+     *
+     * @param keyOf  extracts the key of a CSV line, or returns null if the line has none
+     * @param action called once per resulting row; the record is reused afterwards
+     */
+    public synchronized void replay(Function<String, String> keyOf, Consumer<CsvRecord> action) {
+        String dataFile = dataPath.toString();
+
+        List<String> records = readRecords();
+        if (records.isEmpty()) {
+            FileManager.forEachRecord(dataFile, action);
+            return;
+        }
+
+        Set<String> touched = new HashSet<>();
+        for (String record : records) {
+            String payload = record.substring(2);
+            String key = record.charAt(0) == 'D' ? payload : keyOf.apply(payload);
+            if (key != null) touched.add(key);
+        }
+
+        Map<String, Integer> lastIndex = new HashMap<>();
+        int[] count = {0};
+        FileManager.forEachRecord(dataFile, row -> {
+            String key = keyOf.apply(row.line());
+            if (key != null && touched.contains(key)) lastIndex.put(key, count[0]);
+            count[0]++;
+        });
+
+        Replay r = new Replay(records, keyOf, lastIndex, count[0]);
+        this.records = records.size();
+
+        int[] index = {0};
+        FileManager.forEachRecord(dataFile, row -> {
+            int i = index[0]++;
+            if (!r.replaced.containsKey(i)) {
+                action.accept(row);
+                return;
+            }
+            String l = r.replaced.get(i);
+            if (l != null) action.accept(CsvRecord.of(l));
+        });
+
+        for (String l : r.appended) {
+            if (l != null) action.accept(CsvRecord.of(l));
+        }
+    }
+
+    /**
+     * Parses the CSV file with the journal applied on top into objects.
+     * When there is no journal and the file is at least {@link #PARALLEL_MIN_BYTES}
+     * long, chunks of the file are parsed in parallel via
+     * {@link FileManager#parseRecords}; otherwise rows are streamed through
+     * {@link #replay(Function, Consumer)}. Either way the result is in row order.
+     *
+     * @param keyOf  extracts the key of a CSV line, or returns null if the line has none
+     * @param parser turns a row into an object, or returns null to skip it;
+     *               may be called from several threads at once
+     * @param <T>    the parsed type
+     * @return the parsed objects
+     */
+    public synchronized <T> List<T> parse(Function<String, String> keyOf, Function<CsvRecord, T> parser) {
+        try {
+            if (!Files.exists(path) && Files.exists(dataPath) && Files.size(dataPath) >= PARALLEL_MIN_BYTES) {
+                return FileManager.parseRecords(dataPath.toString(), parser);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        List<T> out = new ArrayList<>();
+        replay(keyOf, row -> {
+            T t = parser.apply(row);
+            if (t != null) out.add(t);
+        });
+        return out;
+    }
+
+    /**
+     * Builds a key extractor that returns the columns {@code [from, to)} of a
+     * comma-separated line as one string, as they are written in the line
+     * (quoted columns keep their quotes; see {@link CsvRecord#quote(String)}).
+     *
+     * @param from first column (inclusive)
+     * @param to   last column (exclusive)
+     * @return key extractor returning null for lines with fewer columns
+     */
+    public static Function<String, String> columnKey(int from, int to) {
+        return line -> {
+            if (line == null) return null;
+
+            int start = 0;
+            for (int c = 0; c < from; c++) {
+                start = columnEnd(line, start) + 1;
+                if (start > line.length()) return null;
+            }
+
+            int end = start;
+            for (int c = from; c < to; c++) {
+                if (c > from) end++;
+                if (end > line.length()) return null;
+                end = columnEnd(line, end);
+            }
+            return line.substring(start, end);
+        };
+    }
+
+    /**
+     * @return index of the comma ending the column that starts at {@code start}, or the line length
+     */
+    private static int columnEnd(String line, int start) {
+        int i = start;
+        if (i < line.length() && line.charAt(i) == '"') {
+            // a doubled quote closes and reopens, so it needs no special case
+            boolean quoted = true;
+            for (i++; i < line.length(); i++) {
+                char ch = line.charAt(i);
+                if (ch == '"') quoted = !quoted;
+                else if (ch == ',' && !quoted) return i;
+            }
+            return i;
+        }
+        int comma = line.indexOf(',', i);
+        return comma < 0 ? line.length() : comma;
+    }
+
+    private static void indexLine(Map<String, Integer> lastIndex, Function<String, String> keyOf,
+                                  String line, int index) {
+        String key = keyOf.apply(line);
+        if (key != null) lastIndex.put(key, index);
+    }
+
+    /**
+     * Outcome of applying journal records to a file of {@code base} rows
+     * without holding the rows themselves: the rows the journal replaced
+     * (null for deleted ones) and the rows it appended.
+     */
+    private static final class Replay {
+
+        final Map<Integer, String> replaced = new HashMap<>();
+        final List<String> appended = new ArrayList<>();
+
+        /**
+         * @param lastIndex position of the last file row per key; updated while replaying
+         * @param base      number of rows in the file
+         */
+        Replay(List<String> records, Function<String, String> keyOf, Map<String, Integer> lastIndex, int base) {
+            for (String record : records) {
+                String payload = record.substring(2);
+
+                switch (record.charAt(0)) {
+                    case 'A' -> {
+                        appended.add(payload);
+                        indexLine(lastIndex, keyOf, payload, base + appended.size() - 1);
+                    }
+                    case 'P' -> {
+                        String key = keyOf.apply(payload);
+                        Integer i = key == null ? null : lastIndex.get(key);
+                        if (i != null) {
+                            set(i, base, payload);
+                        } else {
+                            appended.add(payload);
+                            indexLine(lastIndex, keyOf, payload, base + appended.size() - 1);
+                        }
+                    }
+                    case 'D' -> {
+                        Integer i = lastIndex.remove(payload);
+                        if (i != null) set(i, base, null);
+                    }
+                    default -> {
+                        // unknown record types are ignored
+                    }
+                }
+            }
+        }
+
+        private void set(int index, int base, String line) {
+            if (index < base) replaced.put(index, line);
+            else appended.set(index - base, line);
+        }
+    }
+
+    private void append(String record) {
+        synchronized (this) {
+            try {
+                if (channel == null) open();
+
+                channel.write(ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8)));
+                records++;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        GroupCommit gc = groupCommit;
+        if (gc != null) gc.markDirty(this);
+    }
+
+    /**
+     * Opens the journal for appending. A journal left behind for an older
+     * version of the CSV file (a crash between compaction and reset) is
+     * started over, and a last record torn by a crash is cut off, so new
+     * records are neither filed under a stale header nor glued onto a fragment.
+     */
+    private void open() throws IOException {
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        byte[] content = Files.exists(path) ? Files.readAllBytes(path) : new byte[0];
+        String header = HEADER + baseStamp() + "\n";
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (!startsWith(content, headerBytes)) {
+            channel.truncate(0);
+            channel.write(ByteBuffer.wrap(headerBytes), 0);
+            channel.position(headerBytes.length);
+            return;
+        }
+
+        int end = content.length;
+        while (content[end - 1] != '\n') end--;
+        channel.truncate(end);
+        channel.position(end);
+    }
+
+    private static boolean startsWith(byte[] content, byte[] prefix) {
+        if (content.length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (content[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Reads all complete records. A trailing record without a line break was
+     * torn by a crash and is dropped. Returns an empty list when the journal
+     * does not exist or belongs to an older version of the CSV file.
+     */
+    private List<String> readRecords() {
+        List<String> out = new ArrayList<>();
+        try {
+            if (!Files.exists(path)) return out;
+
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            int end = content.lastIndexOf('\n');
+            if (end < 0) return out;
+
+            String[] lines = content.substring(0, end).split("\n", -1);
+            if (!lines[0].equals(HEADER + baseStamp())) return out;
+
+            for (int i = 1; i < lines.length; i++) {
+                if (lines[i].length() >= 2) out.add(lines[i]);
+            }
+            return out;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String baseStamp() throws IOException {
+        if (!Files.exists(dataPath)) return "0,0";
+        BasicFileAttributes a = Files.readAttributes(dataPath, BasicFileAttributes.class);
+        return a.size() + "," + a.lastModifiedTime().toMillis();
+    }
+}
@@ -0,0 +1,336 @@
+package file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File-backed queue of notifications that still have to be delivered.
+ * A notification is recorded before it is handed to a channel and marked
+ * settled once it was delivered or given up, so notifications that were
+ * pending when the program stopped can be picked up again on the next start.
+ *
+ * Record format, one per line:
+ * - {@code P,<id>,<channel>,<user name>,<email>,<message>} a pending notification
+ * - {@code D,<id>} the notification was delivered
+ * - {@code X,<id>} the notification was given up after its last attempt
+ *
+ * User names, emails and messages are written with {@link CsvRecord#quote(String)},
+ * so they may contain commas and quotes.
+ *
+ * Records are collected in memory and written by {@link #flush()}. A flush
+ * that writes pending records also forces the file to disk, so a batch of
+ * notifications costs one write and one force. Settled markers are only
+ * forced along with the next batch; if they are lost in a crash, the
+ * notification is delivered again (at least once). When most of the file is
+ * settled, a flush rewrites it with only the pending notifications.
+ *
+ * Thread-safe.
+ */
+public class Outbox {
+
+    /**
+     * Settled markers after which a flush writes them even without new pending records.
+     */
+    static final int SETTLED_FLUSH_EVERY = 64;
+
+    /**
+     * Settled records in the file after which it is rewritten, if they outnumber the pending ones.
+     */
+    static final int COMPACT_THRESHOLD = 1000;
+
+    /**
+     * A notification waiting for delivery.
+     */
+    public static final class Entry {
+
+        private final long id;
+        private final String channel;
+        private final String userName;
+        private final String email;
+        private final String message;
+
+        Entry(long id, String channel, String userName, String email, String message) {
+            this.id = id;
+            this.channel = channel;
+            this.userName = userName;
+            this.email = email;
+            this.message = message;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getChannel() {
+            return channel;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public String getEmail() {
+            return email;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        String toLine() {
+            return "P," + id + "," + channel + "," + CsvRecord.quote(userName) + ","
+                    + CsvRecord.quote(email) + "," + CsvRecord.quote(message);
+        }
+    }
+
+    private final Path path;
+    private final Map<Long, Entry> pending = new LinkedHashMap<>();
+    private final StringBuilder buffer = new StringBuilder();
+    private List<Entry> recovered = new ArrayList<>();
+    private FileChannel channel;
+    private boolean loaded;
+    private boolean bufferHasPending;
+    private int bufferedSettled;
+    private int settledInFile;
+    private long nextId = 1;
+
+    /**
+     * @param file path of the outbox file; created on the first flush
+     */
+    public Outbox(String file) {
+        this.path = Paths.get(file);
+    }
+
+    /**
+     * Returns the notifications that were pending in the file when it was
+     * first read, and forgets them; later calls return an empty list.
+     *
+     * @return notifications left over from an earlier run, oldest first
+     */
+    public synchronized List<Entry> recover() {
+        load();
+        List<Entry> out = recovered;
+        recovered = new ArrayList<>();
+        return out;
+    }
+
+    /**
+     * Records a new pending notification. It is written with the next {@link #flush()}.
+     *
+     * @param channel  name of the channel that delivers it
+     * @param userName the recipient's user name
+     * @param email    the recipient's email, may be null
+     * @param message  the text; must not contain line breaks
+     * @return the recorded entry
+     */
+    public synchronized Entry add(String channel, String userName, String email, String message) {
+        load();
+        Entry entry = new Entry(nextId++, channel, userName, email, message);
+        pending.put(entry.id, entry);
+        buffer.append(entry.toLine()).append('\n');
+        bufferHasPending = true;
+        return entry;
+    }
+
+    /**
+     * Marks a notification as delivered.
+     *
+     * @param id the entry id
+     */
+    public synchronized void delivered(long id) {
+        settle("D,", id);
+    }
+
+    /**
+     * Marks a notification as given up; it will not be recovered.
+     *
+     * @param id the entry id
+     */
+    public synchronized void abandoned(long id) {
+        settle("X,", id);
+    }
+
+    /**
+     * @return number of notifications recorded but not settled
+     */
+    public synchronized int pendingCount() {
+        load();
+        return pending.size();
+    }
+
+    /**
+     * Writes the collected records. Forces the file to disk if new pending
+     * notifications were written, and compacts it when most of it is settled.
+     */
+    public synchronized void flush() {
+        if (buffer.length() == 0) return;
+
+        try {
+            if (settledInFile + bufferedSettled >= COMPACT_THRESHOLD
+                    && settledInFile + bufferedSettled > pending.size()) {
+                rewrite();
+            } else {
+                write();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Flushes and closes the file.
+     */
+    public synchronized void close() {
+        flush();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void settle(String prefix, long id) {
+        load();
+        if (pending.remove(id) == null) return;
+
+        buffer.append(prefix).append(id).append('\n');
+        if (++bufferedSettled >= SETTLED_FLUSH_EVERY) {
+            flush();
+        }
+    }
+
+    private void write() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toString().getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (bufferHasPending) {
+            channel.force(false);
+        }
+
+        settledInFile += bufferedSettled;
+        clearBuffer();
+    }
+
+    /**
+     * Replaces the file with one holding only the pending notifications.
+     */
+    private void rewrite() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : pending.values()) {
+            sb.append(entry.toLine()).append('\n');
+        }
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        settledInFile = 0;
+        clearBuffer();
+    }
+
+    private void clearBuffer() {
+        buffer.setLength(0);
+        bufferHasPending = false;
+        bufferedSettled = 0;
+    }
+
+    /**
+     * Reads the file once to find the pending notifications and the next free id.
+     * A last line without a line break was cut off by a crash; it is ignored and
+     * cut from the file, so the next record does not get appended to it.
+     */
+    private void load() {
+        if (loaded) return;
+        loaded = true;
+        if (!Files.exists(path)) return;
+
+        try {
+            byte[] content = Files.readAllBytes(path);
+            int end = content.length;
+            while (end > 0 && content[end - 1] != '\n') end--;
+
+            if (end < content.length) {
+                try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    out.truncate(end);
+                    out.force(false);
+                }
+            }
+
+            int start = 0;
+            for (int i = 0; i < end; i++) {
+                if (content[i] == '\n') {
+                    readRecord(new String(content, start, i - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        recovered = new ArrayList<>(pending.values());
+    }
+
+    private void readRecord(String line) {
+        CsvRecord r = CsvRecord.of(line);
+        if (r.size() < 2) return;
+
+        long id;
+        try {
+            id = Long.parseLong(r.get(1));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        nextId = Math.max(nextId, id + 1);
+
+        switch (r.get(0)) {
+            case "P" -> {
+                // only complete lines get here; an empty message is dropped as a
+                // trailing field, but the line still ends with its comma
+                if (r.size() == 6 || (r.size() == 5 && line.endsWith(","))) {
+                    String email = "null".equals(r.get(4)) ? null : r.get(4);
+                    String message = r.size() == 6 ? r.get(5) : "";
+                    pending.put(id, new Entry(id, r.get(2), r.get(3), email, message));
+                }
+            }
+            case "D", "X" -> {
+                pending.remove(id);
+                settledInFile++;
+            }
+            default -> {
+                // unknown or damaged line, e.g. cut off by a crash
+            }
+        }
+    }
+}
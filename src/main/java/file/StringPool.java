@@ -0,0 +1,156 @@
+package file;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded table of shared strings for values that repeat across many rows,
+ * such as authors, artists and user names. Loading a million books by fifty
+ * thousand authors then keeps fifty thousand author strings instead of a
+ * million copies.
+ *
+ * The table has a fixed number of slots. A value is looked up in a few slots
+ * next to its hash; if all of them hold other values, the first one is
+ * replaced. Values that are evicted, or lost to a concurrent insert, simply
+ * stay unshared, so the pool never grows and never blocks.
+ *
+ * {@link #intern(byte[], int, int)} looks up ASCII bytes without decoding
+ * them, so a value that is already pooled costs no allocation.
+ *
+ * Thread-safe.
+ */
+public final class StringPool {
+
+    /**
+     * Pool used by the loaders.
+     */
+    public static final StringPool SHARED = new StringPool(1 << 17);
+
+    /**
+     * Longer values are returned as they are; they rarely repeat.
+     */
+    static final int MAX_LENGTH = 64;
+
+    private static final int PROBES = 4;
+
+    private static final class Entry {
+
+        private final String value;
+        private final int hash;
+
+        private Entry(String value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public StringPool(int capacity) {
+        int size = Integer.highestOneBit(Math.max(PROBES, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the pooled string equal to {@code s}, pooling {@code s} if there is none.
+     *
+     * @param s the value, may be null
+     * @return an equal string, shared where possible; null for null
+     */
+    public String intern(String s) {
+        if (s == null || s.length() > MAX_LENGTH) return s;
+
+        int hash = s.hashCode();
+        int first = spread(hash);
+        for (int i = 0; i < PROBES; i++) {
+            Entry e = slots.get((first + i) & mask);
+            if (e == null) {
+                return insert(first, i, s, hash);
+            }
+            if (e.hash == hash && e.value.equals(s)) {
+                return e.value;
+            }
+        }
+        slots.set(first, new Entry(s, hash));
+        return s;
+    }
+
+    /**
+     * Returns the pooled string for the UTF-8 bytes {@code [from, from + length)}.
+     * A string is only created when the value is not pooled yet.
+     *
+     * @param bytes  the buffer
+     * @param from   first byte
+     * @param length number of bytes
+     * @return the decoded value, shared where possible
+     */
+    public String intern(byte[] bytes, int from, int length) {
+        if (length > MAX_LENGTH) {
+            return new String(bytes, from, length, StandardCharsets.UTF_8);
+        }
+
+        int hash = 0;
+        for (int i = from; i < from + length; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                // not ASCII: the byte hash would not match String.hashCode
+                return intern(new String(bytes, from, length, StandardCharsets.UTF_8));
+            }
+            hash = 31 * hash + b;
+        }
+
+        int first = spread(hash);
+        for (int i = 0; i < PROBES; i++) {
+            Entry e = slots.get((first + i) & mask);
+            if (e == null) {
+                return insert(first, i, new String(bytes, from, length, StandardCharsets.ISO_8859_1), hash);
+            }
+            if (e.hash == hash && asciiEquals(e.value, bytes, from, length)) {
+                return e.value;
+            }
+        }
+        String s = new String(bytes, from, length, StandardCharsets.ISO_8859_1);
+        slots.set(first, new Entry(s, hash));
+        return s;
+    }
+
+    /**
+     * @return number of pooled values
+     */
+    int size() {
+        int n = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Puts the value into the empty slot found at probe {@code i}. If another
+     * thread filled that slot meanwhile, its value is used when equal.
+     */
+    private String insert(int first, int i, String s, int hash) {
+        int slot = (first + i) & mask;
+        if (slots.compareAndSet(slot, null, new Entry(s, hash))) return s;
+
+        Entry e = slots.get(slot);
+        return e != null && e.hash == hash && e.value.equals(s) ? e.value : s;
+    }
+
+    private int spread(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static boolean asciiEquals(String s, byte[] bytes, int from, int length) {
+        if (s.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != bytes[from + i]) return false;
+        }
+        return true;
+    }
+}
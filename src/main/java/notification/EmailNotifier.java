@@ -3,6 +3,7 @@ package notification;
 import domain.User;
 
 import jakarta.mail.*;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 
@@ -15,11 +16,27 @@ import io.github.cdimascio.dotenv.Dotenv;
  * Requires .env file with:
  *   EMAIL_USERNAME=your_email@gmail.com
  *   EMAIL_PASSWORD=your_app_password
+ *
+ * The mail session is created once, on the first email, and messages go out
+ * over a small pool of open SMTP connections ({@link SmtpTransportPool})
+ * instead of one TLS connection per email. The pool size and the number of
+ * messages per connection can be set with {@code -Dlibrary.mail.connections}
+ * and {@code -Dlibrary.mail.messagesPerConnection}.
+ *
+ * Users without an email address are skipped. An email that could not be
+ * sent for a reason that may pass, such as an unreachable server, throws
+ * {@link NotificationException}, so the caller can retry it. A malformed or
+ * refused address throws {@link IllegalArgumentException} and a closed pool
+ * {@link IllegalStateException}; trying again would not help.
  */
-public class EmailNotifier implements Observer {
+public class EmailNotifier implements Observer, AutoCloseable {
+
+    private static final int CONNECTIONS = Integer.getInteger("library.mail.connections", 4);
+    private static final int MESSAGES_PER_CONNECTION = Integer.getInteger("library.mail.messagesPerConnection", 100);
 
     private final String senderEmail;
     private final String appPassword;
+    private SmtpTransportPool pool;
 
     public EmailNotifier() {
         Dotenv dotenv = Dotenv.load();
@@ -49,6 +66,46 @@ public class EmailNotifier implements Observer {
         }
 
         try {
+            SmtpTransportPool pool = pool();
+
+            Message msg = new MimeMessage(pool.session());
+            msg.setFrom(new InternetAddress(senderEmail));
+            msg.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
+            msg.setSubject("Library Overdue Notice");
+            msg.setText(message);
+
+            pool.send(msg);
+
+            System.out.println("Email SENT to: " + to);
+
+        } catch (AddressException | SendFailedException e) {
+            System.out.println("EmailNotifier: address rejected: " + to);
+            throw new IllegalArgumentException("email address rejected: " + to, e);
+        } catch (MessagingException e) {
+            System.out.println("EmailNotifier: failed to send email to " + to);
+            throw new NotificationException("failed to send email to " + to, e);
+        }
+    }
+
+    /**
+     * @return number of SMTP connections kept open, i.e. how many emails can be sent in parallel
+     */
+    public int getConnections() {
+        return CONNECTIONS;
+    }
+
+    /**
+     * Closes the open SMTP connections. Emails sent afterwards fail.
+     */
+    @Override
+    public synchronized void close() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    private synchronized SmtpTransportPool pool() {
+        if (pool == null) {
             Properties props = new Properties();
             props.put("mail.smtp.auth", "true");
             props.put("mail.smtp.starttls.enable", "true");
@@ -62,20 +119,8 @@ public class EmailNotifier implements Observer {
                     return new PasswordAuthentication(senderEmail, appPassword);
                 }
             });
-
-            Message msg = new MimeMessage(session);
-            msg.setFrom(new InternetAddress(senderEmail));
-            msg.setRecipient(Message.RecipientType.TO, new InternetAddress(to));
-            msg.setSubject("Library Overdue Notice");
-            msg.setText(message);
-
-            Transport.send(msg);
-
-            System.out.println("Email SENT to: " + to);
-
-        } catch (Exception e) {
-            System.out.println("EmailNotifier: failed to send email to " + to);
-            e.printStackTrace();
+            pool = new SmtpTransportPool(session, CONNECTIONS, MESSAGES_PER_CONNECTION);
         }
+        return pool;
     }
 }
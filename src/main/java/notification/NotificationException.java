@@ -0,0 +1,15 @@
+package notification;
+
+/**
+ * Thrown by an {@link Observer} when a notification could not be delivered
+ * and may succeed if it is tried again later, e.g. because the mail server
+ * was unreachable.
+ */
+public class NotificationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public NotificationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -13,6 +13,7 @@ public interface Observer {
      *
      * @param user    the target user
      * @param message the notification message
+     * @throws NotificationException if the message could not be delivered right now
      */
     void notify(User user, String message);
 }
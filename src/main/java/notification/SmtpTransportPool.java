@@ -0,0 +1,167 @@
+package notification;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small pool of connected SMTP transports sharing one mail session.
+ *
+ * {@link Transport#send(Message)} opens (and for Gmail, TLS-handshakes and
+ * authenticates) a new connection for every message. The pool keeps up to
+ * {@code size} connections open and sends many messages over each of them.
+ *
+ * - a connection is replaced after {@code maxMessagesPerConnection} messages,
+ *   since servers limit how much they accept per session
+ * - a connection idle for longer than {@link #IDLE_CHECK_MILLIS} is checked
+ *   with a NOOP before it is used again
+ * - if sending fails because the connection broke, the message is retried
+ *   once on a fresh connection; rejected recipients are not retried
+ *
+ * Thread-safe; at most {@code size} messages are sent at the same time.
+ */
+final class SmtpTransportPool implements AutoCloseable {
+
+    static final long IDLE_CHECK_MILLIS = 30_000;
+
+    private final Session session;
+    private final int maxMessagesPerConnection;
+    private final Semaphore permits;
+    private final BlockingQueue<Connection> idle;
+    private volatile boolean closed;
+
+    /**
+     * @param session                  the mail session used for every connection
+     * @param size                     maximum number of open connections
+     * @param maxMessagesPerConnection messages sent before a connection is replaced
+     */
+    SmtpTransportPool(Session session, int size, int maxMessagesPerConnection) {
+        if (size < 1 || maxMessagesPerConnection < 1) {
+            throw new IllegalArgumentException("size and maxMessagesPerConnection must be positive");
+        }
+        this.session = session;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.permits = new Semaphore(size, true);
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * @return the session messages for this pool should be created with
+     */
+    Session session() {
+        return session;
+    }
+
+    /**
+     * Sends the message to all of its recipients over a pooled connection.
+     * Waits while all connections are busy.
+     *
+     * @param message the message to send
+     * @throws MessagingException if the message could not be sent, even after reconnecting
+     * @throws IllegalStateException if the pool is closed
+     */
+    void send(Message message) throws MessagingException {
+        if (closed) throw new IllegalStateException("SMTP pool is closed");
+
+        message.saveChanges();
+        Address[] recipients = message.getAllRecipients();
+
+        permits.acquireUninterruptibly();
+        Connection connection = idle.poll();
+        if (connection == null) connection = new Connection(session.getTransport("smtp"));
+
+        boolean reusable = false;
+        try {
+            try {
+                connection.send(message, recipients);
+            } catch (MessagingException e) {
+                if (e instanceof SendFailedException && connection.transport.isConnected()) {
+                    // the server refused a sender or recipient, not the connection
+                    reusable = true;
+                    throw e;
+                }
+                connection.close();
+                connection = new Connection(session.getTransport("smtp"));
+                connection.send(message, recipients);
+            }
+            reusable = true;
+        } finally {
+            if (!reusable || closed || !idle.offer(connection)) {
+                connection.close();
+            }
+            permits.release();
+        }
+    }
+
+    /**
+     * @return number of connections currently open and waiting for work
+     */
+    int idleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * Closes all idle connections. Messages being sent right now finish and
+     * their connections are closed afterwards; later sends fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * A transport together with its usage counters. Only used by one thread at a time.
+     */
+    private final class Connection {
+
+        private final Transport transport;
+        private boolean connected;
+        private int sent;
+        private long lastUsed;
+
+        Connection(Transport transport) {
+            this.transport = transport;
+        }
+
+        void send(Message message, Address[] recipients) throws MessagingException {
+            long now = System.nanoTime();
+            if (connected && (sent >= maxMessagesPerConnection || (idleSince(now) && !transport.isConnected()))) {
+                close();
+            }
+
+            if (!connected) {
+                transport.connect();
+                connected = true;
+            }
+            lastUsed = now;
+            transport.sendMessage(message, recipients);
+            sent++;
+        }
+
+        private boolean idleSince(long now) {
+            return now - lastUsed > TimeUnit.MILLISECONDS.toNanos(IDLE_CHECK_MILLIS);
+        }
+
+        void close() {
+            connected = false;
+            sent = 0;
+            try {
+                transport.close();
+            } catch (MessagingException ignored) {
+                // the connection is dropped either way
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package presentation;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import domain.Book;
+import domain.CD;
+import domain.CDLoan;
+import domain.EpochDays;
+import domain.Loan;
+import domain.User;
+import service.CDService;
+import service.LibraryService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded HTTP/JSON front end for {@link LibraryService}, built on the JDK's
+ * {@code com.sun.net.httpserver}. Every request runs on its own virtual thread
+ * when the JVM supports them (Java 21+), otherwise on a cached thread pool.
+ *
+ * Endpoints (parameters in the query string or a form-encoded POST body):
+ * - GET  /search?q=...[&type=cd]       matching books (or CDs)
+ * - POST /borrow?user=...&isbn=...     borrow a book ({@code cd=...} for a CD)
+ * - POST /return?user=...&isbn=...     return a book ({@code cd=...} for a CD)
+ * - GET  /overdue                      overdue book and CD loans
+ * - POST /reminders                    send overdue reminders
+ *
+ * Borrow and return answer 200 on success, 404 for an unknown user or item
+ * and 409 when the operation was refused (item taken, fines, no such loan).
+ */
+public class LibraryHttpServer {
+
+    private final LibraryService library;
+    private final CDService cdService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server bound to the given port. It does not accept requests
+     * until {@link #start()} is called.
+     *
+     * @param library   the facade serving borrow, return and overdue queries
+     * @param cdService used to look up and search CDs
+     * @param port      the TCP port, or 0 for any free port
+     * @param backlog   the maximum number of queued incoming connections
+     * @throws IOException if the port cannot be bound
+     */
+    public LibraryHttpServer(LibraryService library, CDService cdService, int port, int backlog) throws IOException {
+        this.library = library;
+        this.cdService = cdService;
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.executor = newRequestExecutor();
+
+        server.setExecutor(executor);
+        server.createContext("/search", exchange -> handle(exchange, "GET", this::search));
+        server.createContext("/borrow", exchange -> handle(exchange, "POST", p -> borrowOrReturn(p, true)));
+        server.createContext("/return", exchange -> handle(exchange, "POST", p -> borrowOrReturn(p, false)));
+        server.createContext("/overdue", exchange -> handle(exchange, "GET", p -> overdue()));
+        server.createContext("/reminders", exchange -> handle(exchange, "POST", p -> reminders()));
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, giving running requests up to the given delay to finish.
+     *
+     * @param delaySeconds how long to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the port the server is bound to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor when running on Java 21 or
+     * later, and a cached thread pool otherwise. Looked up reflectively so the
+     * project still compiles for Java 17.
+     *
+     * @return the executor used to run requests
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private Response search(Map<String, String> params) {
+        String q = params.getOrDefault("q", "");
+
+        if ("cd".equalsIgnoreCase(params.get("type"))) {
+            List<CD> cds = cdService.search(q);
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < cds.size(); i++) {
+                if (i > 0) sb.append(',');
+                appendCd(sb, cds.get(i));
+            }
+            return Response.ok(sb.append(']').toString());
+        }
+
+        List<Book> books = library.searchBooks(q);
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < books.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendBook(sb, books.get(i));
+        }
+        return Response.ok(sb.append(']').toString());
+    }
+
+    private Response borrowOrReturn(Map<String, String> params, boolean borrow) {
+        String userName = params.get("user");
+        String isbn = params.get("isbn");
+        String cdId = params.get("cd");
+
+        if (userName == null || (isbn == null) == (cdId == null)) {
+            return Response.error(400, "expected user and exactly one of isbn or cd");
+        }
+
+        User user = library.findUserByName(userName);
+        if (user == null) return Response.error(404, "unknown user");
+
+        boolean ok;
+        if (isbn != null) {
+            Book book = library.findBookByISBN(isbn);
+            if (book == null) return Response.error(404, "unknown book");
+            ok = borrow ? library.borrowBook(user, book) : library.returnBook(user, book);
+        } else {
+            CD cd = cdService.findCDById(cdId);
+            if (cd == null) return Response.error(404, "unknown cd");
+            ok = borrow ? library.borrowCD(user, cd) : library.returnCD(user, cd);
+        }
+
+        return ok ? Response.ok("{\"ok\":true}") : Response.error(409, borrow ? "borrow refused" : "no active loan");
+    }
+
+    private Response overdue() {
+        List<Loan> loans = library.getOverdueLoans();
+        List<CDLoan> cdLoans = library.getOverdueCDLoans();
+        int today = EpochDays.of(library.today());
+
+        StringBuilder sb = new StringBuilder("{\"books\":[");
+        for (int i = 0; i < loans.size(); i++) {
+            Loan l = loans.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"user\":").append(quote(l.getUser().getUserName()))
+                    .append(",\"isbn\":").append(quote(l.getBook().getIsbn()))
+                    .append(",\"dueDate\":").append(quote(String.valueOf(l.getDueDate())))
+                    .append(",\"overdueDays\":").append(l.getOverdueDays(today))
+                    .append('}');
+        }
+        sb.append("],\"cds\":[");
+        for (int i = 0; i < cdLoans.size(); i++) {
+            CDLoan l = cdLoans.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"user\":").append(quote(l.getUser().getUserName()))
+                    .append(",\"cd\":").append(quote(l.getCD().getId()))
+                    .append(",\"dueDate\":").append(quote(String.valueOf(l.getDueDate())))
+                    .append(",\"overdueDays\":").append(l.getOverdueDays(today))
+                    .append('}');
+        }
+        return Response.ok(sb.append("]}").toString());
+    }
+
+    private Response reminders() {
+        library.sendOverdueReminders();
+        return Response.ok("{\"ok\":true,\"queued\":true}");
+    }
+
+    private static void appendBook(StringBuilder sb, Book b) {
+        sb.append("{\"title\":").append(quote(b.getTitle()))
+                .append(",\"author\":").append(quote(b.getAuthor()))
+                .append(",\"isbn\":").append(quote(b.getIsbn()))
+                .append(",\"available\":").append(b.isAvailable())
+                .append('}');
+    }
+
+    private static void appendCd(StringBuilder sb, CD c) {
+        sb.append("{\"title\":").append(quote(c.getTitle()))
+                .append(",\"artist\":").append(quote(c.getArtist()))
+                .append(",\"id\":").append(quote(c.getId()))
+                .append(",\"available\":").append(c.isAvailable())
+                .append('}');
+    }
+
+    /**
+     * Runs a handler and writes its response. Unexpected errors become a 500
+     * so a failing request never leaves the client waiting.
+     */
+    private static void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try (exchange) {
+            Response r;
+            if (!method.equals(exchange.getRequestMethod())) {
+                r = Response.error(405, "use " + method);
+            } else {
+                try {
+                    r = handler.apply(readParams(exchange));
+                } catch (RuntimeException e) {
+                    r = Response.error(500, String.valueOf(e.getMessage()));
+                }
+            }
+
+            byte[] body = r.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(r.status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Collects parameters from the query string and, for POST requests,
+     * from a form-encoded body. Body values win over query values.
+     */
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+
+        if ("POST".equals(exchange.getRequestMethod())) {
+            try (InputStream in = exchange.getRequestBody()) {
+                parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> into) {
+        if (form == null || form.isEmpty()) return;
+
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            into.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     */
+    static String quote(String s) {
+        if (s == null) return "null";
+
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Response apply(Map<String, String> params) throws IOException;
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\":" + quote(message) + "}");
+        }
+    }
+}
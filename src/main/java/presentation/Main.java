@@ -2,13 +2,23 @@ package presentation;
 
 import domain.Book;
 import domain.CD;
+import domain.EpochDays;
 import domain.Loan;
 import domain.User;
 import service.*;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.Scanner;
 
+import file.DataDirectory;
+import file.FileManager;
+import file.GroupCommit;
+import file.Outbox;
 import notification.EmailNotifier;
 
 public class Main {
@@ -32,39 +42,151 @@ public class Main {
         ReminderService reminderService = new ReminderService();
         AdminService adminService = new AdminService();
 
-        reminderService.addObserver(new EmailNotifier());
+        EmailNotifier emailNotifier = new EmailNotifier();
+        reminderService.addObserver(emailNotifier, emailNotifier.getConnections());
+        reminderService.setRetryPolicy(
+                Integer.getInteger("library.reminders.maxAttempts", 5),
+                Long.getLong("library.reminders.backoffMillis", 1000L)
+        );
+        reminderService.setOutbox(new Outbox(DataDirectory.file("outbox.txt")));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            reminderService.close();
+            emailNotifier.close();
+        }));
+
+        FileManager.setSyncPolicy(
+                FileManager.SyncPolicy.valueOf(System.getProperty("library.fsync", "ALWAYS").toUpperCase()));
+
+        Clock clock = businessClock();
+        userService.setClock(clock);
+        loanService.setClock(clock);
+        cdLoanService.setClock(clock);
+
+        GroupCommit groupCommit = null;
+        if (Boolean.getBoolean("library.journal")) {
+            groupCommit = new GroupCommit(
+                    GroupCommit.Durability.valueOf(System.getProperty("library.durability", "GROUP").toUpperCase()),
+                    Integer.getInteger("library.groupCommit.maxBatch", 64),
+                    Long.getLong("library.groupCommit.windowMillis", 0L)
+            );
+
+            userService.setJournaling(true);
+            bookService.setJournaling(true);
+            cdService.setJournaling(true);
+            loanService.setJournaling(true);
+            cdLoanService.setJournaling(true);
+
+            userService.setGroupCommit(groupCommit);
+            bookService.setGroupCommit(groupCommit);
+            cdService.setGroupCommit(groupCommit);
+            loanService.setGroupCommit(groupCommit);
+            cdLoanService.setGroupCommit(groupCommit);
+        }
 
-        userService.loadUsersFromFile();
-        bookService.loadBooksFromFile();
-        cdService.loadCDsFromFile();
-        loanService.loadLoansFromFile();
-        cdLoanService.loadCDLoansFromFile(cdService.getAllCDs());
-        adminService.loadAdminsFromFile();
+        LibrarySnapshot snapshot = null;
+        if (Boolean.getBoolean("library.snapshot")) {
+            snapshot = new LibrarySnapshot(userService, bookService, cdService, loanService, cdLoanService, adminService);
+        }
+
+        if (!loadSnapshot(snapshot)) {
+            new StartupLoader(userService, bookService, cdService, loanService, cdLoanService, adminService).load();
+        }
 
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> saveAll(userService, bookService, cdService, loanService, cdLoanService, adminService)));
+        LibrarySnapshot shutdownSnapshot = snapshot;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> saveAll(userService, bookService, cdService, loanService, cdLoanService, adminService, shutdownSnapshot)));
 
         System.out.println("\nLoaded all data from files successfully.\n");
 
         LibraryService library = new LibraryService(
                 userService, bookService, loanService, cdLoanService, reminderService
         );
+        library.setGroupCommit(groupCommit);
+        library.setClock(clock);
+        library.setCDService(cdService);
+
+        reminderService.resumeOutbox().thenAccept(report -> {
+            if (report.getUsers() > 0) System.out.println("\nResumed reminders finished: " + report);
+        });
+
+        Integer httpPort = Integer.getInteger("library.http.port");
+        if (httpPort != null) {
+            startHttpServer(library, cdService, httpPort);
+            return;
+        }
 
         mainMenu(adminService, library, bookService, cdService, userService, loanService, cdLoanService);
     }
 
+    /**
+     * Returns the clock that provides the business date. The date can be pinned
+     * with {@code -Dlibrary.today=2025-03-01}, e.g. to replay a data set or run
+     * reports as of a given day; otherwise the system clock is used.
+     */
+    private static Clock businessClock() {
+        String today = System.getProperty("library.today");
+        if (today == null) {
+            return Clock.systemDefaultZone();
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        return Clock.fixed(LocalDate.parse(today).atStartOfDay(zone).toInstant(), zone);
+    }
+
+    private static void startHttpServer(LibraryService library, CDService cdService, int port) {
+        try {
+            LibraryHttpServer server = new LibraryHttpServer(
+                    library, cdService, port, Integer.getInteger("library.http.backlog", 1024));
+            server.start();
+            System.out.println("HTTP server listening on port " + server.getPort());
+        } catch (IOException e) {
+            System.out.println("Could not start HTTP server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the binary snapshot if snapshots are enabled and it is at least as
+     * recent as the CSV files.
+     *
+     * @return true if the state was loaded from the snapshot
+     */
+    private static boolean loadSnapshot(LibrarySnapshot snapshot) {
+        if (snapshot == null || !LibrarySnapshot.isUpToDate(LibrarySnapshot.defaultFile())) return false;
+
+        try {
+            snapshot.read(LibrarySnapshot.defaultFile());
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Could not read snapshot, loading CSV files: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the data files that changed since they were last written, and
+     * forces those still waiting for a batched sync. Then writes the snapshot
+     * if it no longer matches the state or the files. Runs on "Exit" and
+     * again from the shutdown hook; the second run finds nothing to write.
+     */
     private static void saveAll(UserService userService,
                                 BookService bookService,
                                 CDService cdService,
                                 LoanService loanService,
                                 CDLoanService cdLoanService,
-                                AdminService adminService) {
-
-        userService.saveUsers();
-        bookService.saveBooksToFile();
-        cdService.saveCDsToFile();
-        loanService.saveAllLoansToFile();
-        cdLoanService.saveAllLoansToFile();
-        adminService.saveAdminsToFile();
+                                AdminService adminService,
+                                LibrarySnapshot snapshot) {
+
+        userService.saveUsersIfDirty();
+        bookService.saveBooksIfDirty();
+        cdService.saveCDsIfDirty();
+        loanService.saveLoansIfDirty();
+        cdLoanService.saveLoansIfDirty();
+        adminService.saveAdminsIfDirty();
+        FileManager.sync();
+
+        // a CSV file written after the snapshot would make startup ignore it
+        Path file = LibrarySnapshot.defaultFile();
+        if (snapshot != null && (!snapshot.isCurrent() || !LibrarySnapshot.isUpToDate(file))) {
+            snapshot.write(file);
+        }
     }
 
     private static void mainMenu(AdminService adminService,
@@ -86,7 +208,7 @@ public class Main {
             switch (choice) {
                 case 1 -> loginRoleMenu(adminService, library, bookService, cdService, userService);
                 case 2 -> {
-                    saveAll(userService, bookService, cdService, loanService, cdLoanService, adminService);
+                    saveAll(userService, bookService, cdService, loanService, cdLoanService, adminService, null);
                     System.out.println("Goodbye!");
                     return;
                 }
@@ -153,8 +275,9 @@ public class Main {
                 case 2 -> adminAddCD(cdService);
                 case 3 -> adminUnregisterUser(userService);
                 case 4 -> {
-                    library.sendOverdueReminders();
-                    System.out.println("Reminders sent.");
+                    library.sendOverdueReminders()
+                            .thenAccept(report -> System.out.println("\nReminders finished: " + report));
+                    System.out.println("Reminders queued.");
                 }
                 case 5 -> {
                     adminService.logout();
@@ -232,12 +355,13 @@ public class Main {
                     if (overdue.isEmpty()) {
                         System.out.println("No overdue books.");
                     } else {
+                        int today = EpochDays.of(library.today());
                         for (Loan l : overdue) {
                             System.out.println(
                                     "User: " + l.getUser().getUserName()
                                             + " | Book: " + l.getBook().getTitle()
                                             + " | Due: " + l.getDueDate()
-                                            + " | Overdue days: " + l.getOverdueDays()
+                                            + " | Overdue days: " + l.getOverdueDays(today)
                             );
                         }
                     }
@@ -347,7 +471,7 @@ public class Main {
     private static void userPayFine(User user, UserService userService) {
         System.out.print("Amount: ");
         user.payFine(Double.parseDouble(input.nextLine()));
-        userService.saveUsers();
+        userService.saveUser(user);
     }
 
     private static int getInt() {
@@ -1,6 +1,8 @@
 package service;
 
 import domain.Admin;
+import file.CsvRecord;
+import file.DataDirectory;
 import file.FileManager;
 
 import java.util.ArrayList;
@@ -17,8 +19,9 @@ public class AdminService {
 
     private final List<Admin> admins = new ArrayList<>();
     private Admin loggedInAdmin = null;
+    private final ChangeTracker changes = new ChangeTracker();
 
-    private static final String ADMINS_FILE = "src/main/resources/data/admins.txt";
+    private static final String ADMINS_FILE = DataDirectory.file("admins.txt");
 
     /**
      * Adds a new admin only if username and adminId are unique.
@@ -33,6 +36,7 @@ public class AdminService {
         }
 
         admins.add(new Admin(userName, adminId, password));
+        changes.changed();
         saveAdminsToFile();
         return true;
     }
@@ -92,47 +96,78 @@ public class AdminService {
      * Format: userName,adminId,password
      */
     public void saveAdminsToFile() {
+        long generation = changes.generation();
         List<String> lines = new ArrayList<>();
 
         for (Admin a : admins) {
-            String line = a.getUserName() + "," +
+            String line = CsvRecord.quote(a.getUserName()) + "," +
                     a.getAdminId() + "," +
-                    a.getPassword();
+                    CsvRecord.quote(a.getPassword());
             lines.add(line);
         }
 
         FileManager.writeLines(ADMINS_FILE, lines);
+        changes.saved(generation);
     }
 
     /**
-     * Loads admins from file (ignores invalid lines).
+     * @return number of changes made to the admins so far; grows with every change
      */
-    public void loadAdminsFromFile() {
+    public long getGeneration() {
+        return changes.generation();
+    }
 
-        admins.clear();
+    /**
+     * @return true if the admins file does not hold the current admins, because
+     *         they changed since it was last written
+     */
+    public boolean isDirty() {
+        return changes.isDirty();
+    }
 
-        List<String> lines = FileManager.readLines(ADMINS_FILE);
-        if (lines == null) return;
+    /**
+     * Rewrites the admins file only if it is dirty, e.g. on shutdown.
+     *
+     * @return true if the file was written
+     */
+    public boolean saveAdminsIfDirty() {
+        if (!isDirty()) return false;
+        saveAdminsToFile();
+        return true;
+    }
 
-        for (String line : lines) {
+    /**
+     * Loads admins from file (ignores invalid lines).
+     */
+    public void loadAdminsFromFile() {
 
-            if (line == null || line.isBlank()) continue;
+        List<Admin> loaded = new ArrayList<>();
 
-            String[] p = line.split(",");
-            if (p.length < 3) continue;
+        FileManager.forEachRecord(ADMINS_FILE, p -> {
 
-            String userName = p[0];
-            String idStr = p[1];
-            String password = p[2];
+            if (p.isBlank() || p.size() < 3) return;
 
             int adminId;
             try {
-                adminId = Integer.parseInt(idStr);
+                adminId = p.getInt(1);
             } catch (NumberFormatException e) {
-                continue;
+                return;
             }
 
-            admins.add(new Admin(userName, adminId, password));
-        }
+            loaded.add(new Admin(p.get(0), adminId, p.get(2)));
+        });
+
+        restoreAdmins(loaded);
+    }
+
+    /**
+     * Replaces all admins with the given ones, as if they had been loaded from file.
+     *
+     * @param loaded the admins to keep
+     */
+    void restoreAdmins(List<Admin> loaded) {
+        admins.clear();
+        admins.addAll(loaded);
+        changes.loaded();
     }
 }
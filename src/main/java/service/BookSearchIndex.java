@@ -0,0 +1,285 @@
+package service;
+
+import domain.Book;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-memory search index used by {@link BookService#search(String)}.
+ * It answers the same matching rules as a linear scan:
+ * - title contains keyword (case-insensitive)
+ * - author matches keyword (case-insensitive)
+ * - ISBN matches keyword (exact match)
+ *
+ * Titles are indexed by every substring of one to three characters of their
+ * lower-cased form. A keyword of up to three characters is answered straight
+ * from its posting list; a longer one only has to verify the books whose
+ * titles contain every trigram of the keyword. Authors and ISBNs are indexed
+ * by whole value. Results are always returned in the order the books were added.
+ * Posting lists of ASCII grams of one or two characters sit in an array
+ * indexed by their characters, so indexing a title does not create a key
+ * string for each of them.
+ *
+ * One thread may add books while others search. Books and posting lists
+ * are only appended to, and {@link #search(String, int)} ignores every book
+ * from a given ordinal on, so a reader that passes the size of the catalog
+ * version it works with never sees a book that was added later. The arrays
+ * are replaced through volatile fields when they grow.
+ */
+final class BookSearchIndex {
+
+    private static final int GRAM = 3;
+    private static final int ASCII = 128;
+
+    private volatile Book[] books = new Book[16];
+    private volatile String[] lowerTitles = new String[16];
+    private int size;
+    private final Map<String, IntList> titleGrams = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<IntList> shortGrams = new AtomicReferenceArray<>(ASCII + ASCII * ASCII);
+    private final Map<String, IntList> authors = new ConcurrentHashMap<>();
+    private final Map<String, IntList> isbns = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a book to the index. Books receive increasing ordinals,
+     * which keeps every posting list sorted. Only one thread may add at a time.
+     *
+     * @param book the book to index
+     */
+    void add(Book book) {
+        int ordinal = size;
+        if (ordinal == books.length) {
+            int capacity = ordinal + (ordinal >> 1);
+            books = Arrays.copyOf(books, capacity);
+            lowerTitles = Arrays.copyOf(lowerTitles, capacity);
+        }
+
+        String title = book.getTitle();
+        String lower = title == null ? null : title.toLowerCase();
+        books[ordinal] = book;
+        lowerTitles[ordinal] = lower;
+        size++;
+
+        if (lower != null) {
+            for (int i = 0; i < lower.length(); i++) {
+                for (int end = i + 1; end <= i + GRAM && end <= lower.length(); end++) {
+                    int slot = shortGramSlot(lower, i, end);
+                    IntList postings;
+                    if (slot >= 0) {
+                        postings = shortGrams.get(slot);
+                        if (postings == null) {
+                            postings = new IntList();
+                            shortGrams.set(slot, postings);
+                        }
+                    } else {
+                        postings = titleGrams.computeIfAbsent(lower.substring(i, end), k -> new IntList());
+                    }
+                    postings.addIfLast(ordinal);
+                }
+            }
+        }
+
+        if (book.getAuthor() != null) {
+            authors.computeIfAbsent(foldCase(book.getAuthor()), k -> new IntList()).add(ordinal);
+        }
+
+        if (book.getIsbn() != null) {
+            isbns.computeIfAbsent(book.getIsbn(), k -> new IntList()).add(ordinal);
+        }
+    }
+
+    /**
+     * Finds all books matching the keyword. Only for the thread that adds books.
+     *
+     * @param keyword a trimmed, non-empty keyword
+     * @return matching books in insertion order
+     */
+    List<Book> search(String keyword) {
+        return search(keyword, size);
+    }
+
+    /**
+     * Finds all matching books among the first {@code limit} that were added.
+     *
+     * @param keyword a trimmed, non-empty keyword
+     * @param limit   number of books to consider; at most the number added
+     *                before the caller's catalog version was published
+     * @return matching books in insertion order
+     */
+    List<Book> search(String keyword, int limit) {
+        Book[] books = this.books;
+        IntList byTitle = matchTitle(keyword.toLowerCase(), limit);
+        IntList byAuthor = matchAuthor(keyword, books, limit);
+        IntList byIsbn = IntList.below(isbns.get(keyword), limit);
+
+        int[] merged = IntList.union(byTitle, byAuthor, byIsbn);
+        List<Book> results = new ArrayList<>(merged.length);
+        for (int ordinal : merged) {
+            results.add(books[ordinal]);
+        }
+        return results;
+    }
+
+    /**
+     * Folds a string so that two values compare equal exactly when
+     * {@link String#equalsIgnoreCase(String)} would, independent of the default locale.
+     *
+     * @param s the value to fold
+     * @return the folded key
+     */
+    static String foldCase(String s) {
+        char[] out = new char[s.length()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+        }
+        return new String(out);
+    }
+
+    private IntList matchTitle(String lower, int limit) {
+        if (lower.length() <= GRAM) {
+            int slot = shortGramSlot(lower, 0, lower.length());
+            return IntList.below(slot >= 0 ? shortGrams.get(slot) : titleGrams.get(lower), limit);
+        }
+
+        String[] lowerTitles = this.lowerTitles;
+        IntList out = new IntList();
+
+        int[] shortest = null;
+        int shortestSize = 0;
+        for (int i = 0; i + GRAM <= lower.length(); i++) {
+            IntList postings = titleGrams.get(lower.substring(i, i + GRAM));
+            if (postings == null) return out;
+
+            int n = postings.size;
+            if (shortest == null || n < shortestSize) {
+                shortest = postings.values;
+                shortestSize = n;
+            }
+        }
+
+        for (int i = 0; i < shortestSize && shortest[i] < limit; i++) {
+            int ordinal = shortest[i];
+            if (lowerTitles[ordinal].contains(lower)) out.add(ordinal);
+        }
+        return out;
+    }
+
+    /**
+     * Returns the array slot of an ASCII gram of one or two characters,
+     * or -1 if the gram has to go through the map.
+     */
+    private static int shortGramSlot(String s, int from, int end) {
+        char first = s.charAt(from);
+        if (first >= ASCII) return -1;
+        if (end - from == 1) return first;
+        if (end - from > 2) return -1;
+
+        char second = s.charAt(from + 1);
+        return second < ASCII ? ASCII + first * ASCII + second : -1;
+    }
+
+    private IntList matchAuthor(String keyword, Book[] books, int limit) {
+        IntList postings = authors.get(foldCase(keyword));
+        if (postings == null) return null;
+
+        int n = postings.size;
+        int[] values = postings.values;
+        IntList out = new IntList();
+        for (int i = 0; i < n && values[i] < limit; i++) {
+            int ordinal = values[i];
+            if (books[ordinal].getAuthor().equalsIgnoreCase(keyword)) out.add(ordinal);
+        }
+        return out;
+    }
+
+    /**
+     * Growable, sorted list of book ordinals, appended to by one thread and
+     * read by others. The writer stores a value before it increases the
+     * size and replaces the array before it stores into it, so a reader that
+     * reads the size first and then the array sees that many valid values.
+     */
+    static final class IntList {
+        private volatile int[] values;
+        private volatile int size;
+
+        private IntList(int[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        IntList() {
+            this(new int[4], 0);
+        }
+
+        void add(int value) {
+            int n = size;
+            if (n == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, n + (n >> 1)));
+            }
+            values[n] = value;
+            size = n + 1;
+        }
+
+        /**
+         * Adds the value unless it is already the last element,
+         * so a title repeating a trigram is only listed once.
+         */
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) return;
+            add(value);
+        }
+
+        /**
+         * Copies the values below the limit.
+         */
+        static IntList below(IntList list, int limit) {
+            if (list == null) return null;
+
+            int n = list.size;
+            int[] values = list.values;
+            int end = Arrays.binarySearch(values, 0, n, limit);
+            if (end < 0) end = -end - 1;
+            return new IntList(Arrays.copyOf(values, end), end);
+        }
+
+        /**
+         * Merges sorted lists into one sorted array without duplicates.
+         * Null lists are treated as empty. Only for lists no longer appended to.
+         */
+        static int[] union(IntList... lists) {
+            int total = 0;
+            IntList only = null;
+            int nonEmpty = 0;
+            for (IntList l : lists) {
+                if (l != null && l.size > 0) {
+                    total += l.size;
+                    only = l;
+                    nonEmpty++;
+                }
+            }
+            if (nonEmpty <= 1) {
+                if (only == null) return new int[0];
+                return only.values.length == only.size ? only.values : Arrays.copyOf(only.values, only.size);
+            }
+
+            int[] all = new int[total];
+            int n = 0;
+            for (IntList l : lists) {
+                if (l == null) continue;
+                System.arraycopy(l.values, 0, all, n, l.size);
+                n += l.size;
+            }
+            Arrays.sort(all);
+
+            int unique = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (i == 0 || all[i] != all[i - 1]) all[unique++] = all[i];
+            }
+            return Arrays.copyOf(all, unique);
+        }
+    }
+}
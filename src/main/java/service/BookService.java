@@ -1,25 +1,69 @@
 package service;
 
 import domain.Book;
+import domain.EpochDays;
+import file.DataDirectory;
+import file.CsvRecord;
 import file.FileManager;
+import file.GroupCommit;
+import file.Journal;
+import file.StringPool;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Provides services for managing books in the library system.
  * This class supports adding books, searching, loading/saving data,
  * and retrieving books by ISBN.
+ *
+ * The catalog is published as immutable versions behind a volatile field.
+ * Searching, listing and lookups read the current version without locking
+ * and always see a consistent set of books; adding or loading books builds
+ * the next version and swaps it in. Writers are serialized among themselves.
  */
 public class BookService {
 
-    private final List<Book> books = new ArrayList<>();
-    private static final String BOOKS_FILE = "src/main/resources/data/books.txt";
+    private volatile Catalog catalog = Catalog.empty();
+    private final Object writeLock = new Object();
+    private final ReentrantReadWriteLock saveLock = new ReentrantReadWriteLock();
+    private static final String BOOKS_FILE = DataDirectory.file("books.txt");
+    private static final Function<String, String> ISBN_KEY = Journal.columnKey(2, 3);
+    private final Journal journal = new Journal(BOOKS_FILE);
+    private final ChangeTracker changes = new ChangeTracker();
+    private boolean journaling;
+    private GroupCommit groupCommit;
+
+    /**
+     * Enables or disables journaled persistence. When enabled, single-book
+     * changes are appended to a journal next to the books file instead of
+     * rewriting the whole file; {@link #saveBooksToFile()} folds the journal
+     * back into the file.
+     *
+     * @param journaling true to append changes to the journal
+     */
+    public void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+    }
+
+    /**
+     * Attaches the commit stage that decides when journal records reach the disk.
+     *
+     * @param groupCommit the commit stage, or null to leave forcing to the operating system
+     */
+    public void setGroupCommit(GroupCommit groupCommit) {
+        this.groupCommit = groupCommit;
+        journal.setGroupCommit(groupCommit);
+    }
 
     /**
      * Adds a new book to the system if the ISBN is not already registered.
-     * The updated list is saved to the storage file after a successful insert.
+     * The new book is persisted after a successful insert.
      *
      * @param title  the book title
      * @param author the book author
@@ -27,64 +71,149 @@ public class BookService {
      * @return true if the book was added successfully, false if a book with the same ISBN already exists
      */
     public boolean addBook(String title, String author, String isbn) {
-        if (findBookByISBN(isbn) != null) return false;
+        Book book;
+        saveLock.readLock().lock();
+        try {
+            synchronized (writeLock) {
+                if (findBookByISBN(isbn) != null) return false;
 
-        Book book = new Book(title, author, isbn);
-        books.add(book);
+                book = new Book(title, author, isbn);
+                catalog = catalog.plus(book);
+                changes.changed();
+            }
+            if (journaling) journal.add(toCsvLine(book));
+        } finally {
+            saveLock.readLock().unlock();
+        }
 
-        saveBooksToFile();
+        if (journaling) {
+            compactIfNeeded();
+            if (groupCommit != null) groupCommit.commit();
+        } else {
+            saveBooksToFile();
+        }
         return true;
     }
 
+    /**
+     * Persists the current state of a single book, for example after it was
+     * borrowed or returned. In journaled mode only this book is written;
+     * otherwise the whole file is rewritten.
+     *
+     * @param book the book whose state changed
+     */
+    public void saveBook(Book book) {
+        saveLock.readLock().lock();
+        try {
+            changes.changed();
+            if (journaling) journal.put(toCsvLine(book));
+        } finally {
+            saveLock.readLock().unlock();
+        }
+
+        if (journaling) {
+            compactIfNeeded();
+        } else {
+            saveBooksToFile();
+        }
+    }
+
     /**
      * Saves all books to the storage file using a comma-separated format:
      * title,author,isbn,available,borrowDate,dueDate.
      * Dates are stored as ISO strings, and missing values are stored as "null".
+     * Any pending journal records are folded into the file and the journal is cleared.
+     * Changes wait while the file is written, so a save never marks a later
+     * change as saved or clears its journal record.
      */
     public void saveBooksToFile() {
-        List<String> lines = new ArrayList<>();
-        for (Book b : books) {
-            lines.add(toCsvLine(
-                    b.getTitle(),
-                    b.getAuthor(),
-                    b.getIsbn(),
-                    b.isAvailable(),
-                    b.getBorrowDate(),
-                    b.getDueDate()
-            ));
+        saveLock.writeLock().lock();
+        try {
+            long generation = changes.generation();
+            List<Book> books = catalog.books;
+            List<String> lines = new ArrayList<>(books.size());
+            for (Book b : books) {
+                lines.add(toCsvLine(b));
+            }
+            FileManager.writeLines(BOOKS_FILE, lines);
+            journal.reset();
+            changes.saved(generation);
+        } finally {
+            saveLock.writeLock().unlock();
         }
-        FileManager.writeLines(BOOKS_FILE, lines);
     }
 
     /**
-     * Loads books from the storage file into memory.
+     * @return number of changes made to the books so far; grows with every change
+     */
+    public long getGeneration() {
+        return changes.generation();
+    }
+
+    /**
+     * @return true if the books file does not hold the current books, because
+     *         they changed since it was last written or the journal still has records
+     */
+    public boolean isDirty() {
+        return changes.isDirty() || journal.size() > 0;
+    }
+
+    /**
+     * Rewrites the books file only if it is dirty, e.g. on shutdown.
+     *
+     * @return true if the file was written
+     */
+    public boolean saveBooksIfDirty() {
+        if (!isDirty()) return false;
+        saveBooksToFile();
+        return true;
+    }
+
+    /**
+     * Loads books from the storage file into memory, replaying any journal
+     * records written since the file was last saved. Large files are parsed
+     * in parallel chunks.
      * Invalid or incomplete lines are ignored.
      */
     public void loadBooksFromFile() {
-        books.clear();
-
-        List<String> lines = FileManager.readLines(BOOKS_FILE);
-        if (lines == null) return;
+        restoreBooks(journal.parse(ISBN_KEY, BookService::parseBook));
+    }
 
-        for (String line : lines) {
-            if (line == null || line.isBlank()) continue;
+    /**
+     * Replaces all books with the given ones, as if they had been loaded from file.
+     *
+     * @param loaded the books to keep
+     */
+    void restoreBooks(List<Book> loaded) {
+        Catalog next = Catalog.of(loaded);
+        synchronized (writeLock) {
+            catalog = next;
+            changes.loaded();
+        }
+    }
 
-            String[] p = line.split(",");
-            if (p.length < 3) continue;
+    /**
+     * Parses a book from a CSV record.
+     *
+     * @param p the record
+     * @return the book, or null if the line is blank or incomplete
+     */
+    private static Book parseBook(CsvRecord p) {
+        if (p.isBlank() || p.size() < 3) return null;
 
-            Book b = new Book(p[0], p[1], p[2]);
+        Book b = new Book(p.get(0), p.get(1, StringPool.SHARED), p.get(2));
 
-            b.setAvailable(FileManager.parseBooleanStrict(FileManager.getPart(p, 3)));
+        b.setAvailable(p.getBoolean(3));
 
-            b.setBorrowDate(FileManager.parseDateOrNull(FileManager.getPart(p, 4)));
-            b.setDueDate(FileManager.parseDateOrNull(FileManager.getPart(p, 5)));
+        b.setBorrowEpochDay(p.getEpochDay(4, EpochDays.NONE));
+        b.setDueEpochDay(p.getEpochDay(5, EpochDays.NONE));
 
-            books.add(b);
-        }
+        return b;
     }
 
     /**
-     * Searches for books using a keyword.
+     * Searches for books using a keyword. Lookups go through an in-memory
+     * index that is kept up to date by addBook and loadBooksFromFile.
      * Matching rules:
      * - if keyword is blank, returns all books
      * - title contains keyword (case-insensitive)
@@ -98,38 +227,58 @@ public class BookService {
     public List<Book> search(String keyword) {
         if (keyword == null) throw new NullPointerException("keyword is null");
 
+        Catalog current = catalog;
         keyword = keyword.trim();
-        if (keyword.isEmpty()) return new ArrayList<>(books);
+        if (keyword.isEmpty()) return new ArrayList<>(current.books);
 
-        List<Book> results = new ArrayList<>();
-        for (Book b : books) {
-            if (matchesKeyword(keyword, b.getTitle(), b.getAuthor(), b.getIsbn())) {
-                results.add(b);
-            }
-        }
-        return results;
+        return current.index.search(keyword, current.books.size());
     }
 
     /**
-     * Finds a book by its ISBN.
+     * Finds a book by its ISBN using the in-memory ISBN index.
      *
      * @param isbn the ISBN to search for
      * @return the matching Book if found, otherwise null
      */
     public Book findBookByISBN(String isbn) {
-        for (Book b : books) {
-            if (b.getIsbn().equals(isbn)) return b;
-        }
-        return null;
+        if (isbn == null) return null;
+        return catalog.byIsbn.get(isbn);
     }
 
     /**
-     * Returns all books currently loaded in memory.
+     * Returns the current version of the catalog. The list is immutable and
+     * does not change when books are added later; call again to see them.
      *
      * @return the list of all books
      */
     public List<Book> getAllBooks() {
-        return books;
+        return catalog.books;
+    }
+
+    /**
+     * Folds the journal into the books file once it grows past its threshold.
+     */
+    private void compactIfNeeded() {
+        if (journal.needsCompaction()) {
+            saveBooksToFile();
+        }
+    }
+
+    /**
+     * Builds the CSV line for the given book.
+     *
+     * @param b the book
+     * @return a comma-separated string representing the book
+     */
+    private static String toCsvLine(Book b) {
+        return toCsvLine(
+                b.getTitle(),
+                b.getAuthor(),
+                b.getIsbn(),
+                b.isAvailable(),
+                b.getBorrowDate(),
+                b.getDueDate()
+        );
     }
 
     /**
@@ -146,9 +295,9 @@ public class BookService {
     private static String toCsvLine(String title, String author, String isbn,
                                     boolean available, LocalDate borrowDate, LocalDate dueDate) {
         return String.join(",",
-                title,
-                author,
-                isbn,
+                CsvRecord.quote(title),
+                CsvRecord.quote(author),
+                CsvRecord.quote(isbn),
                 String.valueOf(available),
                 FileManager.dateToStringOrNull(borrowDate),
                 FileManager.dateToStringOrNull(dueDate)
@@ -156,19 +305,52 @@ public class BookService {
     }
 
     /**
-     * Checks whether a book matches the given keyword according to the same search rules.
-     *
-     * @param keyword the raw keyword (already trimmed by caller)
-     * @param title   book title
-     * @param author  book author
-     * @param isbn    book ISBN
-     * @return true if any matching rule applies, otherwise false
-     */
-    private static boolean matchesKeyword(String keyword, String title, String author, String isbn) {
-        String lower = keyword.toLowerCase();
-
-        if (title != null && title.toLowerCase().contains(lower)) return true;
-        if (author != null && author.equalsIgnoreCase(keyword)) return true;
-        return isbn != null && isbn.equals(keyword);
+     * One version of the catalog. The ISBN map and the search index are
+     * shared with the versions that follow it until the books are reloaded;
+     * searches are limited to this version's books, while a lookup by ISBN
+     * may find a book a moment before it is published.
+     */
+    private static final class Catalog {
+
+        final CatalogSnapshot<Book> books;
+        final Map<String, Book> byIsbn;
+        final BookSearchIndex index;
+
+        private Catalog(CatalogSnapshot<Book> books, Map<String, Book> byIsbn, BookSearchIndex index) {
+            this.books = books;
+            this.byIsbn = byIsbn;
+            this.index = index;
+        }
+
+        static Catalog empty() {
+            return new Catalog(CatalogSnapshot.empty(), new ConcurrentHashMap<>(), new BookSearchIndex());
+        }
+
+        static Catalog of(List<Book> books) {
+            Catalog catalog = new Catalog(CatalogSnapshot.of(books),
+                    new ConcurrentHashMap<>(Math.max(16, books.size() * 4 / 3 + 1)), new BookSearchIndex());
+            for (Book book : books) {
+                catalog.register(book);
+            }
+            return catalog;
+        }
+
+        /**
+         * Adds the book to the shared lookups and returns the next version.
+         * If the same ISBN appears twice, the first book stays the one
+         * returned by lookups, matching the previous linear-scan behavior.
+         */
+        Catalog plus(Book book) {
+            CatalogSnapshot<Book> next = books.plus(book);
+            register(book);
+            return new Catalog(next, byIsbn, index);
+        }
+
+        private void register(Book book) {
+            index.add(book);
+            if (book.getIsbn() != null) {
+                byIsbn.putIfAbsent(book.getIsbn(), book);
+            }
+        }
     }
 }
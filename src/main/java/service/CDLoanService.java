@@ -3,23 +3,44 @@ package service;
 import domain.CD;
 import domain.CDLoan;
 import domain.User;
+import file.DataDirectory;
 import file.FileManager;
+import file.GroupCommit;
+import file.Journal;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Provides services for managing CD loans in the library system.
  * This class supports creating CD loans, returning CD loans, loading/saving data,
  * and retrieving overdue CD loans.
+ *
+ * Like {@link LoanService}, borrowing and returning lock the CD's id so
+ * concurrent requests for the same CD cannot both succeed.
  */
 public class CDLoanService {
 
-    private final List<CDLoan> cdLoans = new ArrayList<>();
+    private final LoanLedger<CDLoan> ledger = new LoanLedger<>(CDLoan::getCD, CDLoan::getDueEpochDay, CDLoan::isActive, CDLoan::isOverdue,
+            CDLoan::setDueDateListener);
+    private final List<CDLoan> cdLoans = ledger.synchronizedView();
+    private final StripedLocks itemLocks = new StripedLocks(1024);
+    private final ReentrantReadWriteLock saveLock = new ReentrantReadWriteLock();
     private final BookService bookService;
     private final UserService userService;
-    private static final String LOANS_FILE = "src/main/resources/data/cdloans.txt";
+    private static final String LOANS_FILE = DataDirectory.file("cdloans.txt");
+    private static final Function<String, String> LOAN_KEY = Journal.columnKey(0, 3);
+    private final Journal journal = new Journal(LOANS_FILE);
+    private final ChangeTracker changes = new ChangeTracker();
+    private boolean journaling;
+    private Clock clock = Clock.systemDefaultZone();
 
     /**
      * Creates a new CDLoanService with required dependencies.
@@ -32,6 +53,37 @@ public class CDLoanService {
         this.userService = userService;
     }
 
+    /**
+     * Enables or disables journaled persistence. When enabled, each new or
+     * returned CD loan is appended to a journal next to the CD loans file
+     * instead of rewriting the whole history; {@link #saveAllLoansToFile()}
+     * folds the journal back into the file.
+     *
+     * @param journaling true to append changes to the journal
+     */
+    public void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+    }
+
+    /**
+     * Attaches the commit stage that decides when journal records reach the disk.
+     *
+     * @param groupCommit the commit stage, or null to leave forcing to the operating system
+     */
+    public void setGroupCommit(GroupCommit groupCommit) {
+        journal.setGroupCommit(groupCommit);
+    }
+
+    /**
+     * Sets the clock that provides the business date for borrowing and overdue checks.
+     * Each operation reads the date once, so all items it looks at share the same day.
+     *
+     * @param clock the clock to use
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
     /**
      * Creates a new CD loan for the given user and CD.
      * The loan is created only if both user and CD are not null, the user has no fines,
@@ -45,15 +97,35 @@ public class CDLoanService {
         if (user == null || cd == null) return false;
 
         if (user.getFineBalance() > 0) return false;
-        if (user.hasOverdueLoans()) return false;
-        if (!cd.isAvailable()) return false;
 
-        CDLoan loan = new CDLoan(user, cd);
+        LocalDate today = LocalDate.now(clock);
+        if (user.hasOverdueLoans(today)) return false;
 
-        user.addCDLoan(loan);
-        cdLoans.add(loan);
+        ReentrantLock lock = itemLocks.lockFor(cd.getId());
+        saveLock.readLock().lock();
+        lock.lock();
+        try {
+            if (!cd.isAvailable()) return false;
 
-        saveAllLoansToFile();
+            CDLoan loan = new CDLoan(user, cd, today);
+
+            try {
+                user.addCDLoan(loan, today);
+            } catch (IllegalStateException e) {
+                // the user got a fine or an overdue loan since the checks above
+                cd.returnCD();
+                return false;
+            }
+            cdLoans.add(loan);
+            changes.changed();
+
+            if (journaling) appendToJournal(loan, true);
+        } finally {
+            lock.unlock();
+            saveLock.readLock().unlock();
+        }
+
+        saveIfNeeded();
         return true;
     }
 
@@ -69,75 +141,129 @@ public class CDLoanService {
     public boolean returnCDLoan(User user, CD cd) {
         if (user == null || cd == null) return false;
 
-        for (CDLoan loan : cdLoans) {
-            if (isMatchingActiveLoan(loan, user, cd)) {
-                loan.returnCD();
-                user.returnCDLoan(loan);
-                saveAllLoansToFile();
-                return true;
+        ReentrantLock lock = itemLocks.lockFor(cd.getId());
+        saveLock.readLock().lock();
+        lock.lock();
+        try {
+            CDLoan loan = findActiveLoan(user, cd);
+            if (loan == null) return false;
+
+            loan.returnCD();
+            user.returnCDLoan(loan);
+            synchronized (cdLoans) {
+                ledger.returned(loan);
             }
+            changes.changed();
+
+            if (journaling) appendToJournal(loan, false);
+        } finally {
+            lock.unlock();
+            saveLock.readLock().unlock();
         }
-        return false;
+
+        saveIfNeeded();
+        return true;
     }
 
     /**
      * Saves all valid CD loans to the storage file using a comma-separated format:
      * userName,cdId,borrowDate,dueDate,active
+     * Any pending journal records are folded into the file and the journal is cleared.
      */
     public void saveAllLoansToFile() {
-        List<String> lines = new ArrayList<>();
-
-        for (CDLoan loan : cdLoans) {
-            if (!LoanService.isValidForSave(loan, loan == null ? null : loan.getCD())) continue;
-
-            lines.add(LoanService.buildCsvLine(
-                    loan.getUser().getUserName(),
-                    loan.getCD().getId(),
-                    loan.getBorrowDate(),
-                    loan.getDueDate(),
-                    loan.isActive()
-            ));
+        saveLock.writeLock().lock();
+        try {
+            long generation = changes.generation();
+            List<String> lines = new ArrayList<>();
+
+            synchronized (cdLoans) {
+                for (CDLoan loan : cdLoans) {
+                    if (!LoanService.isValidForSave(loan, loan == null ? null : loan.getCD())) continue;
+
+                    lines.add(LoanService.buildCsvLine(
+                            loan.getUser().getUserName(),
+                            loan.getCD().getId(),
+                            loan.getBorrowDate(),
+                            loan.getDueDate(),
+                            loan.isActive()
+                    ));
+                }
+            }
+
+            FileManager.writeLines(LOANS_FILE, lines);
+            journal.reset();
+            changes.saved(generation);
+        } finally {
+            saveLock.writeLock().unlock();
         }
+    }
 
-        FileManager.writeLines(LOANS_FILE, lines);
+    /**
+     * @return number of changes made to the CD loans so far; grows with every change
+     */
+    public long getGeneration() {
+        return changes.generation();
+    }
+
+    /**
+     * @return true if the CD loans file does not hold the current CD loans, because
+     *         they changed since it was last written or the journal still has records
+     */
+    public boolean isDirty() {
+        return changes.isDirty() || journal.size() > 0;
+    }
+
+    /**
+     * Rewrites the CD loans file only if it is dirty, e.g. on shutdown.
+     *
+     * @return true if the file was written
+     */
+    public boolean saveLoansIfDirty() {
+        if (!isDirty()) return false;
+        saveAllLoansToFile();
+        return true;
     }
 
     /**
-     * Loads CD loans from the storage file into memory.
+     * Loads CD loans from the storage file into memory, replaying any journal
+     * records written since the file was last saved. Large files are parsed
+     * in parallel chunks; users and CDs are resolved afterwards in file order.
      * Invalid or incomplete lines are ignored.
      * If the referenced user or CD does not exist, the record is skipped.
      *
      * @param cds list of CDs to resolve stored CD identifiers
      */
     public void loadCDLoansFromFile(List<CD> cds) {
-        cdLoans.clear();
-
-        List<String> lines = FileManager.readLines(LOANS_FILE);
-        if (lines == null) return;
-
-        for (String line : lines) {
-            if (line == null || line.isBlank()) continue;
-
-            String[] p = line.split(",");
-            if (p.length < 5) continue;
+        restoreCDLoans(journal.parse(LOAN_KEY, LoanService::parseLoanRecord), cds);
+    }
 
-            LoanService.LoanRecord r = LoanService.parseLoanRecord(p);
-            if (r == null) continue;
+    /**
+     * Replaces all CD loans with the given records, as if they had been loaded from file.
+     * Records whose user or CD does not exist are skipped.
+     *
+     * @param records the loan records, in file order
+     * @param cds     list of CDs to resolve stored CD identifiers
+     */
+    void restoreCDLoans(List<LoanService.LoanRecord> records, List<CD> cds) {
+        cdLoans.clear();
+        Map<String, CD> cdsById = indexById(cds);
 
+        for (LoanService.LoanRecord r : records) {
             User user = userService.findUserByName(r.userName);
-            CD cd = findCdById(cds, r.itemId);
+            CD cd = cdsById.get(r.itemId);
 
             if (user == null || cd == null) continue;
 
-            applyCdState(cd, r.borrowDate, r.dueDate, r.active);
+            applyCdState(cd, r.borrowDay, r.dueDay, r.active);
 
-            CDLoan loan = new CDLoan(user, cd, r.borrowDate, r.dueDate, r.active);
+            CDLoan loan = new CDLoan(user, cd, r.borrowDay, r.dueDay, r.active);
             cdLoans.add(loan);
 
             if (r.active) {
                 user.getActiveCDLoans().add(loan);
             }
         }
+        changes.loaded();
     }
 
     /**
@@ -146,18 +272,26 @@ public class CDLoanService {
      * @return list of overdue CD loans
      */
     public List<CDLoan> getOverdueCDLoans() {
-        List<CDLoan> result = new ArrayList<>();
+        return getOverdueCDLoans(LocalDate.now(clock));
+    }
 
-        for (CDLoan loan : cdLoans) {
-            if (loan != null && loan.isOverdue()) {
-                result.add(loan);
-            }
+    /**
+     * Returns the CD loans that are overdue on the given date, ordered by due date.
+     * Only active loans due before that date are visited, not the whole history.
+     *
+     * @param date the reference date
+     * @return list of overdue CD loans
+     */
+    public List<CDLoan> getOverdueCDLoans(LocalDate date) {
+        synchronized (cdLoans) {
+            return ledger.overdueAt(date);
         }
-        return result;
     }
 
     /**
      * Returns all CD loans currently loaded in memory.
+     * The list is synchronized; iterate over it inside {@code synchronized (list)}
+     * when other threads may be borrowing or returning.
      *
      * @return list of all CD loans
      */
@@ -165,6 +299,65 @@ public class CDLoanService {
         return cdLoans;
     }
 
+    /**
+     * Returns the active loan of the given CD, looked up by item instead of
+     * scanning the loan history.
+     *
+     * @param cd the CD
+     * @return the CD's active loan, or null if it is not borrowed
+     */
+    public CDLoan findActiveLoan(CD cd) {
+        synchronized (cdLoans) {
+            return ledger.activeLoanFor(cd);
+        }
+    }
+
+    /**
+     * Finds the active CD loan of the given user for the given CD.
+     *
+     * @param user the loan owner
+     * @param cd   the borrowed CD
+     * @return the matching active CD loan, or null if there is none
+     */
+    private CDLoan findActiveLoan(User user, CD cd) {
+        CDLoan loan = findActiveLoan(cd);
+        return loan != null && isMatchingActiveLoan(loan, user, cd) ? loan : null;
+    }
+
+    /**
+     * Rewrites the CD loans file after a change: always without journaling,
+     * and once the journal is large when journaling.
+     */
+    private void saveIfNeeded() {
+        if (!journaling || journal.needsCompaction()) {
+            saveAllLoansToFile();
+        }
+    }
+
+    /**
+     * Appends a single CD loan to the journal. Called while holding the CD's
+     * lock, so records for the same CD are written in operation order.
+     * A loan is keyed by user, CD id and borrow date, so a return replaces the
+     * row written when the loan was created.
+     *
+     * @param loan    the new or returned CD loan
+     * @param created true for a new loan, false for a state change
+     */
+    private void appendToJournal(CDLoan loan, boolean created) {
+        if (!LoanService.isValidForSave(loan, loan.getCD())) return;
+
+        String line = LoanService.buildCsvLine(
+                loan.getUser().getUserName(),
+                loan.getCD().getId(),
+                loan.getBorrowDate(),
+                loan.getDueDate(),
+                loan.isActive()
+        );
+
+        if (created) journal.add(line);
+        else journal.put(line);
+    }
+
     /**
      * Checks whether the given CD loan matches the provided user and CD and is active.
      * This method preserves the original null-safety checks from the previous implementation.
@@ -188,38 +381,37 @@ public class CDLoanService {
     }
 
     /**
-     * Finds a CD by its identifier within the given list.
-     * This preserves the same matching logic used previously (id equality).
+     * Indexes the given CDs by identifier. When several CDs share an id,
+     * the first one wins, as with a front-to-back search of the list.
      *
-     * @param cds  list of CDs
-     * @param cdId CD identifier
-     * @return matching CD if found, otherwise null
+     * @param cds list of CDs (may be null)
+     * @return map from CD id to CD
      */
-    private static CD findCdById(List<CD> cds, String cdId) {
-        if (cds == null || cdId == null) return null;
+    private static Map<String, CD> indexById(List<CD> cds) {
+        Map<String, CD> byId = new HashMap<>();
+        if (cds == null) return byId;
 
         for (CD c : cds) {
-            if (c != null && cdId.equals(c.getId())) return c;
+            if (c != null && c.getId() != null) byId.putIfAbsent(c.getId(), c);
         }
-        return null;
+        return byId;
     }
 
     /**
      * Applies the loaded loan state to the CD object.
      * The behavior matches the original logic exactly.
      *
-     * @param cd         the CD to update
-     * @param borrowDate borrow date from file
-     * @param dueDate    due date from file
-     * @param active     whether the loan is active
+     * @param cd        the CD to update
+     * @param borrowDay borrow date from file, as an epoch day
+     * @param dueDay    due date from file, as an epoch day
+     * @param active    whether the loan is active
      */
-    private static void applyCdState(CD cd, LocalDate borrowDate, LocalDate dueDate, boolean active) {
+    private static void applyCdState(CD cd, int borrowDay, int dueDay, boolean active) {
+        cd.returnCD();
         if (active) {
-            cd.returnCD();
-            cd.borrowCD(borrowDate);
-            cd.setDueDate(dueDate);
-        } else {
-            cd.returnCD();
+            cd.setAvailable(false);
+            cd.setBorrowEpochDay(borrowDay);
+            cd.setDueEpochDay(dueDay);
         }
     }
 }
@@ -1,25 +1,64 @@
 package service;
 
 import domain.CD;
+import domain.EpochDays;
+import file.DataDirectory;
+import file.CsvRecord;
 import file.FileManager;
+import file.GroupCommit;
+import file.Journal;
+import file.StringPool;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Provides services for managing CDs in the library system.
  * This class supports adding CDs, searching, loading/saving data,
  * and retrieving CDs by their unique ID.
+ *
+ * Like {@link BookService}, the CDs are published as immutable versions
+ * behind a volatile field: readers never lock and writers swap in the next version.
  */
 public class CDService {
 
-    private final List<CD> cds = new ArrayList<>();
-    private static final String CD_FILE = "src/main/resources/data/cds.txt";
+    private volatile CatalogSnapshot<CD> cds = CatalogSnapshot.empty();
+    private final Object writeLock = new Object();
+    private final ReentrantReadWriteLock saveLock = new ReentrantReadWriteLock();
+    private static final String CD_FILE = DataDirectory.file("cds.txt");
+    private static final Function<String, String> ID_KEY = Journal.columnKey(2, 3);
+    private final Journal journal = new Journal(CD_FILE);
+    private final ChangeTracker changes = new ChangeTracker();
+    private boolean journaling;
+    private GroupCommit groupCommit;
+
+    /**
+     * Enables or disables journaled persistence. When enabled, new CDs are
+     * appended to a journal next to the CDs file instead of rewriting the
+     * whole file; {@link #saveCDsToFile()} folds the journal back into the file.
+     *
+     * @param journaling true to append changes to the journal
+     */
+    public void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+    }
+
+    /**
+     * Attaches the commit stage that decides when journal records reach the disk.
+     *
+     * @param groupCommit the commit stage, or null to leave forcing to the operating system
+     */
+    public void setGroupCommit(GroupCommit groupCommit) {
+        this.groupCommit = groupCommit;
+        journal.setGroupCommit(groupCommit);
+    }
 
     /**
      * Adds a new CD to the system if the given ID is not already used.
-     * The updated list is saved to the storage file after a successful insert.
+     * The new CD is persisted after a successful insert.
      *
      * @param title  the CD title
      * @param artist the CD artist
@@ -27,69 +66,146 @@ public class CDService {
      * @return true if the CD was added successfully, false if a CD with the same ID already exists
      */
     public boolean addCD(String title, String artist, String id) {
-        if (findCDById(id) != null) return false;
+        CD cd;
+        saveLock.readLock().lock();
+        try {
+            synchronized (writeLock) {
+                if (findCDById(id) != null) return false;
 
-        CD cd = new CD(title, artist, id);
-        cds.add(cd);
+                cd = new CD(title, artist, id);
+                cds = cds.plus(cd);
+                changes.changed();
+            }
+            if (journaling) journal.add(toCsvLine(cd));
+        } finally {
+            saveLock.readLock().unlock();
+        }
 
-        saveCDsToFile();
+        if (journaling) {
+            if (journal.needsCompaction()) saveCDsToFile();
+            if (groupCommit != null) groupCommit.commit();
+        } else {
+            saveCDsToFile();
+        }
         return true;
     }
 
+    /**
+     * Persists the current state of a single CD, for example after it was
+     * borrowed or returned. In journaled mode only this CD is written;
+     * otherwise the whole file is rewritten.
+     *
+     * @param cd the CD whose state changed
+     */
+    public void saveCD(CD cd) {
+        saveLock.readLock().lock();
+        try {
+            changes.changed();
+            if (journaling) journal.put(toCsvLine(cd));
+        } finally {
+            saveLock.readLock().unlock();
+        }
+
+        if (journaling) {
+            if (journal.needsCompaction()) saveCDsToFile();
+        } else {
+            saveCDsToFile();
+        }
+    }
+
     /**
      * Saves all CDs to the storage file using a comma-separated format:
      * title,artist,id,available,borrowDate,dueDate.
      * Dates are stored as ISO strings, and missing values are stored as "null".
+     * Any pending journal records are folded into the file and the journal is cleared.
+     * Changes wait while the file is written, so a save never marks a later
+     * change as saved or clears its journal record.
      */
     public void saveCDsToFile() {
-        List<String> lines = new ArrayList<>();
-        for (CD c : cds) {
-            lines.add(toCsvLine(
-                    c.getTitle(),
-                    c.getArtist(),
-                    c.getId(),
-                    c.isAvailable(),
-                    c.getBorrowDate(),
-                    c.getDueDate()
-            ));
+        saveLock.writeLock().lock();
+        try {
+            long generation = changes.generation();
+            List<CD> cds = this.cds;
+            List<String> lines = new ArrayList<>(cds.size());
+            for (CD c : cds) {
+                lines.add(toCsvLine(c));
+            }
+            FileManager.writeLines(CD_FILE, lines);
+            journal.reset();
+            changes.saved(generation);
+        } finally {
+            saveLock.writeLock().unlock();
         }
-        FileManager.writeLines(CD_FILE, lines);
     }
 
     /**
-     * Loads CDs from the storage file into memory.
-     * Invalid or incomplete lines are ignored.
-     * If a CD is marked as available, borrow and due dates are cleared.
+     * @return number of changes made to the CDs so far; grows with every change
      */
-    public void loadCDsFromFile() {
-        cds.clear();
-
-        List<String> lines = FileManager.readLines(CD_FILE);
-        if (lines == null) return;
+    public long getGeneration() {
+        return changes.generation();
+    }
 
-        for (String line : lines) {
-            if (line == null || line.isBlank()) continue;
+    /**
+     * @return true if the CDs file does not hold the current CDs, because
+     *         they changed since it was last written or the journal still has records
+     */
+    public boolean isDirty() {
+        return changes.isDirty() || journal.size() > 0;
+    }
 
-            String[] p = line.split(",");
-            if (p.length < 3) continue;
+    /**
+     * Rewrites the CDs file only if it is dirty, e.g. on shutdown.
+     *
+     * @return true if the file was written
+     */
+    public boolean saveCDsIfDirty() {
+        if (!isDirty()) return false;
+        saveCDsToFile();
+        return true;
+    }
 
-            CD cd = new CD(p[0], p[1], p[2]);
+    /**
+     * Loads CDs from the storage file into memory, replaying any journal
+     * records written since the file was last saved. Large files are parsed
+     * in parallel chunks.
+     * Invalid or incomplete lines are ignored.
+     * If a CD is marked as available, borrow and due dates are cleared.
+     */
+    public void loadCDsFromFile() {
+        restoreCDs(journal.parse(ID_KEY, CDService::parseCD));
+    }
 
-            boolean available = FileManager.parseBooleanStrict(FileManager.getPart(p, 3));
-            if (available) {
-                cd.returnCD();
-            } else {
-                LocalDate borrow = FileManager.parseDateOrNull(FileManager.getPart(p, 4));
-                LocalDate due = FileManager.parseDateOrNull(FileManager.getPart(p, 5));
+    /**
+     * Replaces all CDs with the given ones, as if they had been loaded from file.
+     *
+     * @param loaded the CDs to keep
+     */
+    void restoreCDs(List<CD> loaded) {
+        CatalogSnapshot<CD> next = CatalogSnapshot.of(loaded);
+        synchronized (writeLock) {
+            cds = next;
+            changes.loaded();
+        }
+    }
 
-                cd.setBorrowDate(borrow);
-                cd.setDueDate(due);
+    /**
+     * Parses a CD from a CSV record.
+     *
+     * @param p the record
+     * @return the CD, or null if the line is blank or incomplete
+     */
+    private static CD parseCD(CsvRecord p) {
+        if (p.isBlank() || p.size() < 3) return null;
 
-                cd.borrowCD(cd.getBorrowDate());
-            }
+        CD cd = new CD(p.get(0), p.get(1, StringPool.SHARED), p.get(2));
 
-            cds.add(cd);
+        if (!p.getBoolean(3)) {
+            cd.setAvailable(false);
+            cd.setBorrowEpochDay(p.getEpochDay(4, EpochDays.NONE));
+            cd.setDueEpochDay(p.getEpochDay(5, EpochDays.NONE));
         }
+
+        return cd;
     }
 
     /**
@@ -107,6 +223,7 @@ public class CDService {
     public List<CD> search(String keyword) {
         if (keyword == null) throw new NullPointerException("keyword is null");
 
+        List<CD> cds = this.cds;
         keyword = keyword.trim();
         if (keyword.isEmpty()) return new ArrayList<>(cds);
 
@@ -133,7 +250,8 @@ public class CDService {
     }
 
     /**
-     * Returns all CDs currently loaded in memory.
+     * Returns the current version of the CD catalog. The list is immutable and
+     * does not change when CDs are added later; call again to see them.
      *
      * @return the list of all CDs
      */
@@ -141,6 +259,23 @@ public class CDService {
         return cds;
     }
 
+    /**
+     * Builds the CSV line for the given CD.
+     *
+     * @param c the CD
+     * @return a comma-separated string representing the CD
+     */
+    private static String toCsvLine(CD c) {
+        return toCsvLine(
+                c.getTitle(),
+                c.getArtist(),
+                c.getId(),
+                c.isAvailable(),
+                c.getBorrowDate(),
+                c.getDueDate()
+        );
+    }
+
     /**
      * Builds a CSV line for persisting a CD entry.
      *
@@ -155,9 +290,9 @@ public class CDService {
     private static String toCsvLine(String title, String artist, String id,
                                     boolean available, LocalDate borrowDate, LocalDate dueDate) {
         return String.join(",",
-                title,
-                artist,
-                id,
+                CsvRecord.quote(title),
+                CsvRecord.quote(artist),
+                CsvRecord.quote(id),
                 String.valueOf(available),
                 FileManager.dateToStringOrNull(borrowDate),
                 FileManager.dateToStringOrNull(dueDate)
@@ -0,0 +1,80 @@
+package service;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable version of a catalog: the first {@code size} items of an array
+ * that is only ever appended to.
+ *
+ * {@link #plus(Object)} writes the new item into the first free slot of the
+ * shared array and returns a version that is one item longer, so adding to
+ * a catalog of a million books does not copy it. Older versions never look
+ * past their own size and therefore do not change. When the array is full,
+ * the items are copied into a larger one.
+ *
+ * Versions must be published through a volatile field, and only the latest
+ * version may be extended, by one writer at a time; reading is safe from
+ * any thread without locking.
+ *
+ * @param <T> the item type
+ */
+final class CatalogSnapshot<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final CatalogSnapshot<?> EMPTY = new CatalogSnapshot<>(new Object[0], 0);
+
+    private final Object[] items;
+    private final int size;
+
+    private CatalogSnapshot(Object[] items, int size) {
+        this.items = items;
+        this.size = size;
+    }
+
+    /**
+     * @return a version without items
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CatalogSnapshot<T> empty() {
+        return (CatalogSnapshot<T>) EMPTY;
+    }
+
+    /**
+     * @param items the items, in order
+     * @return a version holding a copy of the items
+     */
+    static <T> CatalogSnapshot<T> of(List<? extends T> items) {
+        Object[] copy = items.toArray(new Object[Math.max(16, items.size() + items.size() / 8)]);
+        return new CatalogSnapshot<>(copy, items.size());
+    }
+
+    /**
+     * Returns the next version with the item appended. Call only on the latest version.
+     *
+     * @param item the item to append
+     * @return a version one item longer than this one
+     */
+    CatalogSnapshot<T> plus(T item) {
+        Object[] target = items;
+        if (size == target.length) {
+            target = Arrays.copyOf(target, Math.max(16, size + (size >> 1)));
+        }
+        target[size] = item;
+        return new CatalogSnapshot<>(target, size + 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        return (T) items[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
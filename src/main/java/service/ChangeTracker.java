@@ -0,0 +1,55 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the changes made to a service's data (its generation) and remembers
+ * the generation last written to the service's file, so that saving can be
+ * skipped while the file is current.
+ *
+ * A full save reads {@link #generation()} before it collects the data and
+ * passes it to {@link #saved(long)} afterwards; a change made while the file
+ * is being written keeps the file dirty. Thread-safe.
+ */
+final class ChangeTracker {
+
+    private final AtomicLong generation = new AtomicLong();
+    private long saved;
+
+    /**
+     * Records a change to the in-memory data.
+     */
+    void changed() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Records that the in-memory data was replaced by what the file holds.
+     */
+    synchronized void loaded() {
+        saved = generation.incrementAndGet();
+    }
+
+    /**
+     * Records that the data as of the given generation was written to the file.
+     *
+     * @param generation the generation read before the data was collected
+     */
+    synchronized void saved(long generation) {
+        saved = Math.max(saved, generation);
+    }
+
+    /**
+     * @return number of changes so far; increases with every change
+     */
+    long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @return true if the data changed since the file was last written or loaded
+     */
+    synchronized boolean isDirty() {
+        return saved != generation.get();
+    }
+}
@@ -3,6 +3,8 @@ package service;
 import domain.CDLoan;
 import domain.Librarian;
 import domain.Loan;
+import file.CsvRecord;
+import file.DataDirectory;
 import file.FileManager;
 
 import java.util.ArrayList;
@@ -19,7 +21,7 @@ public class LibrarianService {
     private final LibraryService libraryService;
     private Librarian loggedInLibrarian = null;
 
-    private static final String LIBRARIANS_FILE = "src/main/resources/data/librarians.txt";
+    private static final String LIBRARIANS_FILE = DataDirectory.file("librarians.txt");
 
     /**
      * Constructs a LibrarianService with a dependency on LibraryService.
@@ -149,8 +151,8 @@ public class LibrarianService {
 
         for (Librarian l : librarians) {
             String line = l.getLibrarianId() + "," +
-                    l.getName() + "," +
-                    l.getPassword();
+                    CsvRecord.quote(l.getName()) + "," +
+                    CsvRecord.quote(l.getPassword());
             lines.add(line);
         }
 
@@ -165,35 +167,21 @@ public class LibrarianService {
 
         librarians.clear();
 
-        List<String> lines = FileManager.readLines(LIBRARIANS_FILE);
-        if (lines == null) {
-            return;
-        }
-
-        for (String line : lines) {
-
-            if (line == null || line.isBlank()) {
-                continue;
-            }
+        FileManager.forEachRecord(LIBRARIANS_FILE, p -> {
 
-            String[] p = line.split(",");
-            if (p.length < 3) {
-                continue;
+            if (p.isBlank() || p.size() < 3) {
+                return;
             }
 
-            String idStr = p[0];
-            String name = p[1];
-            String password = p[2];
-
             int id;
             try {
-                id = Integer.parseInt(idStr);
+                id = p.getInt(0);
             } catch (NumberFormatException e) {
-                continue;
+                return;
             }
 
-            Librarian librarian = new Librarian(id, name, password);
+            Librarian librarian = new Librarian(id, p.get(1), p.get(2));
             librarians.add(librarian);
-        }
+        });
     }
 }
@@ -1,8 +1,12 @@
 package service;
 
 import domain.*;
+import file.GroupCommit;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Facade service that connects all core services in the library system.
@@ -16,6 +20,9 @@ public class LibraryService {
     private final LoanService loanService;
     private final CDLoanService cdLoanService;
     private final ReminderService reminderService;
+    private CDService cdService;
+    private GroupCommit groupCommit;
+    private Clock clock = Clock.systemDefaultZone();
 
     /**
      * Constructs a LibraryService with all required service dependencies.
@@ -39,6 +46,46 @@ public class LibraryService {
         this.reminderService = reminderService;
     }
 
+    /**
+     * Attaches the commit stage used to make borrow and return operations durable.
+     * Without it, changes are left to the services' own persistence.
+     *
+     * @param groupCommit the commit stage, or null
+     */
+    public void setGroupCommit(GroupCommit groupCommit) {
+        this.groupCommit = groupCommit;
+    }
+
+    /**
+     * Attaches the CD service used to persist a CD's state after it was
+     * borrowed or returned. Without it, only the CD loans and the user are saved.
+     *
+     * @param cdService the CD service, or null
+     */
+    public void setCDService(CDService cdService) {
+        this.cdService = cdService;
+    }
+
+    /**
+     * Sets the clock that provides the business date for reports and reminders.
+     * The other services take their own clock; give them the same one.
+     *
+     * @param clock the clock to use
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns today's business date. Callers that look at many loans
+     * should read it once and pass it down.
+     *
+     * @return the current date of the configured clock
+     */
+    public LocalDate today() {
+        return LocalDate.now(clock);
+    }
+
     /**
      * Finds a user by their name.
      *
@@ -59,6 +106,16 @@ public class LibraryService {
         return bookService.findBookByISBN(isbn);
     }
 
+    /**
+     * Searches the book catalog by title, author or ISBN.
+     *
+     * @param keyword the search keyword; blank returns all books
+     * @return the matching books
+     */
+    public List<Book> searchBooks(String keyword) {
+        return bookService.search(keyword == null ? "" : keyword);
+    }
+
     /**
      * Finds a CD by its ID from a given list.
      *
@@ -80,16 +137,13 @@ public class LibraryService {
      * @return the user who borrowed the book, or null if not found
      */
     public User findLoanUser(Book book) {
-        for (Loan l : loanService.getAllLoans()) {
-            if (l.getBook().equals(book) && l.isActive())
-                return l.getUser();
-        }
-        return null;
+        Loan loan = loanService.findActiveLoan(book);
+        return loan == null ? null : loan.getUser();
     }
 
     /**
      * Borrows a book for a user using the LoanService.
-     * If successful, the updated state is persisted.
+     * If successful, the updated book and user are persisted.
      *
      * @param user the borrowing user
      * @param book the book being borrowed
@@ -99,8 +153,9 @@ public class LibraryService {
         boolean ok = loanService.createLoan(user, book);
 
         if (ok) {
-            bookService.saveBooksToFile();
-            userService.saveUsers();
+            bookService.saveBook(book);
+            userService.saveUser(user);
+            commit();
         }
 
         return ok;
@@ -108,7 +163,7 @@ public class LibraryService {
 
     /**
      * Returns a borrowed book for a user.
-     * If successful, the updated state is persisted.
+     * If successful, the updated book and user are persisted.
      *
      * @param user the user returning the book
      * @param book the book being returned
@@ -119,8 +174,9 @@ public class LibraryService {
         boolean ok = loanService.returnLoan(user, book);
 
         if (ok) {
-            bookService.saveBooksToFile();
-            userService.saveUsers();
+            bookService.saveBook(book);
+            userService.saveUser(user);
+            commit();
         }
 
         return ok;
@@ -128,7 +184,7 @@ public class LibraryService {
 
     /**
      * Borrows a CD for a user.
-     * If successful, user and CD states are persisted.
+     * If successful, the user's and the CD's state are persisted.
      *
      * @param user the borrowing user
      * @param cd the CD being borrowed
@@ -139,8 +195,9 @@ public class LibraryService {
         boolean ok = cdLoanService.createCDLoan(user, cd);
 
         if (ok) {
-            userService.saveUsers();
-            cdSave();
+            userService.saveUser(user);
+            cdSave(cd);
+            commit();
         }
 
         return ok;
@@ -148,7 +205,7 @@ public class LibraryService {
 
     /**
      * Returns a borrowed CD for a user.
-     * If successful, user and CD states are persisted.
+     * If successful, the user's and the CD's state are persisted.
      *
      * @param user the user returning the CD
      * @param cd the CD being returned
@@ -159,23 +216,30 @@ public class LibraryService {
         boolean ok = cdLoanService.returnCDLoan(user, cd);
 
         if (ok) {
-            userService.saveUsers();
-            cdSave();
+            userService.saveUser(user);
+            cdSave(cd);
+            commit();
         }
 
         return ok;
     }
 
     /**
-     * Helper method intended for saving CD data
-     * after CD loan operations.
+     * Completes a borrow or return by handing it to the commit stage, if any.
+     */
+    private void commit() {
+        if (groupCommit != null) {
+            groupCommit.commit();
+        }
+    }
+
+    /**
+     * Saves the CD's state after a CD loan operation, if a CD service is attached.
      */
-    private void cdSave() {
-        List<CD> cds = cdLoanService.getAllCDLoans()
-                .stream()
-                .map(CDLoan::getCD)
-                .distinct()
-                .toList();
+    private void cdSave(CD cd) {
+        if (cdService != null) {
+            cdService.saveCD(cd);
+        }
     }
 
     /**
@@ -216,11 +280,15 @@ public class LibraryService {
 
     /**
      * Sends reminder notifications for all overdue loans.
+     * Returns once the reminders are queued; delivery continues in the background.
+     *
+     * @return completes with the delivery counts per channel
      */
-    public void sendOverdueReminders() {
-        reminderService.sendReminders(
-                loanService.getOverdueLoans(),
-                cdLoanService.getOverdueCDLoans()
+    public CompletableFuture<ReminderReport> sendOverdueReminders() {
+        LocalDate today = today();
+        return reminderService.dispatchReminders(
+                loanService.getOverdueLoans(today),
+                cdLoanService.getOverdueCDLoans(today)
         );
     }
 
@@ -0,0 +1,411 @@
+package service;
+
+import domain.Admin;
+import domain.Book;
+import domain.CD;
+import domain.CDLoan;
+import domain.EpochDays;
+import domain.Loan;
+import domain.User;
+import file.DataDirectory;
+import file.Journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary image of the whole library state: users, books, CDs, loans,
+ * CD loans and admins. Reading it avoids parsing CSV text and dates, so it is
+ * used for fast startup; the CSV files stay the interchange format.
+ *
+ * Layout (big-endian):
+ * - header: magic {@code "LIBS"}, format version (short)
+ * - one section per entity type, in the order above: record count (int),
+ *   then the records
+ *
+ * Strings are written as a varint holding the UTF-8 byte length plus one
+ * (0 for null) followed by the bytes. Dates are epoch days (int). Booleans
+ * and the presence of optional dates are packed into one flags byte per record.
+ */
+public class LibrarySnapshot {
+
+    /**
+     * Snapshot file name inside the data directory.
+     */
+    public static final String FILE_NAME = "library.snapshot";
+
+    /**
+     * Current format version. Snapshots with another version are rejected.
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4C494253;
+
+    private static final int AVAILABLE = 1;
+    private static final int HAS_BORROW_DATE = 1 << 1;
+    private static final int HAS_DUE_DATE = 1 << 2;
+    private static final int ACTIVE = 1 << 3;
+
+    /**
+     * CSV files the snapshot is compared against; their journals are checked too.
+     */
+    private static final String[] DATA_FILES = {
+            "users.txt", "books.txt", "cds.txt", "loans.txt", "cdloans.txt", "admins.txt"
+    };
+
+    private final UserService userService;
+    private final BookService bookService;
+    private final CDService cdService;
+    private final LoanService loanService;
+    private final CDLoanService cdLoanService;
+    private final AdminService adminService;
+    private volatile long generation = -1;
+
+    /**
+     * Creates a snapshot reader/writer for the given services.
+     *
+     * @param userService   user service
+     * @param bookService   book service
+     * @param cdService     CD service
+     * @param loanService   book loan service
+     * @param cdLoanService CD loan service
+     * @param adminService  admin service
+     */
+    public LibrarySnapshot(UserService userService,
+                           BookService bookService,
+                           CDService cdService,
+                           LoanService loanService,
+                           CDLoanService cdLoanService,
+                           AdminService adminService) {
+        this.userService = userService;
+        this.bookService = bookService;
+        this.cdService = cdService;
+        this.loanService = loanService;
+        this.cdLoanService = cdLoanService;
+        this.adminService = adminService;
+    }
+
+    /**
+     * @return the snapshot file in the configured data directory
+     */
+    public static Path defaultFile() {
+        return Paths.get(DataDirectory.file(FILE_NAME));
+    }
+
+    /**
+     * Tells whether the snapshot exists and is at least as recent as every
+     * CSV data file and journal in the same directory, so loading it gives
+     * the same state as loading the CSVs.
+     *
+     * @param snapshot the snapshot file
+     * @return true if the snapshot can be used instead of the CSV files
+     */
+    public static boolean isUpToDate(Path snapshot) {
+        try {
+            if (!Files.isRegularFile(snapshot)) return false;
+
+            long stamp = Files.getLastModifiedTime(snapshot).toMillis();
+            Path dir = snapshot.toAbsolutePath().getParent();
+            for (String name : DATA_FILES) {
+                for (Path p : List.of(dir.resolve(name), dir.resolve(name + Journal.SUFFIX))) {
+                    if (Files.exists(p) && Files.getLastModifiedTime(p).toMillis() > stamp) return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the current state of all services to the given file. The data is
+     * written to a temporary file first and moved into place, so a crash never
+     * leaves a half-written snapshot behind.
+     *
+     * @param file the snapshot file
+     */
+    public void write(Path file) {
+        long current = currentGeneration();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = parent.resolve(file.getFileName() + ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+
+                writeUsers(out, userService.getAllUsers());
+                writeBooks(out, bookService.getAllBooks());
+                writeCDs(out, cdService.getAllCDs());
+                writeLoans(out, loanService.getAllLoans());
+                writeCDLoans(out, cdLoanService.getAllCDLoans());
+                writeAdmins(out, adminService.getAllAdmins());
+            }
+
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            generation = current;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Tells whether the services hold exactly the state this snapshot last
+     * read or wrote, i.e. none of them changed since.
+     *
+     * @return true if writing the snapshot again would not change it
+     */
+    public boolean isCurrent() {
+        return generation == currentGeneration();
+    }
+
+    /**
+     * Sum of the services' generations; it changes whenever one of them changes.
+     */
+    private long currentGeneration() {
+        return userService.getGeneration()
+                + bookService.getGeneration()
+                + cdService.getGeneration()
+                + loanService.getGeneration()
+                + cdLoanService.getGeneration()
+                + adminService.getGeneration();
+    }
+
+    /**
+     * Replaces the state of all services with the content of the given file.
+     *
+     * @param file the snapshot file
+     * @throws IllegalStateException if the file is not a snapshot or has another version
+     */
+    public void read(Path file) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+
+            if (in.readInt() != MAGIC) throw new IllegalStateException("Not a library snapshot: " + file);
+            int version = in.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported snapshot version " + version + ": " + file);
+            }
+
+            Strings strings = new Strings();
+
+            userService.restoreUsers(readUsers(in, strings));
+            bookService.restoreBooks(readBooks(in, strings));
+            cdService.restoreCDs(readCDs(in, strings));
+            loanService.restoreLoans(readLoans(in, strings));
+            cdLoanService.restoreCDLoans(readLoans(in, strings), cdService.getAllCDs());
+            adminService.restoreAdmins(readAdmins(in, strings));
+            generation = currentGeneration();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void writeUsers(DataOutputStream out, List<User> users) throws IOException {
+        out.writeInt(users.size());
+        for (User u : users) {
+            writeString(out, u.getUserName());
+            writeString(out, u.getEmail());
+            out.writeDouble(u.getFineBalance());
+        }
+    }
+
+    private static List<User> readUsers(DataInputStream in, Strings strings) throws IOException {
+        int n = in.readInt();
+        List<User> users = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            User u = new User(strings.read(in), strings.read(in));
+            u.setFineBalance(in.readDouble());
+            users.add(u);
+        }
+        return users;
+    }
+
+    private static void writeBooks(DataOutputStream out, List<Book> books) throws IOException {
+        out.writeInt(books.size());
+        for (Book b : books) {
+            writeString(out, b.getTitle());
+            writeString(out, b.getAuthor());
+            writeString(out, b.getIsbn());
+            writeItemState(out, b.isAvailable(), b.getBorrowEpochDay(), b.getDueEpochDay());
+        }
+    }
+
+    private static List<Book> readBooks(DataInputStream in, Strings strings) throws IOException {
+        int n = in.readInt();
+        List<Book> books = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Book b = new Book(strings.read(in), strings.read(in), strings.read(in));
+
+            int flags = in.readUnsignedByte();
+            b.setAvailable((flags & AVAILABLE) != 0);
+            b.setBorrowDate(readOptionalDate(in, flags, HAS_BORROW_DATE));
+            b.setDueDate(readOptionalDate(in, flags, HAS_DUE_DATE));
+            books.add(b);
+        }
+        return books;
+    }
+
+    private static void writeCDs(DataOutputStream out, List<CD> cds) throws IOException {
+        out.writeInt(cds.size());
+        for (CD c : cds) {
+            writeString(out, c.getTitle());
+            writeString(out, c.getArtist());
+            writeString(out, c.getId());
+            writeItemState(out, c.isAvailable(), c.getBorrowEpochDay(), c.getDueEpochDay());
+        }
+    }
+
+    private static List<CD> readCDs(DataInputStream in, Strings strings) throws IOException {
+        int n = in.readInt();
+        List<CD> cds = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            CD cd = new CD(strings.read(in), strings.read(in), strings.read(in));
+
+            int flags = in.readUnsignedByte();
+            LocalDate borrow = readOptionalDate(in, flags, HAS_BORROW_DATE);
+            LocalDate due = readOptionalDate(in, flags, HAS_DUE_DATE);
+
+            if ((flags & AVAILABLE) == 0) {
+                cd.setAvailable(false);
+                cd.setBorrowDate(borrow);
+                cd.setDueDate(due);
+            }
+            cds.add(cd);
+        }
+        return cds;
+    }
+
+    private static void writeLoans(DataOutputStream out, List<Loan> loans) throws IOException {
+        synchronized (loans) {
+            out.writeInt(loans.size());
+            for (Loan l : loans) {
+                writeLoan(out, l.getUser().getUserName(), l.getBook().getIsbn(),
+                        l.getBorrowEpochDay(), l.getDueEpochDay(), l.isActive());
+            }
+        }
+    }
+
+    private static void writeCDLoans(DataOutputStream out, List<CDLoan> loans) throws IOException {
+        synchronized (loans) {
+            out.writeInt(loans.size());
+            for (CDLoan l : loans) {
+                writeLoan(out, l.getUser().getUserName(), l.getCD().getId(),
+                        l.getBorrowEpochDay(), l.getDueEpochDay(), l.isActive());
+            }
+        }
+    }
+
+    private static void writeLoan(DataOutputStream out, String userName, String itemId,
+                                  int borrow, int due, boolean active) throws IOException {
+        writeString(out, userName);
+        writeString(out, itemId);
+        writeDates(out, active ? ACTIVE : 0, borrow, due);
+    }
+
+    private static List<LoanService.LoanRecord> readLoans(DataInputStream in, Strings strings) throws IOException {
+        int n = in.readInt();
+        List<LoanService.LoanRecord> records = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String userName = strings.read(in);
+            String itemId = strings.read(in);
+
+            int flags = in.readUnsignedByte();
+            LocalDate borrow = readOptionalDate(in, flags, HAS_BORROW_DATE);
+            LocalDate due = readOptionalDate(in, flags, HAS_DUE_DATE);
+
+            records.add(new LoanService.LoanRecord(userName, itemId, borrow, due, (flags & ACTIVE) != 0));
+        }
+        return records;
+    }
+
+    private static void writeAdmins(DataOutputStream out, List<Admin> admins) throws IOException {
+        out.writeInt(admins.size());
+        for (Admin a : admins) {
+            writeString(out, a.getUserName());
+            out.writeInt(a.getAdminId());
+            writeString(out, a.getPassword());
+        }
+    }
+
+    private static List<Admin> readAdmins(DataInputStream in, Strings strings) throws IOException {
+        int n = in.readInt();
+        List<Admin> admins = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String userName = strings.read(in);
+            int id = in.readInt();
+            admins.add(new Admin(userName, id, strings.read(in)));
+        }
+        return admins;
+    }
+
+    private static void writeItemState(DataOutputStream out, boolean available,
+                                       int borrow, int due) throws IOException {
+        writeDates(out, available ? AVAILABLE : 0, borrow, due);
+    }
+
+    private static void writeDates(DataOutputStream out, int flags, int borrow, int due) throws IOException {
+        flags |= (borrow != EpochDays.NONE ? HAS_BORROW_DATE : 0)
+                | (due != EpochDays.NONE ? HAS_DUE_DATE : 0);
+        out.writeByte(flags);
+        if (borrow != EpochDays.NONE) out.writeInt(borrow);
+        if (due != EpochDays.NONE) out.writeInt(due);
+    }
+
+    private static LocalDate readOptionalDate(DataInputStream in, int flags, int bit) throws IOException {
+        return (flags & bit) != 0 ? EpochDays.toDate(in.readInt()) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeByte(0);
+            return;
+        }
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int v = bytes.length + 1;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads length-prefixed strings through one reusable byte buffer.
+     */
+    private static final class Strings {
+
+        private byte[] buf = new byte[64];
+
+        String read(DataInputStream in) throws IOException {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.readUnsignedByte();
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+                if (shift > 21) throw new IOException("Malformed string length");
+            }
+            if (v == 0) return null;
+
+            int len = v - 1;
+            if (len > buf.length) buf = new byte[Math.max(len, buf.length * 2)];
+            in.readFully(buf, 0, len);
+            return new String(buf, 0, len, StandardCharsets.UTF_8);
+        }
+    }
+}
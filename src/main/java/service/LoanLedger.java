@@ -0,0 +1,270 @@
+package service;
+
+import domain.DueDateListener;
+import domain.EpochDays;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * List of all loans (active and returned) that also indexes the active loans
+ * by due date and by borrowed item. Loan services expose it as their live
+ * loan list, so loans added or removed through the list are indexed automatically.
+ *
+ * {@link #overdueAt(LocalDate)} only visits loans due before the given date
+ * instead of the whole history, and {@link #activeLoanFor(Object)} finds the
+ * current loan of a book or CD in constant time. A loan returned without going
+ * through {@link #returned(Object)} stays indexed until a query runs into it
+ * and drops it.
+ *
+ * The ledger registers itself as the {@link DueDateListener} of the loans it
+ * indexes, so a loan whose due date changes is moved to its new place. Loans
+ * without a due date cannot be ordered; they are kept aside and checked on
+ * every query.
+ *
+ * Due dates are read and keyed as epoch days, so indexing and overdue scans
+ * compare ints instead of building a {@link LocalDate} per loan.
+ *
+ * Not synchronized; services work through {@link #synchronizedView()}, whose
+ * lock also guards the due date updates.
+ *
+ * @param <T> the loan type (Loan or CDLoan)
+ */
+final class LoanLedger<T> extends AbstractList<T> implements RandomAccess {
+
+    private final List<T> all = new ArrayList<>();
+    private final TreeMap<Integer, Set<T>> activeByDue = new TreeMap<>();
+    private final Set<T> undated = new LinkedHashSet<>();
+    private final Map<Object, T> activeByItem = new HashMap<>();
+
+    private final Function<T, Object> item;
+    private final ToIntFunction<T> dueDay;
+    private final Predicate<T> active;
+    private final OverdueTest<T> overdueAt;
+    private final BiConsumer<T, DueDateListener<T>> listen;
+    private final DueDateListener<T> reindex = this::dueDateChanged;
+    private volatile Object mutex = this;
+
+    /**
+     * @param item      reads the borrowed item (Book or CD) of a loan
+     * @param dueDay    reads a loan's due date as an epoch day ({@link EpochDays#NONE} if unset)
+     * @param active    tells whether a loan is still active
+     * @param overdueAt tells whether a loan is overdue on a given epoch day
+     * @param listen    sets a loan's due date listener
+     */
+    LoanLedger(Function<T, Object> item, ToIntFunction<T> dueDay,
+               Predicate<T> active, OverdueTest<T> overdueAt,
+               BiConsumer<T, DueDateListener<T>> listen) {
+        this.item = item;
+        this.dueDay = dueDay;
+        this.active = active;
+        this.overdueAt = overdueAt;
+        this.listen = listen;
+    }
+
+    /**
+     * Wraps the ledger with {@link Collections#synchronizedList}. Due date
+     * changes reported by the loans are applied under the view's lock.
+     *
+     * @return the synchronized view
+     */
+    List<T> synchronizedView() {
+        List<T> view = Collections.synchronizedList(this);
+        mutex = view;
+        return view;
+    }
+
+    @Override
+    public T get(int index) {
+        return all.get(index);
+    }
+
+    @Override
+    public int size() {
+        return all.size();
+    }
+
+    @Override
+    public void add(int index, T loan) {
+        all.add(index, loan);
+        index(loan);
+    }
+
+    @Override
+    public T set(int index, T loan) {
+        T old = all.set(index, loan);
+        unindex(old);
+        index(loan);
+        return old;
+    }
+
+    @Override
+    public T remove(int index) {
+        T old = all.remove(index);
+        unindex(old);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        all.clear();
+        activeByDue.clear();
+        undated.clear();
+        activeByItem.clear();
+    }
+
+    /**
+     * Returns the active loan of the given item.
+     *
+     * @param borrowed the book or CD
+     * @return the item's active loan, or null if it is not lent out
+     */
+    T activeLoanFor(Object borrowed) {
+        if (borrowed == null) return null;
+
+        T loan = activeByItem.get(borrowed);
+        if (loan != null && !active.test(loan)) {
+            activeByItem.remove(borrowed);
+            return null;
+        }
+        return loan;
+    }
+
+    /**
+     * Removes a loan from the due-date and item indexes after it was returned.
+     * The loan stays in the list.
+     *
+     * @param loan the returned loan
+     */
+    void returned(T loan) {
+        unindex(loan);
+    }
+
+    /**
+     * Returns the active loans that are overdue on the given date, ordered by due date.
+     * Entries for loans that were returned meanwhile are dropped on the way.
+     *
+     * @param date the reference date
+     * @return the overdue loans
+     */
+    List<T> overdueAt(LocalDate date) {
+        int today = EpochDays.of(date);
+        List<T> out = new ArrayList<>();
+
+        Iterator<Map.Entry<Integer, Set<T>>> buckets = activeByDue.headMap(today, false).entrySet().iterator();
+        while (buckets.hasNext()) {
+            Set<T> bucket = buckets.next().getValue();
+
+            for (Iterator<T> it = bucket.iterator(); it.hasNext(); ) {
+                T loan = it.next();
+                if (!active.test(loan)) {
+                    it.remove();
+                } else if (overdueAt.isOverdue(loan, today)) {
+                    out.add(loan);
+                }
+            }
+            if (bucket.isEmpty()) buckets.remove();
+        }
+
+        for (T loan : undated) {
+            if (overdueAt.isOverdue(loan, today)) out.add(loan);
+        }
+        return out;
+    }
+
+    /**
+     * @return number of loans currently held in the due-date index
+     */
+    int indexedCount() {
+        int n = undated.size();
+        for (Set<T> bucket : activeByDue.values()) {
+            n += bucket.size();
+        }
+        return n;
+    }
+
+    private void index(T loan) {
+        if (loan == null) return;
+
+        Object borrowed = item.apply(loan);
+        if (borrowed != null && active.test(loan)) {
+            T current = activeByItem.get(borrowed);
+            if (current == null || !active.test(current)) {
+                activeByItem.put(borrowed, loan);
+            }
+        }
+
+        if (indexDue(loan)) {
+            listen.accept(loan, reindex);
+        }
+    }
+
+    private void unindex(T loan) {
+        if (loan == null) return;
+
+        Object borrowed = item.apply(loan);
+        if (borrowed != null) {
+            activeByItem.remove(borrowed, loan);
+        }
+
+        unindexDue(loan, dueDay.applyAsInt(loan));
+    }
+
+    /**
+     * Moves a loan whose due date changed. Loans that are no longer in the
+     * due-date index are left alone.
+     */
+    private void dueDateChanged(T loan, int oldDueDay) {
+        synchronized (mutex) {
+            if (unindexDue(loan, oldDueDay)) {
+                indexDue(loan);
+            }
+        }
+    }
+
+    private boolean indexDue(T loan) {
+        int due = dueDay.applyAsInt(loan);
+        if (due == EpochDays.NONE) {
+            return undated.add(loan);
+        }
+        if (!active.test(loan)) return false;
+
+        return activeByDue.computeIfAbsent(due, d -> new LinkedHashSet<>()).add(loan);
+    }
+
+    private boolean unindexDue(T loan, int due) {
+        if (due == EpochDays.NONE) {
+            return undated.remove(loan);
+        }
+
+        Set<T> bucket = activeByDue.get(due);
+        if (bucket == null || !bucket.remove(loan)) return false;
+
+        if (bucket.isEmpty()) activeByDue.remove(due);
+        return true;
+    }
+
+    /**
+     * Tells whether a loan is overdue on a day given as an epoch day.
+     *
+     * @param <T> the loan type
+     */
+    @FunctionalInterface
+    interface OverdueTest<T> {
+        boolean isOverdue(T loan, int todayEpochDay);
+    }
+}
@@ -1,25 +1,51 @@
 package service;
 
 import domain.Book;
+import domain.EpochDays;
 import domain.Loan;
 import domain.User;
+import file.DataDirectory;
+import file.CsvRecord;
 import file.FileManager;
+import file.GroupCommit;
+import file.Journal;
+import file.StringPool;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Provides services for managing book loans in the library system.
  * This class supports creating loans, returning loans, loading/saving data,
  * and retrieving overdue loans.
+ *
+ * Borrowing and returning are safe to call from several threads. Each
+ * operation holds a lock chosen by the book's ISBN, so the availability
+ * check and the loan creation happen atomically per book while operations
+ * on other books proceed in parallel. Full saves take a write lock that
+ * excludes all borrows and returns, so a save never misses a change whose
+ * journal record it is about to clear.
  */
 public class LoanService {
 
-    private final List<Loan> loans = new ArrayList<>();
+    private final LoanLedger<Loan> ledger = new LoanLedger<>(Loan::getBook, Loan::getDueEpochDay, Loan::isActive, Loan::isOverdue,
+            Loan::setDueDateListener);
+    private final List<Loan> loans = ledger.synchronizedView();
+    private final StripedLocks itemLocks = new StripedLocks(1024);
+    private final ReentrantReadWriteLock saveLock = new ReentrantReadWriteLock();
     private final BookService bookService;
     private final UserService userService;
-    private static final String LOANS_FILE = "src/main/resources/data/loans.txt";
+    private static final String LOANS_FILE = DataDirectory.file("loans.txt");
+    private static final Function<String, String> LOAN_KEY = Journal.columnKey(0, 3);
+    private final Journal journal = new Journal(LOANS_FILE);
+    private final ChangeTracker changes = new ChangeTracker();
+    private boolean journaling;
+    private Clock clock = Clock.systemDefaultZone();
 
     /**
      * Creates a new LoanService with required dependencies.
@@ -32,6 +58,37 @@ public class LoanService {
         this.userService = userService;
     }
 
+    /**
+     * Enables or disables journaled persistence. When enabled, each new or
+     * returned loan is appended to a journal next to the loans file instead of
+     * rewriting the whole history; {@link #saveAllLoansToFile()} folds the
+     * journal back into the file.
+     *
+     * @param journaling true to append changes to the journal
+     */
+    public void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+    }
+
+    /**
+     * Attaches the commit stage that decides when journal records reach the disk.
+     *
+     * @param groupCommit the commit stage, or null to leave forcing to the operating system
+     */
+    public void setGroupCommit(GroupCommit groupCommit) {
+        journal.setGroupCommit(groupCommit);
+    }
+
+    /**
+     * Sets the clock that provides the business date for borrowing and overdue checks.
+     * Each operation reads the date once, so all items it looks at share the same day.
+     *
+     * @param clock the clock to use
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
     /**
      * Creates a new loan for the given user and book.
      * The loan is created only if user has no fine balance, has no overdue loans,
@@ -43,72 +100,131 @@ public class LoanService {
      */
     public boolean createLoan(User user, Book book) {
         if (user.getFineBalance() > 0) return false;
-        if (user.hasOverdueLoans()) return false;
-        if (book.isBorrowed()) return false;
 
-        Loan loan = new Loan(user, book);
+        LocalDate today = LocalDate.now(clock);
+        if (user.hasOverdueLoans(today)) return false;
 
-        user.addLoan(loan);
-        loans.add(loan);
+        ReentrantLock lock = itemLocks.lockFor(book.getIsbn());
+        saveLock.readLock().lock();
+        lock.lock();
+        try {
+            if (book.isBorrowed()) return false;
 
-        saveAllLoansToFile();
+            Loan loan = new Loan(user, book, today);
+
+            try {
+                user.addLoan(loan, today);
+            } catch (IllegalStateException e) {
+                // the user got a fine or an overdue loan since the checks above
+                book.returnBook();
+                return false;
+            }
+            loans.add(loan);
+            changes.changed();
+
+            if (journaling) appendToJournal(loan, true);
+        } finally {
+            lock.unlock();
+            saveLock.readLock().unlock();
+        }
+
+        saveIfNeeded();
         return true;
     }
 
     /**
      * Saves all valid loans to the storage file using a comma-separated format:
      * userName,isbn,borrowDate,dueDate,active
+     * Any pending journal records are folded into the file and the journal is cleared.
      */
     public void saveAllLoansToFile() {
-        List<String> lines = new ArrayList<>();
-
-        for (Loan loan : loans) {
-            if (!isValidForSave(loan)) continue;
-
-            lines.add(buildCsvLine(
-                    loan.getUser().getUserName(),
-                    loan.getBook().getIsbn(),
-                    loan.getBorrowDate(),
-                    loan.getDueDate(),
-                    loan.isActive()
-            ));
+        saveLock.writeLock().lock();
+        try {
+            long generation = changes.generation();
+            List<String> lines = new ArrayList<>();
+
+            synchronized (loans) {
+                for (Loan loan : loans) {
+                    if (!isValidForSave(loan)) continue;
+
+                    lines.add(buildCsvLine(
+                            loan.getUser().getUserName(),
+                            loan.getBook().getIsbn(),
+                            loan.getBorrowDate(),
+                            loan.getDueDate(),
+                            loan.isActive()
+                    ));
+                }
+            }
+
+            FileManager.writeLines(LOANS_FILE, lines);
+            journal.reset();
+            changes.saved(generation);
+        } finally {
+            saveLock.writeLock().unlock();
         }
+    }
+
+    /**
+     * @return number of changes made to the loans so far; grows with every change
+     */
+    public long getGeneration() {
+        return changes.generation();
+    }
 
-        FileManager.writeLines(LOANS_FILE, lines);
+    /**
+     * @return true if the loans file does not hold the current loans, because
+     *         they changed since it was last written or the journal still has records
+     */
+    public boolean isDirty() {
+        return changes.isDirty() || journal.size() > 0;
     }
 
     /**
-     * Loads loans from the storage file into memory.
+     * Rewrites the loans file only if it is dirty, e.g. on shutdown.
+     *
+     * @return true if the file was written
+     */
+    public boolean saveLoansIfDirty() {
+        if (!isDirty()) return false;
+        saveAllLoansToFile();
+        return true;
+    }
+
+    /**
+     * Loads loans from the storage file into memory, replaying any journal
+     * records written since the file was last saved. Large files are parsed
+     * in parallel chunks; users and books are resolved afterwards in file order.
      * Invalid or incomplete lines are ignored.
      * If the referenced user or book does not exist, the record is skipped.
      */
     public void loadLoansFromFile() {
-        loans.clear();
-        List<String> lines = FileManager.readLines(LOANS_FILE);
-        if (lines == null) return;
-
-        for (String line : lines) {
-            if (line == null || line.isBlank()) continue;
-
-            String[] p = line.split(",");
-            if (p.length < 5) continue;
-
-            LoanRecord r = parseLoanRecord(p);
-            if (r == null) continue;
+        restoreLoans(journal.parse(LOAN_KEY, LoanService::parseLoanRecord));
+    }
 
+    /**
+     * Replaces all loans with the given records, as if they had been loaded from file.
+     * Records whose user or book does not exist are skipped.
+     *
+     * @param records the loan records, in file order
+     */
+    void restoreLoans(List<LoanRecord> records) {
+        loans.clear();
+        for (LoanRecord r : records) {
             User user = userService.findUserByName(r.userName);
             Book book = bookService.findBookByISBN(r.itemId);
             if (user == null || book == null) continue;
 
-            applyBookState(book, r.borrowDate, r.dueDate, r.active);
+            applyBookState(book, r.borrowDay, r.dueDay, r.active);
 
-            Loan loan = new Loan(user, book, r.borrowDate, r.dueDate, r.active);
+            Loan loan = new Loan(user, book, r.borrowDay, r.dueDay, r.active);
             loans.add(loan);
 
             if (r.active) {
                 user.getActiveBookLoans().add(loan);
             }
         }
+        changes.loaded();
     }
 
     /**
@@ -121,15 +237,30 @@ public class LoanService {
      * @return true if a matching active loan was returned, false otherwise
      */
     public boolean returnLoan(User user, Book book) {
-        for (Loan loan : loans) {
-            if (isMatchingActiveLoan(loan, user, book)) {
-                loan.returnBook();
-                user.returnLoan(loan);
-                saveAllLoansToFile();
-                return true;
+        if (book == null) return false;
+
+        ReentrantLock lock = itemLocks.lockFor(book.getIsbn());
+        saveLock.readLock().lock();
+        lock.lock();
+        try {
+            Loan loan = findActiveLoan(user, book);
+            if (loan == null) return false;
+
+            loan.returnBook();
+            user.returnLoan(loan);
+            synchronized (loans) {
+                ledger.returned(loan);
             }
+            changes.changed();
+
+            if (journaling) appendToJournal(loan, false);
+        } finally {
+            lock.unlock();
+            saveLock.readLock().unlock();
         }
-        return false;
+
+        saveIfNeeded();
+        return true;
     }
 
     /**
@@ -138,17 +269,26 @@ public class LoanService {
      * @return list of overdue loans
      */
     public List<Loan> getOverdueLoans() {
-        List<Loan> out = new ArrayList<>();
-        for (Loan loan : loans) {
-            if (loan.isOverdue()) {
-                out.add(loan);
-            }
+        return getOverdueLoans(LocalDate.now(clock));
+    }
+
+    /**
+     * Returns the loans that are overdue on the given date, ordered by due date.
+     * Only active loans due before that date are visited, not the whole history.
+     *
+     * @param date the reference date
+     * @return list of overdue loans
+     */
+    public List<Loan> getOverdueLoans(LocalDate date) {
+        synchronized (loans) {
+            return ledger.overdueAt(date);
         }
-        return out;
     }
 
     /**
      * Returns all loans currently loaded in memory.
+     * The list is synchronized; iterate over it inside {@code synchronized (list)}
+     * when other threads may be borrowing or returning.
      *
      * @return list of all loans
      */
@@ -156,6 +296,65 @@ public class LoanService {
         return loans;
     }
 
+    /**
+     * Returns the active loan of the given book, looked up by item instead of
+     * scanning the loan history.
+     *
+     * @param book the book
+     * @return the book's active loan, or null if it is not borrowed
+     */
+    public Loan findActiveLoan(Book book) {
+        synchronized (loans) {
+            return ledger.activeLoanFor(book);
+        }
+    }
+
+    /**
+     * Finds the active loan of the given user for the given book.
+     *
+     * @param user the loan owner
+     * @param book the borrowed book
+     * @return the matching active loan, or null if there is none
+     */
+    private Loan findActiveLoan(User user, Book book) {
+        Loan loan = findActiveLoan(book);
+        return loan != null && isMatchingActiveLoan(loan, user, book) ? loan : null;
+    }
+
+    /**
+     * Rewrites the loans file after a change: always without journaling,
+     * and once the journal is large when journaling.
+     */
+    private void saveIfNeeded() {
+        if (!journaling || journal.needsCompaction()) {
+            saveAllLoansToFile();
+        }
+    }
+
+    /**
+     * Appends a single loan to the journal. Called while holding the book's
+     * lock, so records for the same book are written in operation order.
+     * A loan is keyed by user, ISBN and borrow date, so a return replaces the
+     * row written when the loan was created.
+     *
+     * @param loan    the new or returned loan
+     * @param created true for a new loan, false for a state change
+     */
+    private void appendToJournal(Loan loan, boolean created) {
+        if (!isValidForSave(loan)) return;
+
+        String line = buildCsvLine(
+                loan.getUser().getUserName(),
+                loan.getBook().getIsbn(),
+                loan.getBorrowDate(),
+                loan.getDueDate(),
+                loan.isActive()
+        );
+
+        if (created) journal.add(line);
+        else journal.put(line);
+    }
+
     /**
      * Checks whether a loan contains the minimum required fields to be persisted.
      *
@@ -205,8 +404,8 @@ public class LoanService {
      */
     static String buildCsvLine(String userName, String itemId, LocalDate borrowDate, LocalDate dueDate, boolean active) {
         return String.join(",",
-                userName,
-                itemId,
+                CsvRecord.quote(userName),
+                CsvRecord.quote(itemId),
                 borrowDate.toString(),
                 dueDate.toString(),
                 String.valueOf(active)
@@ -230,31 +429,34 @@ public class LoanService {
     /**
      * Applies the loaded loan state to the book object (availability and dates).
      *
-     * @param book       the book to update
-     * @param borrowDate the borrow date
-     * @param dueDate    the due date
-     * @param active     whether the loan is active
+     * @param book      the book to update
+     * @param borrowDay the borrow date as an epoch day
+     * @param dueDay    the due date as an epoch day
+     * @param active    whether the loan is active
      */
-    private static void applyBookState(Book book, LocalDate borrowDate, LocalDate dueDate, boolean active) {
+    private static void applyBookState(Book book, int borrowDay, int dueDay, boolean active) {
         book.setAvailable(!active);
-        book.setBorrowDate(active ? borrowDate : null);
-        book.setDueDate(active ? dueDate : null);
+        book.setBorrowEpochDay(active ? borrowDay : EpochDays.NONE);
+        book.setDueEpochDay(active ? dueDay : EpochDays.NONE);
     }
 
     /**
-     * Parses a loan record from the given CSV parts.
+     * Parses a loan record from the given CSV fields.
+     * User names repeat across loans and are taken from {@link StringPool#SHARED};
+     * item ids are mostly distinct and would only crowd the pool.
      *
-     * @param p split CSV parts (must have at least 5 elements)
-     * @return a LoanRecord instance, or null if parsing fails
+     * @param p CSV record
+     * @return a LoanRecord instance, or null if the line is blank, incomplete or parsing fails
      */
-    static LoanRecord parseLoanRecord(String[] p) {
+    static LoanRecord parseLoanRecord(CsvRecord p) {
+        if (p.isBlank() || p.size() < 5) return null;
+
         try {
-            String userName = p[0];
-            String itemId = p[1];
-            LocalDate borrowDate = LocalDate.parse(p[2]);
-            LocalDate dueDate = LocalDate.parse(p[3]);
-            boolean active = Boolean.parseBoolean(p[4]);
-            return new LoanRecord(userName, itemId, borrowDate, dueDate, active);
+            int borrowDay = p.getEpochDay(2, EpochDays.NONE);
+            int dueDay = p.getEpochDay(3, EpochDays.NONE);
+            if (borrowDay == EpochDays.NONE || dueDay == EpochDays.NONE) return null;
+
+            return new LoanRecord(p.get(0, StringPool.SHARED), p.get(1), borrowDay, dueDay, p.getBoolean(4));
         } catch (Exception e) {
             return null;
         }
@@ -266,15 +468,19 @@ public class LoanService {
     static final class LoanRecord {
         final String userName;
         final String itemId;
-        final LocalDate borrowDate;
-        final LocalDate dueDate;
+        final int borrowDay;
+        final int dueDay;
         final boolean active;
 
         LoanRecord(String userName, String itemId, LocalDate borrowDate, LocalDate dueDate, boolean active) {
+            this(userName, itemId, EpochDays.of(borrowDate), EpochDays.of(dueDate), active);
+        }
+
+        LoanRecord(String userName, String itemId, int borrowDay, int dueDay, boolean active) {
             this.userName = userName;
             this.itemId = itemId;
-            this.borrowDate = borrowDate;
-            this.dueDate = dueDate;
+            this.borrowDay = borrowDay;
+            this.dueDay = dueDay;
             this.active = active;
         }
     }
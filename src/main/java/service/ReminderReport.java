@@ -0,0 +1,78 @@
+package service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of one reminder run: how many reminders each notification
+ * channel delivered and how many failed. Channels are named after their
+ * observer class, e.g. {@code EmailNotifier}.
+ */
+public final class ReminderReport {
+
+    private final int users;
+    private final Map<String, Integer> delivered;
+    private final Map<String, Integer> failed;
+
+    ReminderReport(int users, Map<String, Integer> delivered, Map<String, Integer> failed) {
+        this.users = users;
+        this.delivered = Collections.unmodifiableMap(new LinkedHashMap<>(delivered));
+        this.failed = Collections.unmodifiableMap(new LinkedHashMap<>(failed));
+    }
+
+    /**
+     * @return number of users that had overdue items in this run
+     */
+    public int getUsers() {
+        return users;
+    }
+
+    /**
+     * @param channel the channel name
+     * @return reminders the channel delivered, 0 for an unknown channel
+     */
+    public int getDelivered(String channel) {
+        return delivered.getOrDefault(channel, 0);
+    }
+
+    /**
+     * @param channel the channel name
+     * @return reminders the channel failed to deliver, 0 for an unknown channel
+     */
+    public int getFailed(String channel) {
+        return failed.getOrDefault(channel, 0);
+    }
+
+    /**
+     * @return reminders delivered over all channels
+     */
+    public int getTotalDelivered() {
+        return delivered.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return reminders that failed over all channels
+     */
+    public int getTotalFailed() {
+        return failed.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return delivered count per channel, in registration order
+     */
+    public Map<String, Integer> getDeliveredByChannel() {
+        return delivered;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ReminderReport{users=").append(users);
+        for (Map.Entry<String, Integer> e : delivered.entrySet()) {
+            sb.append(", ").append(e.getKey())
+                    .append("=").append(e.getValue()).append(" delivered/")
+                    .append(failed.getOrDefault(e.getKey(), 0)).append(" failed");
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -1,9 +1,24 @@
 package service;
 
 import domain.*;
+import file.Outbox;
+import notification.NotificationException;
 import notification.Observer;
 
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * This service is responsible for sending reminder notifications to users
@@ -11,37 +26,125 @@ import java.util.*;
  * different notification handlers (such as email or SMS) can register
  * themselves as observers, and the service will notify all of them when
  * a reminder needs to be sent.
+ *
+ * Delivery is asynchronous. {@link #dispatchReminders} groups the overdue
+ * items per user, hands the reminders to a dispatcher thread and returns a
+ * future for the run. Every observer (channel) has its own bounded queue and
+ * its own workers, so a slow channel is worked off at its own pace. When a
+ * channel's queue is full the dispatcher waits for it instead of buffering
+ * the whole run. Workers are virtual threads when the runtime has them and
+ * daemon platform threads otherwise.
+ *
+ * With {@link #setRetryPolicy} a reminder whose observer throws
+ * {@link NotificationException} is queued again after a delay that doubles
+ * with every attempt. With {@link #setOutbox} every reminder is recorded in
+ * a file before it is queued and marked there once it was delivered or given
+ * up; {@link #resumeOutbox} queues the ones left over from the last run, so a
+ * crash does not lose reminders and does not require scanning the loans again.
  */
-public class ReminderService {
+public class ReminderService implements AutoCloseable {
 
-    private final List<Observer> observers = new ArrayList<>();
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Reminders recorded in the outbox with one write before they are queued.
+     */
+    static final int OUTBOX_BATCH = 256;
+
+    static final long MAX_BACKOFF_MILLIS = 5 * 60_000;
+
+    private static final ThreadFactory THREADS = reminderThreads();
+    private static final Job STOP = new Job(null, null, null, -1, 0);
+
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+    private final int queueCapacity;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(THREADS);
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(THREADS);
+    private final Set<Job> waiting = ConcurrentHashMap.newKeySet();
+    private volatile Outbox outbox;
+    private volatile int maxAttempts = 1;
+    private volatile long initialBackoffMillis;
+    private volatile boolean closed;
+
+    /**
+     * Creates a reminder service with the default queue capacity per channel.
+     */
+    public ReminderService() {
+        this(DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Creates a reminder service.
+     *
+     * @param queueCapacity reminders a channel may have waiting before the dispatcher blocks
+     */
+    public ReminderService(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive");
+        }
+        this.queueCapacity = queueCapacity;
+    }
 
     /**
      * Registers a new observer to receive reminders.
      * An observer will only be added if it is not null and not already registered.
+     * It is notified from a single worker thread.
      *
      * @param observer the observer to add
      * @return true if added successfully, false otherwise
      */
     public boolean addObserver(Observer observer) {
-        if (observer == null || observers.contains(observer)) {
+        return addObserver(observer, 1);
+    }
+
+    /**
+     * Registers a new observer that is notified by the given number of workers
+     * at the same time. Only thread-safe observers should use more than one.
+     *
+     * @param observer the observer to add
+     * @param workers  number of reminders delivered to this observer in parallel
+     * @return true if added successfully, false otherwise
+     */
+    public synchronized boolean addObserver(Observer observer, int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        if (observer == null || closed) {
             return false;
         }
-        observers.add(observer);
+        for (Channel channel : channels) {
+            if (channel.observer.equals(observer)) return false;
+        }
+        channels.add(new Channel(observer, channelName(observer), workers));
         return true;
     }
 
     /**
-     * Notifies all registered observers with a reminder message
-     * for a particular user.
+     * Sets how often a reminder is tried when its observer throws
+     * {@link NotificationException}. The first retry waits
+     * {@code initialBackoffMillis}, every further one twice as long as the
+     * one before, up to {@link #MAX_BACKOFF_MILLIS}. Other exceptions are not retried.
+     * By default a reminder is tried once.
      *
-     * @param user    the user receiving the reminder
-     * @param message the reminder message to send
+     * @param maxAttempts          attempts per reminder, including the first
+     * @param initialBackoffMillis delay before the first retry
      */
-    private void notifyObservers(User user, String message) {
-        for (Observer obs : observers) {
-            obs.notify(user, message);
+    public void setRetryPolicy(int maxAttempts, long initialBackoffMillis) {
+        if (maxAttempts < 1 || initialBackoffMillis < 0) {
+            throw new IllegalArgumentException("maxAttempts must be positive and initialBackoffMillis not negative");
         }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    /**
+     * Records every reminder in the given outbox before it is queued.
+     * The outbox is closed together with this service.
+     *
+     * @param outbox the outbox, or null to stop recording
+     */
+    public void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
     }
 
     /**
@@ -53,34 +156,424 @@ public class ReminderService {
      * This functionality supports the Sprint 5 requirement of
      * combined media overdue notifications.
      *
+     * Waits until every observer has handled its reminders;
+     * use {@link #dispatchReminders} to continue right away.
+     *
      * @param overdueBookLoans list of overdue book loans
      * @param overdueCDLoans   list of overdue CD loans
      */
     public void sendReminders(List<Loan> overdueBookLoans, List<CDLoan> overdueCDLoans) {
+        dispatchReminders(overdueBookLoans, overdueCDLoans).join();
+    }
+
+    /**
+     * Queues one reminder per user with overdue items for every observer and
+     * returns without waiting for delivery. The loan lists are read before
+     * this method returns.
+     *
+     * @param overdueBookLoans list of overdue book loans
+     * @param overdueCDLoans   list of overdue CD loans
+     * @return completes with the per-channel counts once every reminder was handled
+     * @throws IllegalStateException if the service was closed
+     */
+    public CompletableFuture<ReminderReport> dispatchReminders(List<Loan> overdueBookLoans,
+                                                               List<CDLoan> overdueCDLoans) {
+        if (closed) {
+            throw new IllegalStateException("ReminderService is closed");
+        }
 
         Map<User, Integer> overdueCountMap = new HashMap<>();
 
         for (Loan loan : overdueBookLoans) {
-            overdueCountMap.put(
-                    loan.getUser(),
-                    overdueCountMap.getOrDefault(loan.getUser(), 0) + 1
-            );
+            overdueCountMap.merge(loan.getUser(), 1, Integer::sum);
         }
 
         for (CDLoan cdLoan : overdueCDLoans) {
-            overdueCountMap.put(
-                    cdLoan.getUser(),
-                    overdueCountMap.getOrDefault(cdLoan.getUser(), 0) + 1
-            );
+            overdueCountMap.merge(cdLoan.getUser(), 1, Integer::sum);
+        }
+
+        List<Channel> targets = List.copyOf(channels);
+        Run run = new Run(targets, overdueCountMap.size(), overdueCountMap.size() * targets.size());
+        if (overdueCountMap.isEmpty() || targets.isEmpty()) {
+            return run.future;
+        }
+
+        for (Channel channel : targets) {
+            channel.start();
+        }
+        dispatcher.execute(() -> enqueue(overdueCountMap, targets, run));
+        return run.future;
+    }
+
+    /**
+     * Queues the reminders that were still pending in the outbox when the
+     * program stopped last time. Call it once, after the observers were
+     * registered: a reminder goes to the channel it was recorded for, and
+     * reminders of channels that are not registered stay in the outbox.
+     *
+     * @return completes with the counts for the resumed reminders;
+     *         an empty report without an outbox or without pending reminders
+     * @throws IllegalStateException if the service was closed
+     */
+    public CompletableFuture<ReminderReport> resumeOutbox() {
+        if (closed) {
+            throw new IllegalStateException("ReminderService is closed");
+        }
+
+        List<Channel> targets = List.copyOf(channels);
+        Outbox outbox = this.outbox;
+        List<Outbox.Entry> entries = new ArrayList<>();
+        List<Integer> channelIndex = new ArrayList<>();
+        Set<String> users = new HashSet<>();
+
+        if (outbox != null) {
+            for (Outbox.Entry entry : outbox.recover()) {
+                for (int i = 0; i < targets.size(); i++) {
+                    if (targets.get(i).name.equals(entry.getChannel())) {
+                        entries.add(entry);
+                        channelIndex.add(i);
+                        users.add(entry.getUserName());
+                        break;
+                    }
+                }
+            }
+        }
+
+        Run run = new Run(targets, users.size(), entries.size());
+        if (entries.isEmpty()) {
+            return run.future;
+        }
+
+        List<Job> jobs = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            Outbox.Entry entry = entries.get(i);
+            User user = new User(entry.getUserName(), entry.getEmail());
+            jobs.add(new Job(user, entry.getMessage(), run, channelIndex.get(i), entry.getId()));
+        }
+
+        for (Channel channel : targets) {
+            channel.start();
+        }
+        dispatcher.execute(() -> {
+            if (submit(jobs, null, false)) Thread.currentThread().interrupt();
+        });
+        return run.future;
+    }
+
+    /**
+     * Stops accepting reminders and waits until the queued ones are delivered,
+     * then stops the workers.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+        }
+
+        dispatcher.shutdown();
+        try {
+            while (!dispatcher.awaitTermination(1, TimeUnit.SECONDS)) {
+                // a full queue is still being worked off
+            }
+
+            // reminders waiting for a retry are not tried again; the outbox keeps them
+            retries.shutdownNow();
+            retries.awaitTermination(1, TimeUnit.MINUTES);
+            for (Job job : waiting) {
+                if (waiting.remove(job)) job.run.done(job.channel, false);
+            }
+
+            for (Channel channel : channels) {
+                channel.stop();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
+        Outbox outbox = this.outbox;
+        if (outbox != null) {
+            writeOutbox(outbox::close);
+        }
+    }
+
+    /**
+     * Puts the run's reminders on the channel queues, waiting while a queue is full.
+     * With an outbox, every batch is recorded with one write before it is queued.
+     * If the dispatcher is interrupted, the reminders not queued yet count as failed.
+     */
+    private void enqueue(Map<User, Integer> overdueCountMap, List<Channel> targets, Run run) {
+        Outbox outbox = this.outbox;
+        List<Job> batch = new ArrayList<>(OUTBOX_BATCH + targets.size());
+        boolean interrupted = false;
+
         for (Map.Entry<User, Integer> entry : overdueCountMap.entrySet()) {
             User user = entry.getKey();
             int count = entry.getValue();
 
             String message = "You have " + count + " overdue item(s).";
-            notifyObservers(user, message);
+            for (int i = 0; i < targets.size(); i++) {
+                long id = outbox == null || user == null ? 0 : record(outbox, targets.get(i), user, message);
+                batch.add(new Job(user, message, run, i, id));
+            }
+            if (batch.size() >= OUTBOX_BATCH) {
+                interrupted = submit(batch, outbox, interrupted);
+            }
+        }
+        interrupted = submit(batch, outbox, interrupted);
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the outbox, then queues the jobs and clears the list.
+     *
+     * @return whether the dispatcher was interrupted, now or before
+     */
+    private boolean submit(List<Job> jobs, Outbox outbox, boolean interrupted) {
+        if (outbox != null) {
+            writeOutbox(outbox::flush);
+        }
+
+        for (Job job : jobs) {
+            if (interrupted) {
+                job.run.done(job.channel, false);
+                continue;
+            }
+            try {
+                job.run.channels.get(job.channel).queue.put(job);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                job.run.done(job.channel, false);
+            }
+        }
+        jobs.clear();
+        return interrupted;
+    }
+
+    private long record(Outbox outbox, Channel channel, User user, String message) {
+        try {
+            return outbox.add(channel.name, user.getUserName(), user.getEmail(), message).getId();
+        } catch (RuntimeException e) {
+            System.out.println("ReminderService: could not record reminder in outbox: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * A reminder is delivered even if the outbox cannot be written; it is then just not durable.
+     */
+    private void writeOutbox(Runnable write) {
+        try {
+            write.run();
+        } catch (RuntimeException e) {
+            System.out.println("ReminderService: could not write outbox: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queues the job again after its backoff, if it has attempts left.
+     *
+     * @return false if the job failed for good
+     */
+    private boolean retry(Job job) {
+        if (++job.attempts >= maxAttempts) return false;
+
+        if (closed) {
+            // an outbox keeps the reminder for the next start
+            job.run.done(job.channel, false);
+            return true;
+        }
+
+        long delay = Math.min(MAX_BACKOFF_MILLIS, initialBackoffMillis << Math.min(job.attempts - 1, 20));
+        waiting.add(job);
+        try {
+            retries.schedule(() -> requeue(job), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            if (waiting.remove(job)) job.run.done(job.channel, false);
+        }
+        return true;
+    }
+
+    private void requeue(Job job) {
+        if (!waiting.remove(job)) return;
+        try {
+            job.run.channels.get(job.channel).queue.put(job);
+        } catch (InterruptedException e) {
+            job.run.done(job.channel, false);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Counts the job as handled and settles it in the outbox.
+     */
+    private void finish(Job job, boolean ok) {
+        Outbox outbox = this.outbox;
+        if (outbox != null && job.outboxId > 0) {
+            writeOutbox(ok ? () -> outbox.delivered(job.outboxId) : () -> outbox.abandoned(job.outboxId));
+        }
+        job.run.done(job.channel, ok);
+    }
+
+    private String channelName(Observer observer) {
+        String base = observer.getClass().getSimpleName();
+        if (base.isEmpty()) base = observer.getClass().getName();
+
+        String name = base;
+        int n = 2;
+        while (hasChannel(name)) {
+            name = base + "#" + n++;
+        }
+        return name;
+    }
+
+    private boolean hasChannel(String name) {
+        for (Channel channel : channels) {
+            if (channel.name.equals(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Virtual threads need Java 21; this project targets 17, so they are
+     * looked up reflectively and daemon platform threads are used without them.
+     */
+    private static ThreadFactory reminderThreads() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "reminder-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            AtomicInteger n = new AtomicInteger();
+            return task -> {
+                Thread thread = new Thread(task, "reminder-" + n.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /**
+     * One reminder for one channel. {@code outboxId} is 0 if it was not recorded.
+     */
+    private static final class Job {
+
+        final User user;
+        final String message;
+        final Run run;
+        final int channel;
+        final long outboxId;
+        int attempts;
+
+        Job(User user, String message, Run run, int channel, long outboxId) {
+            this.user = user;
+            this.message = message;
+            this.run = run;
+            this.channel = channel;
+            this.outboxId = outboxId;
+        }
+    }
+
+    /**
+     * Tracks one call of {@link #dispatchReminders} or {@link #resumeOutbox}
+     * until all of its reminders were handled.
+     */
+    private static final class Run {
+
+        final CompletableFuture<ReminderReport> future = new CompletableFuture<>();
+        final List<Channel> channels;
+        final int users;
+        final AtomicIntegerArray delivered;
+        final AtomicIntegerArray failed;
+        final AtomicInteger pending;
+
+        Run(List<Channel> channels, int users, int jobs) {
+            this.channels = channels;
+            this.users = users;
+            this.delivered = new AtomicIntegerArray(channels.size());
+            this.failed = new AtomicIntegerArray(channels.size());
+            this.pending = new AtomicInteger(jobs);
+            if (pending.get() == 0) complete();
+        }
+
+        void done(int channel, boolean ok) {
+            (ok ? delivered : failed).incrementAndGet(channel);
+            if (pending.decrementAndGet() == 0) complete();
+        }
+
+        private void complete() {
+            Map<String, Integer> d = new LinkedHashMap<>();
+            Map<String, Integer> f = new LinkedHashMap<>();
+            for (int i = 0; i < channels.size(); i++) {
+                d.put(channels.get(i).name, delivered.get(i));
+                f.put(channels.get(i).name, failed.get(i));
+            }
+            future.complete(new ReminderReport(users, d, f));
         }
     }
 
+    /**
+     * An observer with its queue and workers. Workers start with the first run.
+     */
+    private final class Channel {
+
+        final Observer observer;
+        final String name;
+        final BlockingQueue<Job> queue;
+        private final Thread[] workers;
+        private boolean started;
+
+        Channel(Observer observer, String name, int workers) {
+            this.observer = observer;
+            this.name = name;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.workers = new Thread[workers];
+        }
+
+        synchronized void start() {
+            if (started) return;
+            started = true;
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = THREADS.newThread(this::work);
+                workers[i].start();
+            }
+        }
+
+        synchronized void stop() throws InterruptedException {
+            if (!started) return;
+            for (int i = 0; i < workers.length; i++) {
+                queue.put(STOP);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        private void work() {
+            try {
+                while (true) {
+                    Job job = queue.take();
+                    if (job == STOP) return;
+
+                    boolean ok;
+                    try {
+                        observer.notify(job.user, job.message);
+                        ok = true;
+                    } catch (NotificationException e) {
+                        if (retry(job)) continue;
+                        ok = false;
+                    } catch (RuntimeException e) {
+                        ok = false;
+                    }
+                    finish(job, ok);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 }
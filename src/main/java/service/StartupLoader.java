@@ -0,0 +1,86 @@
+package service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Loads all data files at startup, running independent loads in parallel.
+ *
+ * Users, books, CDs and admins do not depend on each other and start right
+ * away. Loans wait for users and books, CD loans for users and CDs. All loads
+ * run on one fork/join pool, which large files also use to parse their chunks
+ * in parallel.
+ */
+public class StartupLoader {
+
+    private final UserService userService;
+    private final BookService bookService;
+    private final CDService cdService;
+    private final LoanService loanService;
+    private final CDLoanService cdLoanService;
+    private final AdminService adminService;
+
+    /**
+     * Creates a loader for the given services.
+     *
+     * @param userService   user service
+     * @param bookService   book service
+     * @param cdService     CD service
+     * @param loanService   book loan service
+     * @param cdLoanService CD loan service
+     * @param adminService  admin service
+     */
+    public StartupLoader(UserService userService,
+                         BookService bookService,
+                         CDService cdService,
+                         LoanService loanService,
+                         CDLoanService cdLoanService,
+                         AdminService adminService) {
+        this.userService = userService;
+        this.bookService = bookService;
+        this.cdService = cdService;
+        this.loanService = loanService;
+        this.cdLoanService = cdLoanService;
+        this.adminService = adminService;
+    }
+
+    /**
+     * Loads everything on a pool with one thread per available processor.
+     */
+    public void load() {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            load(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Loads everything on the given pool and waits until all loads are done.
+     * If a load fails, its exception is rethrown after the others finished.
+     *
+     * @param pool the pool to run the loads on
+     */
+    public void load(ForkJoinPool pool) {
+        CompletableFuture<Void> users = CompletableFuture.runAsync(userService::loadUsersFromFile, pool);
+        CompletableFuture<Void> books = CompletableFuture.runAsync(bookService::loadBooksFromFile, pool);
+        CompletableFuture<Void> cds = CompletableFuture.runAsync(cdService::loadCDsFromFile, pool);
+        CompletableFuture<Void> admins = CompletableFuture.runAsync(adminService::loadAdminsFromFile, pool);
+
+        CompletableFuture<Void> loans = CompletableFuture.allOf(users, books)
+                .thenRunAsync(loanService::loadLoansFromFile, pool);
+        CompletableFuture<Void> cdLoans = CompletableFuture.allOf(users, cds)
+                .thenRunAsync(() -> cdLoanService.loadCDLoansFromFile(cdService.getAllCDs()), pool);
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(users, books, cds, admins, loans, cdLoans);
+        try {
+            all.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+}
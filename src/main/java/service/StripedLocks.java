@@ -0,0 +1,47 @@
+package service;
+
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks selected by key hash. Loan services use it to make the
+ * check-then-act of borrowing and returning atomic per item (ISBN or CD id)
+ * without serializing operations on unrelated items.
+ */
+final class StripedLocks {
+
+    private final ReentrantLock[] locks;
+
+    /**
+     * Creates a pool with at least the given number of stripes,
+     * rounded up to a power of two.
+     *
+     * @param stripes minimum number of locks
+     */
+    StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the lock guarding the given key. Equal keys always map to the same lock.
+     *
+     * @param key the item key (may be null)
+     * @return the lock for that key
+     */
+    ReentrantLock lockFor(Object key) {
+        int h = Objects.hashCode(key);
+        h ^= (h >>> 16);
+        return locks[h & (locks.length - 1)];
+    }
+
+    /**
+     * @return number of locks in the pool
+     */
+    int size() {
+        return locks.length;
+    }
+}
@@ -1,10 +1,21 @@
 package service;
 
 import domain.User;
+import file.DataDirectory;
+import file.CsvRecord;
 import file.FileManager;
+import file.GroupCommit;
+import file.Journal;
+import file.StringPool;
 
+import java.time.Clock;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Provides services for managing users in the library system.
@@ -14,29 +25,82 @@ import java.util.List;
 public class UserService {
 
     private final List<User> users = new ArrayList<>();
-    private static final String USERS_FILE = "src/main/resources/data/users.txt";
+    private final ReentrantReadWriteLock saveLock = new ReentrantReadWriteLock();
+    private final Map<String, User> usersByName = new HashMap<>();
+    // guards users and usersByName; writers also hold the read side of saveLock
+    private final Object writeLock = new Object();
+    private static final String USERS_FILE = DataDirectory.file("users.txt");
+    private static final Function<String, String> NAME_KEY = Journal.columnKey(0, 1);
+    private final Journal journal = new Journal(USERS_FILE);
+    private final ChangeTracker changes = new ChangeTracker();
+    private boolean journaling;
+    private GroupCommit groupCommit;
+    private Clock clock = Clock.systemDefaultZone();
+
+    /**
+     * Enables or disables journaled persistence. When enabled, single-user
+     * changes are appended to a journal next to the users file instead of
+     * rewriting the whole file; {@link #saveUsers()} folds the journal back
+     * into the file.
+     *
+     * @param journaling true to append changes to the journal
+     */
+    public void setJournaling(boolean journaling) {
+        this.journaling = journaling;
+    }
+
+    /**
+     * Attaches the commit stage that decides when journal records reach the disk.
+     *
+     * @param groupCommit the commit stage, or null to leave forcing to the operating system
+     */
+    public void setGroupCommit(GroupCommit groupCommit) {
+        this.groupCommit = groupCommit;
+        journal.setGroupCommit(groupCommit);
+    }
+
+    /**
+     * Sets the clock that provides the business date for overdue checks.
+     *
+     * @param clock the clock to use
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
 
     /**
      * Adds a new user to the system if the username does not already exist
-     * (case-insensitive). After a successful insert, data is persisted to file.
+     * (case-insensitive). After a successful insert, the new user is persisted.
      *
      * @param name the user name
      * @param email the user email address
      * @return true if the user was added successfully, false otherwise
      */
     public boolean addUser(String name, String email) {
-
-        for (User u : users) {
-            if (u.getUserName() != null &&
-                    name != null &&
-                    u.getUserName().equalsIgnoreCase(name)) {
-                return false;
+        User user;
+        saveLock.readLock().lock();
+        try {
+            synchronized (writeLock) {
+                if (name != null && usersByName.containsKey(nameKey(name))) {
+                    return false;
+                }
+
+                user = new User(name, email);
+                users.add(user);
+                index(user);
+                changes.changed();
             }
+            if (journaling) journal.add(toCsvLine(user));
+        } finally {
+            saveLock.readLock().unlock();
         }
 
-        User user = new User(name, email);
-        users.add(user);
-        saveUsers();
+        if (journaling) {
+            compactIfNeeded();
+            if (groupCommit != null) groupCommit.commit();
+        } else {
+            saveUsers();
+        }
 
         return true;
     }
@@ -55,81 +119,145 @@ public class UserService {
      * Saves all users to the storage file using a comma-separated format:
      * name,email,fineBalance
      * If the email is null, it is stored as "null".
+     * Any pending journal records are folded into the file and the journal is cleared.
+     * Changes wait while the file is written, so a save never marks a later
+     * change as saved or clears its journal record.
      */
     public void saveUsers() {
+        saveLock.writeLock().lock();
+        try {
+            long generation = changes.generation();
+            List<String> lines = new ArrayList<>();
 
-        List<String> lines = new ArrayList<>();
+            for (User u : users) {
+                lines.add(toCsvLine(u));
+            }
 
-        for (User u : users) {
-            String line = u.getUserName() + "," +
-                    (u.getEmail() == null ? "null" : u.getEmail()) + "," +
-                    u.getFineBalance();
-            lines.add(line);
+            FileManager.writeLines(USERS_FILE, lines);
+            journal.reset();
+            changes.saved(generation);
+        } finally {
+            saveLock.writeLock().unlock();
         }
-
-        FileManager.writeLines(USERS_FILE, lines);
     }
 
     /**
-     * Loads all users from the storage file into memory.
-     * Invalid or incomplete lines are ignored.
+     * @return number of changes made to the users so far; grows with every change
      */
-    public void loadUsersFromFile() {
+    public long getGeneration() {
+        return changes.generation();
+    }
 
-        users.clear();
+    /**
+     * @return true if the users file does not hold the current users, because
+     *         they changed since it was last written or the journal still has records
+     */
+    public boolean isDirty() {
+        return changes.isDirty() || journal.size() > 0;
+    }
 
-        List<String> lines = FileManager.readLines(USERS_FILE);
-        if (lines == null) return;
+    /**
+     * Rewrites the users file only if it is dirty, e.g. on shutdown.
+     *
+     * @return true if the file was written
+     */
+    public boolean saveUsersIfDirty() {
+        if (!isDirty()) return false;
+        saveUsers();
+        return true;
+    }
 
-        for (String line : lines) {
+    /**
+     * Persists the current state of a single user, for example after a fine
+     * payment. In journaled mode only this user is written; otherwise the
+     * whole file is rewritten.
+     *
+     * @param user the user whose state changed
+     */
+    public void saveUser(User user) {
+        saveLock.readLock().lock();
+        try {
+            changes.changed();
+            if (journaling) journal.put(toCsvLine(user));
+        } finally {
+            saveLock.readLock().unlock();
+        }
 
-            if (line == null || line.isBlank())
-                continue;
+        if (journaling) {
+            compactIfNeeded();
+        } else {
+            saveUsers();
+        }
+    }
 
-            String[] p = line.split(",");
+    /**
+     * Loads all users from the storage file into memory, replaying any journal
+     * records written since the file was last saved. Large files are parsed
+     * in parallel chunks.
+     * Invalid or incomplete lines are ignored.
+     */
+    public void loadUsersFromFile() {
+        restoreUsers(journal.parse(NAME_KEY, UserService::parseUser));
+    }
 
-            if (p.length < 3)
-                continue;
+    /**
+     * Replaces all users with the given ones, as if they had been loaded from file.
+     *
+     * @param loaded the users to keep
+     */
+    void restoreUsers(List<User> loaded) {
+        synchronized (writeLock) {
+            users.clear();
+            usersByName.clear();
+
+            for (User u : loaded) {
+                users.add(u);
+                index(u);
+            }
+            changes.loaded();
+        }
+    }
 
-            String name = p[0];
+    /**
+     * Parses a user from a CSV record.
+     *
+     * @param p the record
+     * @return the user, or null if the line is blank or incomplete
+     */
+    private static User parseUser(CsvRecord p) {
 
-            String email;
-            if (p[1].equals("null")) {
-                email = null;
-            } else {
-                email = p[1];
-            }
+        if (p.isBlank() || p.size() < 3)
+            return null;
 
-            double fine = 0.0;
-            try {
-                fine = Double.parseDouble(p[2]);
-            } catch (Exception e) {
-                fine = 0.0;
-            }
+        String name = p.get(0, StringPool.SHARED);
 
-            User u = new User(name, email);
-            u.setFineBalance(fine);
+        String email = p.isNull(1) ? null : p.get(1);
 
-            users.add(u);
+        double fine = 0.0;
+        try {
+            fine = p.getDouble(2);
+        } catch (NumberFormatException e) {
+            fine = 0.0;
         }
+
+        User u = new User(name, email);
+        u.setFineBalance(fine);
+        return u;
     }
 
     /**
      * Finds a user by name (case-insensitive).
+     * Uses a hash index keyed by the case-folded name.
      *
      * @param name the user name to search for
      * @return the matching user, or null if not found
      */
     public User findUserByName(String name) {
         if (name == null) return null;
-
-        for (User u : users) {
-            if (u.getUserName() != null &&
-                    u.getUserName().equalsIgnoreCase(name)) {
-                return u;
-            }
+        String key = nameKey(name);
+        synchronized (writeLock) {
+            return usersByName.get(key);
         }
-        return null;
     }
 
     /**
@@ -138,7 +266,9 @@ public class UserService {
      * @return a list containing all users
      */
     public List<User> getAllUsers() {
-        return new ArrayList<>(users);
+        synchronized (writeLock) {
+            return new ArrayList<>(users);
+        }
     }
 
     /**
@@ -156,7 +286,7 @@ public class UserService {
         if (user.getFineBalance() > 0)
             return false;
 
-        return !user.hasOverdueLoans();
+        return !user.hasOverdueLoans(LocalDate.now(clock));
     }
 
     /**
@@ -164,7 +294,7 @@ public class UserService {
      * - no unpaid fines
      * - no active loans (books or CDs)
      *
-     * If the user is removed successfully, the updated list is saved to storage.
+     * If the user is removed successfully, the removal is persisted.
      *
      * @param user the user to remove
      * @return true if the user was removed successfully, false otherwise
@@ -177,13 +307,96 @@ public class UserService {
             return false;
         }
 
-        boolean removed = users.remove(user);
+        boolean removed;
+        saveLock.readLock().lock();
+        try {
+            synchronized (writeLock) {
+                removed = users.remove(user);
+                if (removed) {
+                    unindex(user);
+                    changes.changed();
+                }
+            }
+            if (removed && journaling) journal.delete(CsvRecord.quote(user.getUserName()));
+        } finally {
+            saveLock.readLock().unlock();
+        }
 
         if (removed) {
-            saveUsers();
+            if (journaling) {
+                compactIfNeeded();
+                if (groupCommit != null) groupCommit.commit();
+            } else {
+                saveUsers();
+            }
         }
 
         return removed;
     }
 
+    /**
+     * Adds a user to the name index. If another user already has the same
+     * name (ignoring case), the first one keeps the entry, matching the
+     * first-match behaviour of a list scan.
+     *
+     * @param user the user to index
+     */
+    private void index(User user) {
+        if (user.getUserName() != null) {
+            usersByName.putIfAbsent(nameKey(user.getUserName()), user);
+        }
+    }
+
+    /**
+     * Removes a user from the name index. If a loaded file held another
+     * user with the same name, that one takes over the entry.
+     *
+     * @param user the removed user
+     */
+    private void unindex(User user) {
+        if (user.getUserName() == null) return;
+
+        String key = nameKey(user.getUserName());
+        if (!usersByName.remove(key, user)) return;
+
+        for (User u : users) {
+            if (u.getUserName() != null && nameKey(u.getUserName()).equals(key)) {
+                usersByName.put(key, u);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Builds the index key for a user name: a locale-independent case fold
+     * that matches {@link String#equalsIgnoreCase(String)}.
+     *
+     * @param name the user name
+     * @return the index key
+     */
+    private static String nameKey(String name) {
+        return BookSearchIndex.foldCase(name);
+    }
+
+    /**
+     * Folds the journal into the users file once it grows past its threshold.
+     */
+    private void compactIfNeeded() {
+        if (journal.needsCompaction()) {
+            saveUsers();
+        }
+    }
+
+    /**
+     * Builds the CSV line for the given user: name,email,fineBalance.
+     *
+     * @param u the user
+     * @return a comma-separated string representing the user
+     */
+    private static String toCsvLine(User u) {
+        return CsvRecord.quote(u.getUserName()) + "," +
+                CsvRecord.quote(u.getEmail()) + "," +
+                u.getFineBalance();
+    }
+
 }
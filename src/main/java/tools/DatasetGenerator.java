@@ -0,0 +1,343 @@
+package tools;
+
+import file.Journal;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic data files in the CSV formats read by the services:
+ * users.txt, books.txt, cds.txt, loans.txt and cdloans.txt.
+ *
+ * Rows are streamed straight to disk, so the generator can write files with
+ * tens of millions of rows. The only per-item state kept in memory is the
+ * borrow date of items that end up with an active loan (two bytes per book or CD).
+ *
+ * Loans pick books and borrowers from Zipf distributions, so a few popular
+ * titles and heavy borrowers account for most of the history. Each item has
+ * at most one active loan, and the books and CDs files are written to agree
+ * with the active loans. The same seed always produces the same files.
+ *
+ * Usage:
+ * {@code java -cp target/classes tools.DatasetGenerator --out=target/data --books=1000000 --loans=5000000}
+ * Options: out, users, books, cds, loans, cdLoans, seed, activeRatio,
+ * overdueRatio, fineRatio, bookSkew, userSkew, today (ISO date).
+ */
+public class DatasetGenerator {
+
+    private static final int BOOK_LOAN_DAYS = 28;
+    private static final int CD_LOAN_DAYS = 7;
+    private static final int HISTORY_DAYS = 730;
+
+    private static final String[] ADJECTIVES = {
+            "Silent", "Hidden", "Broken", "Golden", "Distant", "Lost", "Crimson", "Quiet",
+            "Endless", "Frozen", "Ancient", "Bright", "Wild", "Last", "Secret", "Northern"
+    };
+    private static final String[] NOUNS = {
+            "River", "Garden", "Empire", "Island", "Winter", "Kingdom", "Harbor", "Forest",
+            "Algorithm", "Journey", "Library", "Mountain", "Shadow", "Voyage", "Signal", "Machine"
+    };
+
+    private int users = 1_000;
+    private int books = 10_000;
+    private int cds = 1_000;
+    private long loans = 20_000;
+    private long cdLoans = 2_000;
+    private long seed = 42;
+    private double activeRatio = 0.2;
+    private double overdueRatio = 0.1;
+    private double fineRatio = 0.05;
+    private double bookSkew = 1.0;
+    private double userSkew = 1.0;
+    private LocalDate today = LocalDate.now();
+
+    public void setUsers(int users) { this.users = requirePositive(users, "users"); }
+    public void setBooks(int books) { this.books = requirePositive(books, "books"); }
+    public void setCds(int cds) { this.cds = requirePositive(cds, "cds"); }
+    public void setLoans(long loans) { this.loans = requireNonNegative(loans, "loans"); }
+    public void setCdLoans(long cdLoans) { this.cdLoans = requireNonNegative(cdLoans, "cdLoans"); }
+    public void setSeed(long seed) { this.seed = seed; }
+    public void setActiveRatio(double activeRatio) { this.activeRatio = requireRatio(activeRatio, "activeRatio"); }
+    public void setOverdueRatio(double overdueRatio) { this.overdueRatio = requireRatio(overdueRatio, "overdueRatio"); }
+    public void setFineRatio(double fineRatio) { this.fineRatio = requireRatio(fineRatio, "fineRatio"); }
+    public void setBookSkew(double bookSkew) { this.bookSkew = requireNonNegative(bookSkew, "bookSkew"); }
+    public void setUserSkew(double userSkew) { this.userSkew = requireNonNegative(userSkew, "userSkew"); }
+    public void setToday(LocalDate today) { this.today = today; }
+
+    /**
+     * Writes all data files into the given directory, replacing existing
+     * files. Journals left next to them are removed, since they belong to
+     * the old data.
+     *
+     * @param dir the target directory (created if missing)
+     */
+    public void generate(Path dir) {
+        try {
+            Files.createDirectories(dir);
+
+            writeUsers(dir.resolve("users.txt"));
+
+            short[] bookBorrowedDaysAgo = new short[books];
+            writeLoans(dir.resolve("loans.txt"), loans, books, BOOK_LOAN_DAYS, "", bookBorrowedDaysAgo, 11);
+
+            short[] cdBorrowedDaysAgo = new short[cds];
+            writeLoans(dir.resolve("cdloans.txt"), cdLoans, cds, CD_LOAN_DAYS, "CD", cdBorrowedDaysAgo, 13);
+
+            writeBooks(dir.resolve("books.txt"), bookBorrowedDaysAgo);
+            writeCds(dir.resolve("cds.txt"), cdBorrowedDaysAgo);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param i user index
+     * @return the name of the i-th generated user
+     */
+    public static String userName(int i) {
+        return "user" + i;
+    }
+
+    /**
+     * @param i book index
+     * @return the 13-digit ISBN of the i-th generated book
+     */
+    public static String isbn(int i) {
+        String digits = Integer.toString(i);
+        return "978" + "0000000000".substring(digits.length()) + digits;
+    }
+
+    /**
+     * @param i CD index
+     * @return the id of the i-th generated CD
+     */
+    public static String cdId(int i) {
+        return "CD" + i;
+    }
+
+    private void writeUsers(Path file) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed);
+
+        try (BufferedWriter out = open(file)) {
+            for (int i = 0; i < users; i++) {
+                double fine = rnd.nextDouble() < fineRatio ? 1 + rnd.nextInt(50) : 0.0;
+                line(out, userName(i) + "," + userName(i) + "@example.com," + fine);
+            }
+        }
+    }
+
+    /**
+     * Streams loan rows. Items and borrowers are drawn from Zipf distributions.
+     * A loan becomes active with {@link #activeRatio}; if its item already has
+     * an active loan, a free item is picked at random instead. Once every item
+     * is taken, the remaining loans are written as returned. Active items are
+     * recorded as borrow age + 1 in {@code borrowedDaysAgo}.
+     */
+    private void writeLoans(Path file, long count, int items, int loanDays, String itemPrefix,
+                            short[] borrowedDaysAgo, long salt) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed * 31 + salt);
+        Zipf itemPicker = new Zipf(items, bookSkew);
+        Zipf userPicker = new Zipf(users, userSkew);
+        long itemStep = permutationStep(items);
+        long userStep = permutationStep(users);
+        BitSet active = new BitSet(items);
+        int activeCount = 0;
+
+        try (BufferedWriter out = open(file)) {
+            for (long n = 0; n < count; n++) {
+                int item = (int) (itemPicker.next(rnd) * itemStep % items);
+                String user = userName((int) (userPicker.next(rnd) * userStep % users));
+
+                boolean isActive = false;
+                if (activeCount < items && rnd.nextDouble() < activeRatio) {
+                    // a taken popular item falls back to a random free one, so active loans don't cluster
+                    int free = active.get(item) ? active.nextClearBit(rnd.nextInt(items)) : item;
+                    if (free >= items) free = active.nextClearBit(0);
+                    item = free;
+                    isActive = true;
+                }
+
+                int daysAgo;
+                if (!isActive) {
+                    daysAgo = loanDays + 1 + rnd.nextInt(HISTORY_DAYS);
+                } else if (rnd.nextDouble() < overdueRatio) {
+                    daysAgo = loanDays + 1 + rnd.nextInt(60);
+                } else {
+                    daysAgo = rnd.nextInt(loanDays);
+                }
+
+                if (isActive) {
+                    active.set(item);
+                    activeCount++;
+                    borrowedDaysAgo[item] = (short) (daysAgo + 1);
+                }
+
+                LocalDate borrow = today.minusDays(daysAgo);
+                String id = itemPrefix.isEmpty() ? isbn(item) : itemPrefix + item;
+                line(out, user + "," + id + "," + borrow + "," + borrow.plusDays(loanDays) + "," + isActive);
+            }
+        }
+    }
+
+    private void writeBooks(Path file, short[] borrowedDaysAgo) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed * 31 + 17);
+        Zipf authorPicker = new Zipf(Math.max(1, books / 20), bookSkew);
+
+        try (BufferedWriter out = open(file)) {
+            for (int i = 0; i < books; i++) {
+                String title = ADJECTIVES[rnd.nextInt(ADJECTIVES.length)] + " " + NOUNS[rnd.nextInt(NOUNS.length)] + " " + i;
+                String author = "Author " + authorPicker.next(rnd);
+                line(out, title + "," + author + "," + isbn(i) + "," + itemState(borrowedDaysAgo[i], BOOK_LOAN_DAYS));
+            }
+        }
+    }
+
+    private void writeCds(Path file, short[] borrowedDaysAgo) throws IOException {
+        SplittableRandom rnd = new SplittableRandom(seed * 31 + 19);
+
+        try (BufferedWriter out = open(file)) {
+            for (int i = 0; i < cds; i++) {
+                String title = NOUNS[rnd.nextInt(NOUNS.length)] + " Sessions " + i;
+                String artist = "Artist " + rnd.nextInt(Math.max(1, cds / 10));
+                line(out, title + "," + artist + "," + cdId(i) + "," + itemState(borrowedDaysAgo[i], CD_LOAN_DAYS));
+            }
+        }
+    }
+
+    /**
+     * Builds the trailing available,borrowDate,dueDate columns of a book or CD row.
+     */
+    private String itemState(short borrowedDaysAgo, int loanDays) {
+        if (borrowedDaysAgo == 0) return "true,null,null";
+
+        LocalDate borrow = today.minusDays(borrowedDaysAgo - 1L);
+        return "false," + borrow + "," + borrow.plusDays(loanDays);
+    }
+
+    /**
+     * Returns a multiplier coprime to n. Multiplying popularity ranks by it
+     * (mod n) spreads them over the index range, so the most popular items
+     * are not simply the first ones in the file.
+     */
+    private static long permutationStep(int n) {
+        if (n <= 1) return 1;
+
+        long step = 2_654_435_761L % n;
+        while (gcd(step, n) != 1) step++;
+        return step;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static BufferedWriter open(Path file) throws IOException {
+        Files.deleteIfExists(Paths.get(file + Journal.SUFFIX));
+        return new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 20);
+    }
+
+    private static void line(BufferedWriter out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+
+    private static int requirePositive(int v, String name) {
+        if (v < 1) throw new IllegalArgumentException(name + " must be positive");
+        return v;
+    }
+
+    private static long requireNonNegative(long v, String name) {
+        if (v < 0) throw new IllegalArgumentException(name + " must not be negative");
+        return v;
+    }
+
+    private static double requireNonNegative(double v, String name) {
+        if (v < 0) throw new IllegalArgumentException(name + " must not be negative");
+        return v;
+    }
+
+    private static double requireRatio(double v, String name) {
+        if (v < 0 || v > 1) throw new IllegalArgumentException(name + " must be between 0 and 1");
+        return v;
+    }
+
+    /**
+     * Command line entry point. Options are given as {@code --name=value}.
+     *
+     * @param args generator options
+     */
+    public static void main(String[] args) {
+        DatasetGenerator g = new DatasetGenerator();
+        Path out = Paths.get("target/data");
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+
+            switch (name) {
+                case "out" -> out = Paths.get(value);
+                case "users" -> g.setUsers(Integer.parseInt(value));
+                case "books" -> g.setBooks(Integer.parseInt(value));
+                case "cds" -> g.setCds(Integer.parseInt(value));
+                case "loans" -> g.setLoans(Long.parseLong(value));
+                case "cdLoans" -> g.setCdLoans(Long.parseLong(value));
+                case "seed" -> g.setSeed(Long.parseLong(value));
+                case "activeRatio" -> g.setActiveRatio(Double.parseDouble(value));
+                case "overdueRatio" -> g.setOverdueRatio(Double.parseDouble(value));
+                case "fineRatio" -> g.setFineRatio(Double.parseDouble(value));
+                case "bookSkew" -> g.setBookSkew(Double.parseDouble(value));
+                case "userSkew" -> g.setUserSkew(Double.parseDouble(value));
+                case "today" -> g.setToday(LocalDate.parse(value));
+                default -> throw new IllegalArgumentException("unknown option " + name);
+            }
+        }
+
+        long start = System.nanoTime();
+        g.generate(out);
+        System.out.printf("Wrote dataset to %s in %d ms%n", out, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Draws ranks in [0, n) with probability proportional to 1/(rank+1)^s,
+     * using the inverse of the continuous power-law CDF. Constant time and
+     * memory, close enough to a discrete Zipf for load generation.
+     * A skew of 0 gives a uniform distribution.
+     */
+    static final class Zipf {
+        private final int n;
+        private final double s;
+        private final double hN;
+
+        Zipf(int n, double s) {
+            this.n = n;
+            this.s = s;
+            this.hN = s == 1.0 ? Math.log(n + 1.0) : (Math.pow(n + 1.0, 1 - s) - 1) / (1 - s);
+        }
+
+        int next(SplittableRandom rnd) {
+            if (s == 0.0) return rnd.nextInt(n);
+
+            double u = rnd.nextDouble() * hN;
+            double x = s == 1.0 ? Math.exp(u) : Math.pow(u * (1 - s) + 1, 1 / (1 - s));
+            int rank = (int) x - 1;
+            return Math.min(Math.max(rank, 0), n - 1);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package tools;
+
+import service.AdminService;
+import service.BookService;
+import service.CDLoanService;
+import service.CDService;
+import service.LibrarySnapshot;
+import service.LoanService;
+import service.StartupLoader;
+import service.UserService;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts between the CSV data files and the binary snapshot.
+ * The CSV files stay the interchange format; the snapshot only speeds up startup.
+ *
+ * - {@code import} loads the CSV files and writes them into a snapshot
+ * - {@code export} reads a snapshot and writes its content back as CSV files
+ *
+ * The CSV files are the ones of the configured data directory
+ * ({@code -Dlibrary.dataDir}, see {@link file.DataDirectory}).
+ *
+ * Usage:
+ * {@code java -Dlibrary.dataDir=target/data -cp target/classes tools.SnapshotTool import --snapshot=target/data/library.snapshot}
+ * The snapshot defaults to {@value LibrarySnapshot#FILE_NAME} in the data directory.
+ */
+public class SnapshotTool {
+
+    private final UserService userService = new UserService();
+    private final BookService bookService = new BookService();
+    private final CDService cdService = new CDService();
+    private final LoanService loanService = new LoanService(bookService, userService);
+    private final CDLoanService cdLoanService = new CDLoanService(bookService, userService);
+    private final AdminService adminService = new AdminService();
+
+    private final LibrarySnapshot snapshot =
+            new LibrarySnapshot(userService, bookService, cdService, loanService, cdLoanService, adminService);
+
+    /**
+     * Loads the CSV files and writes their content to the given snapshot file.
+     *
+     * @param file the snapshot file to write
+     */
+    public void importCsv(Path file) {
+        new StartupLoader(userService, bookService, cdService, loanService, cdLoanService, adminService).load();
+        snapshot.write(file);
+    }
+
+    /**
+     * Reads the given snapshot file and writes its content to the CSV files.
+     *
+     * @param file the snapshot file to read
+     */
+    public void exportCsv(Path file) {
+        snapshot.read(file);
+
+        userService.saveUsers();
+        bookService.saveBooksToFile();
+        cdService.saveCDsToFile();
+        loanService.saveAllLoansToFile();
+        cdLoanService.saveAllLoansToFile();
+        adminService.saveAdminsToFile();
+    }
+
+    /**
+     * Command line entry point: {@code import|export [--snapshot=path]}.
+     *
+     * @param args command and options
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("usage: SnapshotTool import|export [--snapshot=path]");
+        }
+
+        Path file = LibrarySnapshot.defaultFile();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--snapshot=")) {
+                throw new IllegalArgumentException("unknown option " + arg);
+            }
+            file = Paths.get(arg.substring("--snapshot=".length()));
+        }
+
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "import" -> new SnapshotTool().importCsv(file);
+            case "export" -> new SnapshotTool().exportCsv(file);
+            default -> throw new IllegalArgumentException("unknown command " + args[0]);
+        }
+        System.out.printf("%sed %s in %d ms%n", args[0], file, (System.nanoTime() - start) / 1_000_000);
+    }
+}
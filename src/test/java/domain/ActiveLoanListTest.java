@@ -0,0 +1,89 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActiveLoanListTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+
+    private final User user = new User("u");
+    private final ActiveLoanList<Loan> list = new ActiveLoanList<>(Loan::getDueEpochDay);
+
+    private Loan dueIn(int days, String isbn) {
+        LocalDate due = TODAY.plusDays(days);
+        return new Loan(user, new Book("T", "A", isbn), due.minusDays(28), due, true);
+    }
+
+    @Test
+    void emptyList_hasNoEarliestDue_andNothingOverdue() {
+        assertNull(list.getEarliestDue());
+        assertFalse(list.mayHaveOverdue(TODAY.plusYears(10)));
+    }
+
+    @Test
+    void add_tracksEarliestDueDate() {
+        list.add(dueIn(5, "1"));
+        list.add(dueIn(2, "2"));
+        list.add(dueIn(9, "3"));
+
+        assertEquals(TODAY.plusDays(2), list.getEarliestDue());
+        assertFalse(list.mayHaveOverdue(TODAY.plusDays(2)));
+        assertTrue(list.mayHaveOverdue(TODAY.plusDays(3)));
+    }
+
+    @Test
+    void remove_ofEarliest_recomputesFromRemainingLoans() {
+        Loan a = dueIn(5, "1");
+        Loan b = dueIn(2, "2");
+        list.add(a);
+        list.add(b);
+
+        list.remove(b);
+        assertEquals(TODAY.plusDays(5), list.getEarliestDue());
+
+        list.remove(a);
+        assertNull(list.getEarliestDue());
+    }
+
+    @Test
+    void set_andClear_keepEarliestInSync() {
+        list.add(dueIn(5, "1"));
+        list.set(0, dueIn(1, "2"));
+        assertEquals(TODAY.plusDays(1), list.getEarliestDue());
+
+        list.clear();
+        assertNull(list.getEarliestDue());
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    void loansWithoutDueDate_alwaysNeedACheck() {
+        Loan undated = dueIn(1, "1");
+        undated.setDueDate(null);
+
+        list.add(undated);
+        list.add(null);
+        assertTrue(list.mayHaveOverdue(TODAY));
+
+        list.remove(undated);
+        assertFalse(list.mayHaveOverdue(TODAY));
+    }
+
+    @Test
+    void dueDateChange_ofLoanInUsersList_isTracked() {
+        Loan loan = dueIn(5, "1");
+        user.addLoan(loan, TODAY);
+        assertFalse(user.hasOverdueLoans(TODAY));
+
+        loan.setDueDate(TODAY.minusDays(1));
+        assertTrue(user.hasOverdueLoans(TODAY));
+
+        loan.setDueDate(TODAY.plusDays(3));
+        assertFalse(user.hasOverdueLoans(TODAY));
+        assertEquals(TODAY.plusDays(3), ((ActiveLoanList<Loan>) user.getActiveBookLoans()).getEarliestDue());
+    }
+}
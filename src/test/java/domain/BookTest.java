@@ -111,6 +111,25 @@ public class BookTest {
         assertFalse(book.isOverdue(LocalDate.now()));
     }
 
+    @Test
+    public void testEpochDayDates() {
+        LocalDate borrowDate = LocalDate.of(2025, 1, 10);
+        int borrowDay = (int) borrowDate.toEpochDay();
+        assertEquals(EpochDays.NONE, book.getDueEpochDay());
+
+        book.borrowBook(borrowDate);
+
+        assertEquals(borrowDay, book.getBorrowEpochDay());
+        assertEquals(borrowDay + 28, book.getDueEpochDay());
+        assertEquals(borrowDate.plusDays(28), book.getDueDate());
+        assertFalse(book.isOverdue(borrowDay + 28));
+        assertTrue(book.isOverdue(borrowDay + 29));
+
+        book.returnBook();
+        assertEquals(EpochDays.NONE, book.getBorrowEpochDay());
+        assertFalse(book.isOverdue(borrowDay + 29));
+    }
+
     // ---------------------------------------------------------
     // Remaining days
     // ---------------------------------------------------------
@@ -117,6 +117,21 @@ public class CDLoanTest {
         assertEquals(4, loan.getOverdueDays());
     }
 
+    @Test
+    public void testOverdueDaysWithEpochDay() {
+        LocalDate due = LocalDate.of(2025, 3, 1);
+        CDLoan loan = new CDLoan(user, cd, due.minusDays(7), due, true);
+        int dueDay = (int) due.toEpochDay();
+
+        assertEquals(dueDay, loan.getDueEpochDay());
+        assertFalse(loan.isOverdue(dueDay));
+        assertEquals(2, loan.getOverdueDays(dueDay + 2));
+
+        loan.returnCD();
+        assertFalse(loan.isOverdue(dueDay + 2));
+        assertEquals(0, loan.getOverdueDays(dueDay + 2));
+    }
+
     // ---------------------------------------------------------
     // Fine calculation
     // ---------------------------------------------------------
@@ -80,6 +80,20 @@ public class CDTest {
         assertFalse(cd.isOverdue());
     }
 
+    @Test
+    void testOverdueWithEpochDay() {
+        CD cd = new CD("A", "B", "1");
+        int day = (int) LocalDate.of(2025, 1, 10).toEpochDay();
+        assertFalse(cd.isOverdue(day));
+
+        cd.borrowCD(LocalDate.of(2025, 1, 10));
+
+        assertEquals(day, cd.getBorrowEpochDay());
+        assertEquals(day + 7, cd.getDueEpochDay());
+        assertFalse(cd.isOverdue(day + 7));
+        assertTrue(cd.isOverdue(day + 8));
+    }
+
     @Test
     void testRemainingDaysPositive() {
         CD cd = new CD("A", "B", "1");
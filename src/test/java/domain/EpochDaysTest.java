@@ -0,0 +1,35 @@
+package domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EpochDaysTest {
+
+    @Test
+    void of_andToDate_roundTrip() {
+        LocalDate date = LocalDate.of(2025, 3, 1);
+
+        assertEquals(date.toEpochDay(), EpochDays.of(date));
+        assertEquals(date, EpochDays.toDate(EpochDays.of(date)));
+        assertEquals(LocalDate.of(1969, 12, 31), EpochDays.toDate(-1));
+    }
+
+    @Test
+    void null_mapsToNone() {
+        assertEquals(EpochDays.NONE, EpochDays.of(null));
+        assertNull(EpochDays.toDate(EpochDays.NONE));
+    }
+
+    @Test
+    void of_rejectsDatesOutsideIntRange() {
+        assertThrows(ArithmeticException.class, () -> EpochDays.of(LocalDate.MAX));
+    }
+
+    @Test
+    void today_matchesLocalDateNow() {
+        assertEquals(LocalDate.now().toEpochDay(), EpochDays.today(), 1);
+    }
+}
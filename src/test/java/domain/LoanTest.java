@@ -119,6 +119,25 @@ public class LoanTest {
         assertEquals(5, loan.getOverdueDays());
     }
 
+    @Test
+    public void testOverdueChecksWithEpochDay() {
+        LocalDate due = LocalDate.of(2025, 3, 1);
+        Loan loan = new Loan(user, book, due.minusDays(28), due, true);
+        int dueDay = (int) due.toEpochDay();
+
+        assertEquals(dueDay, loan.getDueEpochDay());
+        assertEquals(dueDay - 28, loan.getBorrowEpochDay());
+        assertFalse(loan.isOverdue(dueDay));
+        assertTrue(loan.isOverdue(dueDay + 1));
+        assertEquals(0, loan.getOverdueDays(dueDay));
+        assertEquals(3, loan.getOverdueDays(dueDay + 3));
+
+        loan.setDueDate(null);
+        assertEquals(EpochDays.NONE, loan.getDueEpochDay());
+        assertNull(loan.getDueDate());
+        assertFalse(loan.isOverdue(dueDay + 100));
+    }
+
     // ---------------------------------------------------------
     // Fine Strategy
     // ---------------------------------------------------------
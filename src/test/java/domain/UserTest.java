@@ -321,6 +321,50 @@ public class UserTest {
         assertFalse(user.canBeUnregistered());
     }
 
+    // ---------------------------------------------------------
+    // Active loan counters
+    // ---------------------------------------------------------
+
+    @Test
+    public void testActiveLoanCountAndEarliestDueDate() {
+        assertEquals(0, user.getActiveLoanCount());
+        assertNull(user.getEarliestDueDate());
+
+        Loan loan = new Loan(user, book1);
+        CDLoan cdLoan = new CDLoan(user, cd1);
+        user.addLoan(loan);
+        user.addCDLoan(cdLoan);
+
+        assertEquals(2, user.getActiveLoanCount());
+        assertEquals(cdLoan.getDueDate(), user.getEarliestDueDate());
+
+        user.returnCDLoan(cdLoan);
+        assertEquals(1, user.getActiveLoanCount());
+        assertEquals(loan.getDueDate(), user.getEarliestDueDate());
+    }
+
+    @Test
+    public void testHasOverdueLoansOnDate() {
+        Loan loan = new Loan(user, book1);
+        user.addLoan(loan);
+        LocalDate due = loan.getDueDate();
+
+        assertFalse(user.hasOverdueLoans(due));
+        assertTrue(user.hasOverdueLoans(due.plusDays(1)));
+    }
+
+    @Test
+    public void testLoanReturnedButStillListedIsNotOverdue() {
+        Loan loan = new Loan(user, book1);
+        loan.setDueDate(LocalDate.now().minusDays(3));
+        user.getActiveBookLoans().add(loan);
+        assertTrue(user.hasOverdueLoans());
+
+        loan.returnBook();
+        assertFalse(user.hasOverdueLoans());
+        assertEquals(0, user.getOverdueCount());
+    }
+
     // ---------------------------------------------------------
     // toString
     // ---------------------------------------------------------
@@ -0,0 +1,133 @@
+package file;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CsvRecordTest {
+
+    @Test
+    void fields_followStringSplit() {
+        for (String line : new String[]{"a,b,c", "a,,c", "a,b,,", ",a", "only", "a,b,c,null,null"}) {
+            CsvRecord r = CsvRecord.of(line);
+            String[] p = line.split(",");
+
+            assertEquals(p.length, r.size(), line);
+            for (int i = 0; i < p.length; i++) {
+                assertEquals(p[i], r.get(i), line);
+            }
+        }
+    }
+
+    @Test
+    void get_outOfRange_returnsNull() {
+        CsvRecord r = CsvRecord.of("a,b,");
+
+        assertNull(r.get(2));
+        assertNull(r.get(-1));
+    }
+
+    @Test
+    void decodesUtf8_andKeepsWholeLine() {
+        CsvRecord r = CsvRecord.of("Çalışma,Ünal,ß");
+
+        assertEquals("Ünal", r.get(1));
+        assertEquals("Çalışma,Ünal,ß", r.line());
+        assertEquals(r.line(), r.toString());
+    }
+
+    @Test
+    void isBlank_detectsWhitespaceOnlyLines() {
+        assertTrue(CsvRecord.of("").isBlank());
+        assertTrue(CsvRecord.of(" \t ").isBlank());
+        assertFalse(CsvRecord.of(" a ").isBlank());
+        assertEquals(0, CsvRecord.of("").size());
+    }
+
+    @Test
+    void quotedFields_roundTripThroughQuote() {
+        String[] values = {"Free, Book", "say \"hi\"", "plain", "", "\",\""};
+        StringBuilder line = new StringBuilder();
+        for (String v : values) {
+            line.append(CsvRecord.quote(v)).append(',');
+        }
+        line.append("end");
+
+        CsvRecord r = CsvRecord.of(line.toString());
+        assertEquals(values.length + 1, r.size());
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], r.get(i));
+        }
+        assertEquals("end", r.get(values.length));
+        assertEquals("plain", CsvRecord.quote("plain"));
+        assertEquals("null", CsvRecord.quote(null));
+    }
+
+    @Test
+    void typedGetters_parseFieldsInPlace() {
+        CsvRecord r = CsvRecord.of("42, -7 ,TRUE,false,null,2.50,\"1,5\",x,,2147483648");
+
+        assertEquals(42, r.getInt(0));
+        assertEquals(-7, r.getInt(1));
+        assertTrue(r.getBoolean(2));
+        assertFalse(r.getBoolean(3));
+        assertFalse(r.getBoolean(20));
+        assertTrue(r.isNull(4));
+        assertTrue(r.isNull(8));
+        assertTrue(r.isNull(20));
+        assertFalse(r.isNull(7));
+        assertEquals(2.5, r.getDouble(5));
+
+        assertThrows(NumberFormatException.class, () -> r.getInt(6));
+        assertThrows(NumberFormatException.class, () -> r.getInt(7));
+        assertThrows(NumberFormatException.class, () -> r.getInt(9));
+        assertThrows(NumberFormatException.class, () -> r.getInt(20));
+        assertThrows(NumberFormatException.class, () -> r.getDouble(7));
+        assertThrows(NumberFormatException.class, () -> r.getDouble(8));
+    }
+
+    @Test
+    void getDouble_matchesDoubleParseDouble() {
+        Random rnd = new Random(7);
+        String[] fixed = {"0", "0.1", "-0.0", "12.", ".5", "1e3", "123456789012345678", "0.00000000000000001234"};
+        for (String s : fixed) {
+            assertEquals(Double.parseDouble(s), CsvRecord.of(s).getDouble(0), s);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            String s = String.valueOf(rnd.nextInt(1_000_000) / 100.0);
+            assertEquals(Double.parseDouble(s), CsvRecord.of(s).getDouble(0), s);
+        }
+    }
+
+    @Test
+    void getEpochDay_matchesLocalDate() {
+        for (LocalDate d = LocalDate.of(1899, 12, 25); d.isBefore(LocalDate.of(2101, 1, 5)); d = d.plusDays(1)) {
+            assertEquals(d.toEpochDay(), CsvRecord.of("x," + d).getEpochDay(1, -1), d.toString());
+        }
+
+        CsvRecord r = CsvRecord.of("null,2023-02-29,2025-13-01,2025-1-01,+12025-01-01");
+        assertEquals(-1, r.getEpochDay(0, -1));
+        assertEquals(-1, r.getEpochDay(9, -1));
+        assertThrows(DateTimeParseException.class, () -> r.getEpochDay(1, -1));
+        assertThrows(DateTimeParseException.class, () -> r.getEpochDay(2, -1));
+        assertThrows(DateTimeParseException.class, () -> r.getEpochDay(3, -1));
+        assertEquals(LocalDate.parse("+12025-01-01").toEpochDay(), r.getEpochDay(4, -1));
+    }
+
+    @Test
+    void getWithPool_sharesRepeatedValues() {
+        StringPool pool = new StringPool(64);
+        CsvRecord first = CsvRecord.of("T1,Same Author,1");
+        CsvRecord second = CsvRecord.of("T2,Same Author,2,\"A, \"\"B\"\"\"");
+
+        String author = first.get(1, pool);
+        assertEquals("Same Author", author);
+        assertSame(author, second.get(1, pool));
+        assertEquals("A, \"B\"", second.get(3, pool));
+        assertNull(second.get(4, pool));
+    }
+}
@@ -0,0 +1,26 @@
+package file;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataDirectoryTest {
+
+    @AfterEach
+    void clearProperty() {
+        System.clearProperty(DataDirectory.PROPERTY);
+    }
+
+    @Test
+    void file_defaultsToResourcesDirectory() {
+        System.clearProperty(DataDirectory.PROPERTY);
+        assertEquals("src/main/resources/data/books.txt", DataDirectory.file("books.txt"));
+    }
+
+    @Test
+    void file_usesConfiguredDirectory() {
+        System.setProperty(DataDirectory.PROPERTY, "target/bench-data");
+        assertEquals("target/bench-data/users.txt", DataDirectory.file("users.txt"));
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -80,6 +82,91 @@ public class FileManagerTest {
         assertThrows(RuntimeException.class, () -> FileManager.readLines(path));
     }
 
+    @Test
+    public void forEachRecord_createsFile_whenMissing() {
+        String path = BASE_DIR + "a/stream.txt";
+        List<String> seen = new ArrayList<>();
+
+        FileManager.forEachRecord(path, r -> seen.add(r.line()));
+
+        assertTrue(seen.isEmpty());
+        assertTrue(new File(path).exists());
+    }
+
+    @Test
+    public void forEachRecord_streamsLinesLikeReadLines() throws Exception {
+        String path = BASE_DIR + "stream.txt";
+        Files.writeString(Path.of(path), "a,b,c\r\n\nx,,y,,\nlast,line");
+        List<String> lines = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+
+        FileManager.forEachRecord(path, r -> {
+            lines.add(r.line());
+            sizes.add(r.size());
+        });
+
+        assertEquals(FileManager.readLines(path), lines);
+        assertEquals(List.of(3, 0, 3, 2), sizes);
+    }
+
+    @Test
+    public void forEachRecord_joinsLinesSpanningMapWindows() {
+        String path = BASE_DIR + "windows.txt";
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            expected.add("title " + i + ",author " + (i % 7) + "," + "x".repeat(i % 40));
+        }
+        FileManager.writeLines(path, expected);
+        List<String> seen = new ArrayList<>();
+
+        FileManager.forEachRecord(path, 7, r -> seen.add(r.get(0) + "," + r.get(1) + "," + r.get(2)));
+
+        assertEquals(expected.size(), seen.size());
+        for (int i = 0; i < expected.size(); i++) {
+            String want = expected.get(i);
+            assertEquals(want.endsWith(",") ? want + "null" : want, seen.get(i));
+        }
+    }
+
+    @Test
+    public void forEachRecord_throwsRuntimeException_whenPathIsDirectory() {
+        String path = BASE_DIR + "dirAsStream";
+        new File(path).mkdirs();
+
+        assertThrows(RuntimeException.class, () -> FileManager.forEachRecord(path, r -> { }));
+    }
+
+    @Test
+    public void parseRecords_parsesChunksInParallel_inFileOrder() {
+        String path = BASE_DIR + "chunks.txt";
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(i % 10 == 0 ? "" : "row" + i + "," + i);
+        }
+        FileManager.writeLines(path, lines);
+
+        List<Integer> parsed = FileManager.parseRecords(path, 1024,
+                r -> r.isBlank() ? null : Integer.parseInt(r.get(1)));
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            if (i % 10 != 0) expected.add(i);
+        }
+        assertEquals(expected, parsed);
+    }
+
+    @Test
+    public void parseRecords_handlesTailAndMissingFile() throws Exception {
+        String path = BASE_DIR + "tail.txt";
+        Files.writeString(Path.of(path), "a,1\nb,2\nc,3");
+
+        assertEquals(List.of("a", "b", "c"), FileManager.parseRecords(path, 2, r -> r.get(0)));
+
+        String missing = BASE_DIR + "m/missing.txt";
+        assertTrue(FileManager.parseRecords(missing, r -> r.get(0)).isEmpty());
+        assertTrue(new File(missing).exists());
+    }
+
     @Test
     public void writeLines_createsParentDirsAndFile_whenMissing() {
         String path = BASE_DIR + "x/y/z/write.txt";
@@ -176,4 +263,58 @@ public class FileManagerTest {
 
         assertThrows(RuntimeException.class, () -> FileManager.appendLine(path, "TEST"));
     }
+
+    @Test
+    public void writeLines_replacesFile_withoutLeavingTempFiles() {
+        String path = BASE_DIR + "atomic.txt";
+        FileManager.writeLines(path, List.of("old"));
+        FileManager.writeLines(path, List.of("new1", "new2"));
+
+        assertEquals(List.of("new1", "new2"), FileManager.readLines(path));
+        assertArrayEquals(new String[]{"atomic.txt"}, new File(BASE_DIR).list());
+    }
+
+    @Test
+    public void writeLines_failureMidWrite_keepsOldContent() {
+        String path = BASE_DIR + "atomic.txt";
+        FileManager.writeLines(path, List.of("old1", "old2"));
+
+        List<String> failing = new java.util.AbstractList<>() {
+            @Override
+            public String get(int index) {
+                if (index == 2) throw new IllegalStateException("crash");
+                return "new" + index;
+            }
+
+            @Override
+            public int size() {
+                return 4;
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> FileManager.writeLines(path, failing));
+        assertEquals(List.of("old1", "old2"), FileManager.readLines(path));
+        assertArrayEquals(new String[]{"atomic.txt"}, new File(BASE_DIR).list());
+    }
+
+    @Test
+    public void syncPolicies_onlyBatchDefersForce() {
+        String path = BASE_DIR + "sync.txt";
+        try {
+            FileManager.setSyncPolicy(FileManager.SyncPolicy.BATCH);
+            FileManager.writeLines(path, List.of("a"));
+            FileManager.writeLines(path, List.of("b"));
+            assertEquals(1, FileManager.unsyncedCount());
+
+            FileManager.sync();
+            assertEquals(0, FileManager.unsyncedCount());
+
+            FileManager.setSyncPolicy(FileManager.SyncPolicy.NEVER);
+            FileManager.writeLines(path, List.of("c"));
+            assertEquals(0, FileManager.unsyncedCount());
+            assertEquals(List.of("c"), FileManager.readLines(path));
+        } finally {
+            FileManager.setSyncPolicy(FileManager.SyncPolicy.ALWAYS);
+        }
+    }
 }
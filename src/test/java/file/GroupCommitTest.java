@@ -0,0 +1,134 @@
+package file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class GroupCommitTest {
+
+    @TempDir
+    Path dir;
+
+    private Journal journal(String name, GroupCommit gc) {
+        Journal j = spy(new Journal(dir.resolve(name).toString()));
+        j.setGroupCommit(gc);
+        return j;
+    }
+
+    @Test
+    void constructor_rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommit(null, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommit(GroupCommit.Durability.SYNC, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new GroupCommit(GroupCommit.Durability.SYNC, 1, -1));
+    }
+
+    @Test
+    void sync_forcesDirtyJournalsOnEveryCommit() {
+        GroupCommit gc = new GroupCommit(GroupCommit.Durability.SYNC, 10, 1000);
+        Journal a = journal("a.txt", gc);
+        Journal b = journal("b.txt", gc);
+
+        a.add("x");
+        b.add("y");
+        gc.commit();
+
+        verify(a, times(1)).force();
+        verify(b, times(1)).force();
+
+        gc.commit();
+        verify(a, times(1)).force();
+    }
+
+    @Test
+    void group_fullBatchIsForcedOnceAndReleasesAllWaiters() throws Exception {
+        int threads = 4;
+        GroupCommit gc = new GroupCommit(GroupCommit.Durability.GROUP, threads, 60_000);
+        Journal j = journal("g.txt", gc);
+
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int n = i;
+            Thread t = new Thread(() -> {
+                j.add("row" + n);
+                gc.commit();
+                done.countDown();
+            });
+            workers.add(t);
+            t.start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        verify(j, times(1)).force();
+    }
+
+    @Test
+    void group_singleCommitIsReleasedWhenWindowElapses() {
+        GroupCommit gc = new GroupCommit(GroupCommit.Durability.GROUP, 100, 20);
+        Journal j = journal("w.txt", gc);
+
+        j.add("row");
+        long start = System.nanoTime();
+        gc.commit();
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+        verify(j, times(1)).force();
+    }
+
+    @Test
+    void group_zeroWindowForcesWithoutWaiting() {
+        GroupCommit gc = new GroupCommit(GroupCommit.Durability.GROUP, 100, 0);
+        Journal j = journal("z.txt", gc);
+
+        j.add("row");
+        gc.commit();
+        j.add("row2");
+        gc.commit();
+
+        verify(j, times(2)).force();
+    }
+
+    @Test
+    void async_returnsImmediatelyAndFlushesInBackground() {
+        GroupCommit gc = new GroupCommit(GroupCommit.Durability.ASYNC, 100, 10);
+        Journal j = journal("s.txt", gc);
+
+        j.add("row");
+        gc.commit();
+
+        verify(j, timeout(5000).atLeastOnce()).force();
+        gc.close();
+    }
+
+    @Test
+    void close_flushesOutstandingChanges() {
+        GroupCommit gc = new GroupCommit(GroupCommit.Durability.ASYNC, 100, 60_000);
+        Journal j = journal("c.txt", gc);
+
+        j.add("row");
+        gc.close();
+
+        verify(j, times(1)).force();
+        assertEquals(GroupCommit.Durability.ASYNC, gc.getDurability());
+    }
+
+    @Test
+    void async_commitAfterClose_flushesSynchronously() {
+        GroupCommit gc = new GroupCommit(GroupCommit.Durability.ASYNC, 1, 60_000);
+        Journal j = journal("late.txt", gc);
+        gc.close();
+
+        j.add("row");
+        assertDoesNotThrow(gc::commit);
+
+        verify(j, times(1)).force();
+    }
+}
@@ -0,0 +1,234 @@
+package file;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+
+    private static final Function<String, String> FIRST = Journal.columnKey(0, 1);
+
+    @TempDir
+    Path dir;
+
+    private String dataFile;
+
+    @BeforeEach
+    void setUp() {
+        dataFile = dir.resolve("data.txt").toString();
+        FileManager.writeLines(dataFile, List.of("a,1", "b,2"));
+    }
+
+    @Test
+    void replay_withoutJournal_returnsBaseUnchanged() {
+        Journal j = new Journal(dataFile);
+        List<String> base = FileManager.readLines(dataFile);
+
+        assertSame(base, j.replay(base, FIRST));
+        assertNull(j.replay(null, FIRST));
+    }
+
+    @Test
+    void replay_appliesAddPutDeleteInOrder() {
+        Journal j = new Journal(dataFile);
+        j.add("c,3");
+        j.put("a,10");
+        j.delete("b");
+        j.put("d,4");
+        j.close();
+
+        List<String> out = new Journal(dataFile).replay(FileManager.readLines(dataFile), FIRST);
+
+        assertEquals(List.of("a,10", "c,3", "d,4"), out);
+    }
+
+    @Test
+    void replay_putUpdatesLastRowWithSameKey() {
+        FileManager.writeLines(dataFile, List.of("a,old", "a,new"));
+        Journal j = new Journal(dataFile);
+        j.put("a,changed");
+        j.close();
+
+        assertEquals(List.of("a,old", "a,changed"), j.replay(FileManager.readLines(dataFile), FIRST));
+    }
+
+    @Test
+    void replay_countsRecordsTowardsCompaction() {
+        Journal j = new Journal(dataFile, 2);
+        j.add("c,3");
+        assertFalse(j.needsCompaction());
+        j.add("d,4");
+        assertTrue(j.needsCompaction());
+        j.close();
+
+        Journal reopened = new Journal(dataFile, 2);
+        reopened.replay(FileManager.readLines(dataFile), FIRST);
+        assertEquals(2, reopened.size());
+        assertTrue(reopened.needsCompaction());
+    }
+
+    @Test
+    void reset_removesJournal() {
+        Journal j = new Journal(dataFile);
+        j.add("c,3");
+        j.reset();
+
+        assertFalse(Files.exists(Path.of(dataFile + Journal.SUFFIX)));
+        assertEquals(0, j.size());
+        assertEquals(List.of("a,1", "b,2"), j.replay(FileManager.readLines(dataFile), FIRST));
+    }
+
+    @Test
+    void reset_forcesBatchedDataFileFirst() {
+        Journal j = new Journal(dataFile);
+        j.add("c,3");
+        try {
+            FileManager.setSyncPolicy(FileManager.SyncPolicy.BATCH);
+            FileManager.writeLines(dataFile, List.of("a,1", "b,2", "c,3"));
+            assertEquals(1, FileManager.unsyncedCount());
+
+            j.reset();
+            assertEquals(0, FileManager.unsyncedCount());
+        } finally {
+            FileManager.setSyncPolicy(FileManager.SyncPolicy.ALWAYS);
+        }
+    }
+
+    @Test
+    void replay_ignoresJournalWhenDataFileWasRewritten() throws Exception {
+        Journal j = new Journal(dataFile);
+        j.add("c,3");
+        j.close();
+
+        Thread.sleep(5);
+        FileManager.writeLines(dataFile, List.of("a,1", "b,2", "c,3"));
+
+        assertEquals(List.of("a,1", "b,2", "c,3"), j.replay(FileManager.readLines(dataFile), FIRST));
+    }
+
+    @Test
+    void append_afterStaleJournal_startsOver() throws Exception {
+        Journal j = new Journal(dataFile);
+        j.add("c,3");
+        j.close();
+
+        // crash between rewriting the CSV and resetting the journal
+        Thread.sleep(5);
+        FileManager.writeLines(dataFile, List.of("a,1", "b,2", "c,3"));
+
+        Journal restarted = new Journal(dataFile);
+        List<String> base = FileManager.readLines(dataFile);
+        assertEquals(base, restarted.replay(base, FIRST));
+        restarted.add("d,4");
+        restarted.close();
+
+        Journal next = new Journal(dataFile);
+        assertEquals(List.of("a,1", "b,2", "c,3", "d,4"), next.replay(FileManager.readLines(dataFile), FIRST));
+    }
+
+    @Test
+    void append_afterTornRecord_cutsTheFragmentOff() throws Exception {
+        Journal j = new Journal(dataFile);
+        j.add("c,3");
+        j.close();
+
+        Files.write(Path.of(dataFile + Journal.SUFFIX), "P,a,9".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        Journal restarted = new Journal(dataFile);
+        restarted.add("d,4");
+        restarted.close();
+
+        assertEquals(List.of("a,1", "b,2", "c,3", "d,4"),
+                new Journal(dataFile).replay(FileManager.readLines(dataFile), FIRST));
+    }
+
+    @Test
+    void replay_dropsTornLastRecord() throws Exception {
+        Journal j = new Journal(dataFile);
+        j.add("c,3");
+        j.close();
+
+        Files.write(Path.of(dataFile + Journal.SUFFIX), "A,d,4".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        assertEquals(List.of("a,1", "b,2", "c,3"), j.replay(FileManager.readLines(dataFile), FIRST));
+    }
+
+    @Test
+    void columnKey_extractsColumnRanges() {
+        assertEquals("a", Journal.columnKey(0, 1).apply("a,b,c"));
+        assertEquals("c", Journal.columnKey(2, 3).apply("a,b,c"));
+        assertEquals("a,b,c", Journal.columnKey(0, 3).apply("a,b,c,d"));
+        assertNull(Journal.columnKey(3, 4).apply("a,b,c"));
+        assertNull(Journal.columnKey(0, 1).apply(null));
+    }
+
+    @Test
+    void columnKey_skipsCommasInQuotedColumns() {
+        String line = "\"Free, Book\",\"A \"\"B\"\", C\",111,true";
+
+        assertEquals("111", Journal.columnKey(2, 3).apply(line));
+        assertEquals("\"Free, Book\"", Journal.columnKey(0, 1).apply(line));
+        assertEquals("111,true", Journal.columnKey(2, 4).apply(line));
+        assertNull(Journal.columnKey(4, 5).apply(line));
+    }
+
+    @Test
+    void streamingReplay_matchesListReplay() {
+        FileManager.writeLines(dataFile, List.of("a,old", "b,2", "", "a,new", "c,3"));
+        Journal j = new Journal(dataFile);
+        j.put("a,changed");
+        j.delete("b");
+        j.add("d,4");
+        j.put("d,5");
+        j.put("e,6");
+        j.delete("c");
+        j.close();
+
+        Journal reopened = new Journal(dataFile);
+        List<String> streamed = new ArrayList<>();
+        reopened.replay(FIRST, r -> streamed.add(r.line()));
+
+        assertEquals(List.of("a,old", "", "a,changed", "d,5", "e,6"), streamed);
+        assertEquals(new Journal(dataFile).replay(FileManager.readLines(dataFile), FIRST), streamed);
+        assertEquals(6, reopened.size());
+    }
+
+    @Test
+    void streamingReplay_withoutJournal_readsFileOnce() {
+        List<String> streamed = new ArrayList<>();
+
+        new Journal(dataFile).replay(FIRST, r -> streamed.add(r.line()));
+
+        assertEquals(List.of("a,1", "b,2"), streamed);
+    }
+
+    @Test
+    void parse_appliesJournal_andSkipsNullResults() {
+        Journal j = new Journal(dataFile);
+        j.put("a,10");
+        j.add("c,x");
+        j.close();
+
+        List<Integer> out = new Journal(dataFile).parse(FIRST, r -> {
+            try {
+                return Integer.parseInt(r.get(1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        });
+
+        assertEquals(List.of(10, 2), out);
+    }
+}
@@ -0,0 +1,174 @@
+package file;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutboxTest {
+
+    @TempDir
+    Path dir;
+
+    private String file;
+
+    @BeforeEach
+    void setUp() {
+        file = dir.resolve("outbox.txt").toString();
+    }
+
+    @Test
+    void recover_withoutFile_isEmpty() {
+        Outbox outbox = new Outbox(file);
+
+        assertTrue(outbox.recover().isEmpty());
+        assertEquals(0, outbox.pendingCount());
+        outbox.close();
+        assertFalse(Files.exists(dir.resolve("outbox.txt")));
+    }
+
+    @Test
+    void add_isWrittenOnFlush_andRecoveredByNextInstance() throws Exception {
+        Outbox outbox = new Outbox(file);
+        Outbox.Entry a = outbox.add("EmailNotifier", "ali", "ali@mail.com", "You have 2 overdue item(s), sorry.");
+        outbox.add("EmailNotifier", "sara", null, "You have 1 overdue item(s).");
+
+        assertFalse(Files.exists(dir.resolve("outbox.txt")));
+        outbox.flush();
+        assertEquals(2, Files.readAllLines(dir.resolve("outbox.txt")).size());
+
+        List<Outbox.Entry> pending = new Outbox(file).recover();
+
+        assertEquals(2, pending.size());
+        assertEquals(a.getId(), pending.get(0).getId());
+        assertEquals("EmailNotifier", pending.get(0).getChannel());
+        assertEquals("ali", pending.get(0).getUserName());
+        assertEquals("ali@mail.com", pending.get(0).getEmail());
+        assertEquals("You have 2 overdue item(s), sorry.", pending.get(0).getMessage());
+        assertNull(pending.get(1).getEmail());
+    }
+
+    @Test
+    void fieldsWithCommasAndQuotes_areRecoveredIntact() {
+        Outbox outbox = new Outbox(file);
+        outbox.add("EmailNotifier", "Smith, J", "\"J. Smith\" <js@mail.com>", "Dear Smith, J: 1 item is \"late\".");
+        outbox.add("EmailNotifier", "sara", "s@mail.com", "");
+        outbox.close();
+
+        List<Outbox.Entry> pending = new Outbox(file).recover();
+
+        assertEquals(2, pending.size());
+        assertEquals("Smith, J", pending.get(0).getUserName());
+        assertEquals("\"J. Smith\" <js@mail.com>", pending.get(0).getEmail());
+        assertEquals("Dear Smith, J: 1 item is \"late\".", pending.get(0).getMessage());
+        assertEquals("s@mail.com", pending.get(1).getEmail());
+        assertEquals("", pending.get(1).getMessage());
+    }
+
+    @Test
+    void tornLastLine_isCutOff_andNextEntrySurvives() throws Exception {
+        Outbox outbox = new Outbox(file);
+        outbox.add("C", "ali", "ali@mail.com", "first");
+        outbox.close();
+        Files.writeString(dir.resolve("outbox.txt"), "P,2,C,sara,s@mail.com,", StandardOpenOption.APPEND);
+
+        Outbox reopened = new Outbox(file);
+        List<Outbox.Entry> recovered = reopened.recover();
+        assertEquals(1, recovered.size());
+        assertEquals("first", recovered.get(0).getMessage());
+
+        reopened.add("C", "omar", "o@mail.com", "second");
+        reopened.close();
+
+        List<Outbox.Entry> pending = new Outbox(file).recover();
+        assertEquals(2, pending.size());
+        assertEquals("omar", pending.get(1).getUserName());
+        assertEquals("second", pending.get(1).getMessage());
+    }
+
+    @Test
+    void settledEntries_areNotRecovered_andIdsContinue() {
+        Outbox outbox = new Outbox(file);
+        long a = outbox.add("C", "u1", "e1", "m").getId();
+        long b = outbox.add("C", "u2", "e2", "m").getId();
+        long c = outbox.add("C", "u3", "e3", "m").getId();
+        outbox.flush();
+        outbox.delivered(a);
+        outbox.abandoned(c);
+        outbox.delivered(a);
+        assertEquals(1, outbox.pendingCount());
+        outbox.close();
+
+        Outbox next = new Outbox(file);
+        List<Outbox.Entry> pending = next.recover();
+
+        assertEquals(1, pending.size());
+        assertEquals(b, pending.get(0).getId());
+        assertTrue(next.recover().isEmpty());
+        assertTrue(next.add("C", "u4", "e4", "m").getId() > c);
+    }
+
+    @Test
+    void settledMarkers_areWrittenInBatches() throws Exception {
+        Outbox outbox = new Outbox(file);
+        long[] ids = new long[Outbox.SETTLED_FLUSH_EVERY];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = outbox.add("C", "u" + i, "e", "m").getId();
+        }
+        outbox.flush();
+
+        for (int i = 0; i < ids.length - 1; i++) {
+            outbox.delivered(ids[i]);
+        }
+        assertEquals(ids.length, Files.readAllLines(dir.resolve("outbox.txt")).size());
+
+        outbox.delivered(ids[ids.length - 1]);
+        assertEquals(2 * ids.length, Files.readAllLines(dir.resolve("outbox.txt")).size());
+        assertTrue(new Outbox(file).recover().isEmpty());
+    }
+
+    @Test
+    void flush_compactsMostlySettledFile() throws Exception {
+        Outbox outbox = new Outbox(file);
+        int n = Outbox.COMPACT_THRESHOLD + 10;
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = outbox.add("C", "u" + i, "e", "m" + i).getId();
+        }
+        outbox.flush();
+        for (int i = 0; i < n - 1; i++) {
+            outbox.delivered(ids[i]);
+        }
+        outbox.flush();
+
+        List<String> lines = Files.readAllLines(dir.resolve("outbox.txt"));
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("P," + ids[n - 1] + ","));
+
+        outbox.add("C", "late", "e", "m");
+        outbox.close();
+        List<Outbox.Entry> pending = new Outbox(file).recover();
+        assertEquals(2, pending.size());
+        assertEquals("late", pending.get(1).getUserName());
+    }
+
+    @Test
+    void recover_skipsLineCutOffByCrash() throws Exception {
+        Outbox outbox = new Outbox(file);
+        outbox.add("C", "u1", "e1", "m1");
+        outbox.close();
+        Files.write(dir.resolve("outbox.txt"), "P,2,C,u2".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        List<Outbox.Entry> pending = new Outbox(file).recover();
+
+        assertEquals(1, pending.size());
+        assertEquals("u1", pending.get(0).getUserName());
+    }
+}
@@ -0,0 +1,75 @@
+package file;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringPoolTest {
+
+    @Test
+    void intern_returnsSameInstanceForEqualValues() {
+        StringPool pool = new StringPool(64);
+        String a = pool.intern(new String("Author 1"));
+
+        assertSame(a, pool.intern(new String("Author 1")));
+        assertNotSame(a, pool.intern("Author 2"));
+        assertNull(pool.intern(null));
+    }
+
+    @Test
+    void internBytes_matchesStringsWithoutDecodingAgain() {
+        StringPool pool = new StringPool(64);
+        byte[] line = "x,Artist 7,y,Ünal".getBytes(StandardCharsets.UTF_8);
+
+        String fromBytes = pool.intern(line, 2, 8);
+        assertEquals("Artist 7", fromBytes);
+        assertSame(fromBytes, pool.intern(new String("Artist 7")));
+        assertSame(fromBytes, pool.intern(line, 2, 8));
+
+        String unicode = pool.intern(line, 13, line.length - 13);
+        assertEquals("Ünal", unicode);
+        assertSame(unicode, pool.intern(line, 13, line.length - 13));
+    }
+
+    @Test
+    void staysBounded_andSkipsLongValues() {
+        StringPool pool = new StringPool(16);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("name" + i, pool.intern("name" + i));
+        }
+        assertTrue(pool.size() <= 16);
+
+        String longValue = "x".repeat(StringPool.MAX_LENGTH + 1);
+        assertSame(longValue, pool.intern(longValue));
+        assertNotSame(longValue, pool.intern(new String(longValue)));
+    }
+
+    @Test
+    void concurrentInterning_returnsEqualValues() throws Exception {
+        StringPool pool = new StringPool(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        String value = "user" + (i % 300);
+                        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+                        assertEquals(value, pool.intern(bytes, 0, bytes.length));
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertSame(pool.intern(new String("user5")), pool.intern(new String("user5")));
+    }
+}
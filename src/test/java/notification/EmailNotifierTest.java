@@ -3,15 +3,22 @@ package notification;
 import domain.User;
 import jakarta.mail.Message;
 import jakarta.mail.MessagingException;
-import jakarta.mail.Transport;
+import jakarta.mail.SendFailedException;
 import org.junit.jupiter.api.Test;
-import org.mockito.MockedStatic;
+import org.mockito.ArgumentCaptor;
 
 import java.lang.reflect.Field;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class EmailNotifierTest {
 
@@ -63,35 +70,69 @@ public class EmailNotifierTest {
     }
 
     @Test
-    void notify_successPath_mockTransportSend() {
+    void notify_successPath_sendsThroughPool() throws Exception {
         EmailNotifier notifier = new EmailNotifier();
         setField(notifier, "senderEmail", "sender@example.com");
         setField(notifier, "appPassword", "appPass");
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        setField(notifier, "pool", pool);
 
         User user = new User("Ali", "a@a.com");
 
-        try (MockedStatic<Transport> transport = mockStatic(Transport.class)) {
-            transport.when(() -> Transport.send(any(Message.class))).thenAnswer(inv -> null);
+        assertDoesNotThrow(() -> notifier.notify(user, "Hello"));
+        assertDoesNotThrow(() -> notifier.notify(user, "Hello again"));
 
-            assertDoesNotThrow(() -> notifier.notify(user, "Hello"));
-            transport.verify(() -> Transport.send(any(Message.class)));
-        }
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        verify(pool, times(2)).send(sent.capture());
+        assertEquals("a@a.com", sent.getValue().getAllRecipients()[0].toString());
     }
 
     @Test
-    void notify_failurePath_hitsCatchBlock() {
+    void notify_failurePath_throwsNotificationException() throws Exception {
         EmailNotifier notifier = new EmailNotifier();
         setField(notifier, "senderEmail", "sender@example.com");
         setField(notifier, "appPassword", "appPass");
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        setField(notifier, "pool", pool);
+        doThrow(new MessagingException("fail")).when(pool).send(any(Message.class));
 
         User user = new User("Ali", "a@a.com");
 
-        try (MockedStatic<Transport> transport = mockStatic(Transport.class)) {
-            transport.when(() -> Transport.send(any(Message.class)))
-                    .thenThrow(new MessagingException("fail"));
+        NotificationException e = assertThrows(NotificationException.class, () -> notifier.notify(user, "Hello"));
+        assertInstanceOf(MessagingException.class, e.getCause());
+        verify(pool).send(any(Message.class));
+    }
 
-            assertDoesNotThrow(() -> notifier.notify(user, "Hello"));
-            transport.verify(() -> Transport.send(any(Message.class)));
-        }
+    @Test
+    void notify_permanentFailures_areNotRetryable() throws Exception {
+        EmailNotifier notifier = new EmailNotifier();
+        setField(notifier, "senderEmail", "sender@example.com");
+        setField(notifier, "appPassword", "appPass");
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        setField(notifier, "pool", pool);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> notifier.notify(new User("Ali", "not an@address@"), "Hello"));
+        verify(pool, never()).send(any(Message.class));
+
+        doThrow(new SendFailedException("550 no such user")).when(pool).send(any(Message.class));
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class,
+                () -> notifier.notify(new User("Ali", "a@a.com"), "Hello"));
+        assertInstanceOf(SendFailedException.class, refused.getCause());
+
+        doThrow(new IllegalStateException("SMTP pool is closed")).when(pool).send(any(Message.class));
+        assertThrows(IllegalStateException.class, () -> notifier.notify(new User("Ali", "a@a.com"), "Hello"));
+    }
+
+    @Test
+    void close_closesPool() {
+        EmailNotifier notifier = new EmailNotifier();
+        assertDoesNotThrow(notifier::close);
+
+        SmtpTransportPool pool = mock(SmtpTransportPool.class);
+        setField(notifier, "pool", pool);
+        notifier.close();
+
+        verify(pool).close();
     }
 }
@@ -0,0 +1,220 @@
+package notification;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SmtpTransportPoolTest {
+
+    private FakeSmtpServer server;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (server != null) server.close();
+    }
+
+    private static Session session(FakeSmtpServer server) {
+        Properties props = new Properties();
+        props.put("mail.smtp.host", "127.0.0.1");
+        props.put("mail.smtp.port", String.valueOf(server.port()));
+        props.put("mail.smtp.connectiontimeout", "5000");
+        props.put("mail.smtp.timeout", "5000");
+        return Session.getInstance(props);
+    }
+
+    private static Message message(Session session, int n) throws MessagingException {
+        Message msg = new MimeMessage(session);
+        msg.setFrom(new InternetAddress("library@example.com"));
+        msg.setRecipient(Message.RecipientType.TO, new InternetAddress("user" + n + "@example.com"));
+        msg.setSubject("Library Overdue Notice");
+        msg.setText("You have 1 overdue item(s).");
+        return msg;
+    }
+
+    @Test
+    void send_fromSeveralThreads_reusesPooledConnections() throws Exception {
+        server = new FakeSmtpServer(0);
+        Session session = session(server);
+        int messages = 400;
+
+        try (SmtpTransportPool pool = new SmtpTransportPool(session, 2, 100)) {
+            ExecutorService threads = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> sends = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int from = t * messages / 4;
+                    sends.add(threads.submit(() -> {
+                        for (int i = from; i < from + messages / 4; i++) {
+                            pool.send(message(session, i));
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> f : sends) f.get();
+            } finally {
+                threads.shutdown();
+            }
+
+            assertEquals(messages, server.messages.get());
+            assertTrue(server.connections.get() <= 2 + messages / 100,
+                    "opened " + server.connections.get() + " connections");
+            assertTrue(pool.idleConnections() <= 2);
+        }
+    }
+
+    @Test
+    void send_reconnectsWhenTheServerDropsTheConnection() throws Exception {
+        server = new FakeSmtpServer(3);
+        Session session = session(server);
+
+        try (SmtpTransportPool pool = new SmtpTransportPool(session, 1, 100)) {
+            for (int i = 0; i < 10; i++) {
+                pool.send(message(session, i));
+            }
+        }
+
+        assertEquals(10, server.messages.get());
+        assertEquals(4, server.connections.get());
+    }
+
+    @Test
+    void send_replacesConnectionAfterMessageLimit() throws Exception {
+        server = new FakeSmtpServer(0);
+        Session session = session(server);
+
+        try (SmtpTransportPool pool = new SmtpTransportPool(session, 1, 4)) {
+            for (int i = 0; i < 10; i++) {
+                pool.send(message(session, i));
+            }
+            assertEquals(1, pool.idleConnections());
+        }
+
+        assertEquals(10, server.messages.get());
+        assertEquals(3, server.connections.get());
+    }
+
+    @Test
+    void send_failsAfterRetry_andRejectsSendsAfterClose() throws Exception {
+        server = new FakeSmtpServer(0);
+        Session session = session(server);
+        SmtpTransportPool pool = new SmtpTransportPool(session, 1, 100);
+        Message msg = message(session, 1);
+        server.close();
+
+        assertThrows(MessagingException.class, () -> pool.send(msg));
+        assertEquals(0, pool.idleConnections());
+
+        pool.close();
+        assertThrows(IllegalStateException.class, () -> pool.send(msg));
+        assertThrows(IllegalArgumentException.class, () -> new SmtpTransportPool(session, 0, 1));
+    }
+
+    /**
+     * Minimal in-process SMTP server: accepts every sender and recipient and
+     * counts connections and delivered messages. With {@code dropAfter > 0}
+     * it closes each connection without a reply after that many messages.
+     */
+    static final class FakeSmtpServer implements AutoCloseable {
+
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger messages = new AtomicInteger();
+
+        private final ServerSocket socket;
+        private final int dropAfter;
+
+        FakeSmtpServer(int dropAfter) throws IOException {
+            this.dropAfter = dropAfter;
+            this.socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!socket.isClosed()) {
+                try {
+                    Socket client = socket.accept();
+                    connections.incrementAndGet();
+                    Thread handler = new Thread(() -> serve(client), "fake-smtp-session");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket client) {
+            try (client;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+                 OutputStream out = client.getOutputStream()) {
+
+                reply(out, "220 fake-smtp ready");
+                int accepted = 0;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.length() < 4 ? line : line.substring(0, 4).toUpperCase();
+                    if (dropAfter > 0 && accepted == dropAfter && command.equals("MAIL")) {
+                        return;
+                    }
+                    switch (command) {
+                        case "EHLO", "HELO" -> reply(out, "250 fake-smtp");
+                        case "MAIL", "RCPT", "RSET", "NOOP" -> reply(out, "250 OK");
+                        case "DATA" -> {
+                            reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // message body is not needed
+                            }
+                            accepted++;
+                            messages.incrementAndGet();
+                            reply(out, "250 OK queued");
+                        }
+                        case "QUIT" -> {
+                            reply(out, "221 Bye");
+                            return;
+                        }
+                        default -> reply(out, "500 Unknown command");
+                    }
+                }
+            } catch (IOException ignored) {
+                // client went away
+            }
+        }
+
+        private static void reply(OutputStream out, String line) throws IOException {
+            out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package presentation;
+
+import domain.Book;
+import domain.CD;
+import domain.CDLoan;
+import domain.Loan;
+import domain.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import service.CDService;
+import service.LibraryService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class LibraryHttpServerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+
+    private LibraryService library;
+    private CDService cdService;
+    private LibraryHttpServer server;
+    private HttpClient client;
+
+    private final User ali = new User("Ali", "ali@mail.com");
+    private final Book book = new Book("Clean Code", "Robert \"Uncle Bob\" Martin", "111");
+    private final CD cd = new CD("Kind of Blue", "Miles Davis", "C1");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        library = mock(LibraryService.class);
+        cdService = mock(CDService.class);
+        when(library.findUserByName("Ali")).thenReturn(ali);
+        when(library.findBookByISBN("111")).thenReturn(book);
+        when(cdService.findCDById("C1")).thenReturn(cd);
+        when(library.today()).thenReturn(TODAY);
+
+        server = new LibraryHttpServer(library, cdService, 0, 16);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String form) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    @Test
+    void search_returnsBooksAsJson() throws Exception {
+        when(library.searchBooks("clean code")).thenReturn(List.of(book));
+
+        HttpResponse<String> r = get("/search?q=clean+code");
+
+        assertEquals(200, r.statusCode());
+        assertEquals("application/json; charset=utf-8", r.headers().firstValue("Content-Type").orElse(null));
+        assertEquals("[{\"title\":\"Clean Code\",\"author\":\"Robert \\\"Uncle Bob\\\" Martin\","
+                + "\"isbn\":\"111\",\"available\":true}]", r.body());
+    }
+
+    @Test
+    void search_withTypeCd_returnsCDs() throws Exception {
+        when(cdService.search("blue")).thenReturn(List.of(cd));
+
+        HttpResponse<String> r = get("/search?q=blue&type=cd");
+
+        assertEquals(200, r.statusCode());
+        assertEquals("[{\"title\":\"Kind of Blue\",\"artist\":\"Miles Davis\",\"id\":\"C1\",\"available\":true}]", r.body());
+        verify(library, never()).searchBooks(anyString());
+    }
+
+    @Test
+    void search_failure_isA500WithTheMessage() throws Exception {
+        when(library.searchBooks(anyString())).thenThrow(new IllegalStateException("index not ready"));
+
+        HttpResponse<String> r = get("/search?q=x");
+
+        assertEquals(500, r.statusCode());
+        assertEquals("{\"error\":\"index not ready\"}", r.body());
+    }
+
+    @Test
+    void wrongMethod_isA405() throws Exception {
+        assertEquals(405, get("/borrow?user=Ali&isbn=111").statusCode());
+        assertEquals(405, post("/search", "q=x").statusCode());
+        assertEquals("{\"error\":\"use POST\"}", get("/reminders").body());
+        verify(library, never()).borrowBook(any(), any());
+    }
+
+    @Test
+    void borrow_andReturn_ofBookAndCD() throws Exception {
+        when(library.borrowBook(ali, book)).thenReturn(true);
+        when(library.returnBook(ali, book)).thenReturn(true);
+        when(library.borrowCD(ali, cd)).thenReturn(true);
+        when(library.returnCD(ali, cd)).thenReturn(false);
+
+        HttpResponse<String> borrowed = post("/borrow", "user=Ali&isbn=111");
+        assertEquals(200, borrowed.statusCode());
+        assertEquals("{\"ok\":true}", borrowed.body());
+
+        assertEquals(200, post("/return?user=Ali&isbn=111", "").statusCode());
+        assertEquals(200, post("/borrow", "user=Ali&cd=C1").statusCode());
+
+        HttpResponse<String> notLent = post("/return", "user=Ali&cd=C1");
+        assertEquals(409, notLent.statusCode());
+        assertEquals("{\"error\":\"no active loan\"}", notLent.body());
+
+        verify(library).borrowBook(ali, book);
+        verify(library).returnBook(ali, book);
+        verify(library).borrowCD(ali, cd);
+    }
+
+    @Test
+    void borrow_withBadParameters_isA400() throws Exception {
+        assertEquals(400, post("/borrow", "isbn=111").statusCode());
+        assertEquals(400, post("/borrow", "user=Ali").statusCode());
+        assertEquals(400, post("/return", "user=Ali&isbn=111&cd=C1").statusCode());
+        assertEquals("{\"error\":\"expected user and exactly one of isbn or cd\"}", post("/borrow", "").body());
+    }
+
+    @Test
+    void borrow_ofUnknownUserOrItem_isA404() throws Exception {
+        HttpResponse<String> user = post("/borrow", "user=Nobody&isbn=111");
+        assertEquals(404, user.statusCode());
+        assertEquals("{\"error\":\"unknown user\"}", user.body());
+
+        assertEquals("{\"error\":\"unknown book\"}", post("/borrow", "user=Ali&isbn=999").body());
+        assertEquals(404, post("/return", "user=Ali&cd=C9").statusCode());
+        verify(library, never()).borrowBook(any(), any());
+    }
+
+    @Test
+    void concurrentBorrows_ofSameBook_oneWinsAndTheOtherGets409() throws Exception {
+        AtomicBoolean taken = new AtomicBoolean();
+        when(library.borrowBook(ali, book)).thenAnswer(inv -> taken.compareAndSet(false, true));
+
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                responses.add(threads.submit(() -> {
+                    go.await();
+                    return post("/borrow", "user=Ali&isbn=111");
+                }));
+            }
+            go.countDown();
+
+            List<Integer> statuses = new ArrayList<>();
+            List<String> bodies = new ArrayList<>();
+            for (Future<HttpResponse<String>> f : responses) {
+                HttpResponse<String> r = f.get(10, TimeUnit.SECONDS);
+                statuses.add(r.statusCode());
+                bodies.add(r.body());
+            }
+            statuses.sort(null);
+
+            assertEquals(List.of(200, 409), statuses);
+            assertTrue(bodies.contains("{\"error\":\"borrow refused\"}"));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    void overdue_listsBookAndCDLoansWithOverdueDays() throws Exception {
+        Loan loan = new Loan(ali, book, TODAY.minusDays(40), TODAY.minusDays(12), true);
+        CDLoan cdLoan = new CDLoan(ali, cd, TODAY.minusDays(10), TODAY.minusDays(3), true);
+        when(library.getOverdueLoans()).thenReturn(List.of(loan));
+        when(library.getOverdueCDLoans()).thenReturn(List.of(cdLoan));
+
+        HttpResponse<String> r = get("/overdue");
+
+        assertEquals(200, r.statusCode());
+        assertEquals("{\"books\":[{\"user\":\"Ali\",\"isbn\":\"111\",\"dueDate\":\"2025-02-17\",\"overdueDays\":12}],"
+                + "\"cds\":[{\"user\":\"Ali\",\"cd\":\"C1\",\"dueDate\":\"2025-02-26\",\"overdueDays\":3}]}", r.body());
+    }
+
+    @Test
+    void overdue_withNothingOverdue_returnsEmptyLists() throws Exception {
+        when(library.getOverdueLoans()).thenReturn(List.of());
+        when(library.getOverdueCDLoans()).thenReturn(List.of());
+
+        assertEquals("{\"books\":[],\"cds\":[]}", get("/overdue").body());
+    }
+
+    @Test
+    void reminders_queuesAReminderRun() throws Exception {
+        HttpResponse<String> r = post("/reminders", "");
+
+        assertEquals(200, r.statusCode());
+        assertEquals("{\"ok\":true,\"queued\":true}", r.body());
+        verify(library).sendOverdueReminders();
+    }
+
+    @Test
+    void quote_escapesJsonSpecialCharacters() {
+        assertEquals("null", LibraryHttpServer.quote(null));
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001\"", LibraryHttpServer.quote("a\"b\\c\nd\u0001"));
+    }
+}
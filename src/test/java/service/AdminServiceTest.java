@@ -13,6 +13,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static service.FileRecords.records;
 
 public class AdminServiceTest {
 
@@ -153,7 +154,7 @@ public class AdminServiceTest {
     @Test
     public void loadAdminsFromFile_linesNull_resultsEmpty() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(null);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(List.of()));
 
             adminService.loadAdminsFromFile();
 
@@ -174,7 +175,7 @@ public class AdminServiceTest {
         ));
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(lines);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(lines));
 
             adminService.loadAdminsFromFile();
 
@@ -192,8 +193,8 @@ public class AdminServiceTest {
         assertEquals(1, adminService.getAllAdmins().size());
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString()))
-                    .thenReturn(List.of("AdminA,100,PassA"));
+            fm.when(() -> FileManager.forEachRecord(anyString(), any()))
+                    .thenAnswer(records(List.of("AdminA,100,PassA")));
 
             adminService.loadAdminsFromFile();
 
@@ -201,4 +202,19 @@ public class AdminServiceTest {
             assertEquals("AdminA", adminService.getAllAdmins().get(0).getUserName());
         }
     }
+
+    @Test
+    public void saveAdminsIfDirty_onlyWritesAfterUnsavedChange() {
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            adminService.addAdmin("AdminA", 100, "PassA");
+            assertFalse(adminService.isDirty());
+            assertFalse(adminService.saveAdminsIfDirty());
+
+            adminService.restoreAdmins(List.of());
+            assertEquals(2, adminService.getGeneration());
+            assertFalse(adminService.saveAdminsIfDirty());
+
+            fm.verify(() -> FileManager.writeLines(anyString(), anyList()), times(1));
+        }
+    }
 }
@@ -0,0 +1,147 @@
+package service;
+
+import domain.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+    }
+
+    @Test
+    void search_title_substring_spanning_words() {
+        Book b = new Book("Java Programming", "Mark", "111");
+        index.add(b);
+
+        assertEquals(List.of(b), index.search("va Pro"));
+        assertEquals(List.of(b), index.search("PROGRAM"));
+        assertTrue(index.search("Programs").isEmpty());
+    }
+
+    @Test
+    void search_short_keyword_uses_its_own_posting_list() {
+        Book b1 = new Book("Go", "A", "1");
+        Book b2 = new Book("Rust", "B", "2");
+        Book b3 = new Book("Gogo", "C", "3");
+        index.add(b1);
+        index.add(b2);
+        index.add(b3);
+
+        assertEquals(List.of(b1, b3), index.search("g"));
+        assertEquals(List.of(b1, b3), index.search("GO"));
+        assertEquals(List.of(b3), index.search("ogo"));
+        assertEquals(List.of(b2), index.search("ru"));
+        assertEquals(List.of(b1), index.search("o", 1));
+        assertTrue(index.search("x").isEmpty());
+    }
+
+    @Test
+    void search_short_non_ascii_keyword() {
+        Book b1 = new Book("Ça ira", "A", "1");
+        Book b2 = new Book("Café", "B", "2");
+        index.add(b1);
+        index.add(b2);
+
+        assertEquals(List.of(b1), index.search("ç"));
+        assertEquals(List.of(b2), index.search("FÉ"));
+        assertEquals(List.of(b1, b2), index.search("a"));
+    }
+
+    @Test
+    void search_author_requires_whole_value() {
+        Book b = new Book("Networks", "Omar Khaled", "333");
+        index.add(b);
+
+        assertEquals(List.of(b), index.search("omar khaled"));
+        assertTrue(index.search("Omar").isEmpty());
+    }
+
+    @Test
+    void search_isbn_exact_and_duplicates_kept_in_order() {
+        Book b1 = new Book("T1", "A1", "X9");
+        Book b2 = new Book("T2", "A2", "X9");
+        index.add(b1);
+        index.add(b2);
+
+        assertEquals(List.of(b1, b2), index.search("X9"));
+        assertTrue(index.search("x9").isEmpty());
+    }
+
+    @Test
+    void search_book_matching_several_rules_listed_once() {
+        Book b = new Book("abc", "abc", "abc");
+        index.add(b);
+
+        assertEquals(List.of(b), index.search("abc"));
+    }
+
+    @Test
+    void search_handles_null_fields() {
+        Book b = new Book(null, null, "999");
+        index.add(b);
+
+        assertEquals(List.of(b), index.search("999"));
+        assertTrue(index.search("anything").isEmpty());
+    }
+
+    @Test
+    void search_with_limit_ignores_books_added_later() {
+        Book b1 = new Book("Java Basics", "Mark", "111");
+        Book b2 = new Book("Java Advanced", "Mark", "111");
+        index.add(b1);
+        index.add(b2);
+
+        assertEquals(List.of(b1), index.search("java", 1));
+        assertEquals(List.of(b1), index.search("mark", 1));
+        assertEquals(List.of(b1), index.search("111", 1));
+        assertEquals(List.of(b1), index.search("j", 1));
+        assertEquals(List.of(b1, b2), index.search("java", 2));
+        assertTrue(index.search("java", 0).isEmpty());
+    }
+
+    @Test
+    void search_matches_linear_scan_rules_on_random_data() {
+        Random r = new Random(42);
+        String[] words = {"java", "Data", "the", "Art", "of", "Code", "net", "a"};
+        List<Book> books = new ArrayList<>();
+
+        for (int i = 0; i < 500; i++) {
+            String title = words[r.nextInt(words.length)] + " " + words[r.nextInt(words.length)];
+            String author = words[r.nextInt(words.length)];
+            Book b = new Book(title, author, String.valueOf(r.nextInt(100)));
+            books.add(b);
+            index.add(b);
+        }
+
+        String[] queries = {"java", "DATA", "a", "he a", "t", "of code", "42", "Art", "zz", "et"};
+        for (String q : queries) {
+            List<Book> expected = new ArrayList<>();
+            for (Book b : books) {
+                if (b.getTitle().toLowerCase().contains(q.toLowerCase())
+                        || b.getAuthor().equalsIgnoreCase(q)
+                        || b.getIsbn().equals(q)) {
+                    expected.add(b);
+                }
+            }
+            assertEquals(expected, index.search(q), "query: " + q);
+        }
+    }
+
+    @Test
+    void foldCase_agrees_with_equalsIgnoreCase() {
+        assertEquals(BookSearchIndex.foldCase("ANNA"), BookSearchIndex.foldCase("anna"));
+        assertEquals(BookSearchIndex.foldCase("Straße"), BookSearchIndex.foldCase("STRASSE".replace("SS", "ß")));
+        assertNotEquals(BookSearchIndex.foldCase("Anna"), BookSearchIndex.foldCase("Ana"));
+    }
+}
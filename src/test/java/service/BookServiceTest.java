@@ -2,14 +2,27 @@ package service;
 
 import domain.Book;
 import file.FileManager;
+import file.Journal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
 
+import java.io.File;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mockStatic;
 
 public class BookServiceTest {
 
@@ -135,6 +148,15 @@ public class BookServiceTest {
         assertEquals(LocalDate.parse("2025-12-15"), b6.getDueDate());
     }
 
+    @Test
+    public void loadBooksFromFile_sharesRepeatedAuthorString() {
+        FileManager.writeLines(FILE, List.of("T1,Shared Author,111", "T2,Shared Author,222"));
+
+        bookService.loadBooksFromFile();
+
+        assertSame(bookService.findBookByISBN("111").getAuthor(), bookService.findBookByISBN("222").getAuthor());
+    }
+
     @Test
     public void loadBooksFromFile_invalid_date_throws() {
         FileManager.writeLines(FILE, List.of("T,A,111,false,not-a-date,2025-12-15"));
@@ -179,4 +201,170 @@ public class BookServiceTest {
         bookService.addBook("T", "A", "1");
         assertEquals(1, bookService.getAllBooks().size());
     }
+
+    @Test
+    public void getAllBooks_returns_immutable_snapshot() {
+        bookService.addBook("T1", "A", "1");
+        List<Book> before = bookService.getAllBooks();
+
+        bookService.addBook("T2", "A", "2");
+
+        assertEquals(1, before.size());
+        assertEquals(2, bookService.getAllBooks().size());
+        assertEquals(2, bookService.search("T").size());
+        assertThrows(UnsupportedOperationException.class, () -> before.add(new Book("X", "Y", "3")));
+    }
+
+    @Test
+    public void readers_see_consistent_versions_while_books_are_added() throws Exception {
+        List<Book> seed = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            seed.add(new Book("Seed " + i, "Seeder", "s" + i));
+        }
+        bookService.restoreBooks(seed);
+
+        int added = 200;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    int lastSize = 0;
+                    while (writing.get()) {
+                        List<Book> all = bookService.getAllBooks();
+                        assertTrue(all.size() >= lastSize);
+                        lastSize = all.size();
+                        for (int i = 1000; i < all.size(); i++) {
+                            assertEquals("c" + (i - 1000), all.get(i).getIsbn());
+                        }
+
+                        // a search only ever sees a prefix of the books that were added
+                        List<Book> found = bookService.search("writer");
+                        for (int i = 0; i < found.size(); i++) {
+                            assertEquals("c" + i, found.get(i).getIsbn());
+                        }
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+
+        for (int i = 0; i < added; i++) {
+            assertTrue(bookService.addBook("Concurrent " + i, "Writer", "c" + i));
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(List.of(), errors);
+        assertEquals(1000 + added, bookService.getAllBooks().size());
+        assertEquals(added, bookService.search("Writer").size());
+    }
+
+    @Test
+    public void journaling_appends_changes_and_replays_on_load() {
+        bookService.setJournaling(true);
+        bookService.addBook("Java", "Mark", "111");
+
+        Book b = bookService.findBookByISBN("111");
+        b.borrowBook(LocalDate.of(2025, 1, 1));
+        bookService.saveBook(b);
+
+        assertTrue(FileManager.readLines(FILE).isEmpty());
+
+        BookService reloaded = new BookService();
+        reloaded.loadBooksFromFile();
+
+        assertEquals(1, reloaded.getAllBooks().size());
+        Book r = reloaded.findBookByISBN("111");
+        assertFalse(r.isAvailable());
+        assertEquals(LocalDate.of(2025, 1, 29), r.getDueDate());
+
+        reloaded.saveBooksToFile();
+        assertFalse(new File(FILE + Journal.SUFFIX).exists());
+        assertEquals(1, FileManager.readLines(FILE).size());
+    }
+
+    @Test
+    public void saveBooksIfDirty_skips_file_that_is_current() {
+        assertFalse(bookService.isDirty());
+        bookService.addBook("T", "A", "1");
+        assertEquals(1, bookService.getGeneration());
+        assertFalse(bookService.isDirty());
+
+        FileManager.writeLines(FILE, new ArrayList<>());
+        assertFalse(bookService.saveBooksIfDirty());
+        assertTrue(FileManager.readLines(FILE).isEmpty());
+    }
+
+    @Test
+    public void journaled_changes_keep_file_dirty_until_saved() {
+        bookService.setJournaling(true);
+        bookService.addBook("T", "A", "1");
+        bookService.saveBook(bookService.findBookByISBN("1"));
+
+        assertEquals(2, bookService.getGeneration());
+        assertTrue(bookService.isDirty());
+        assertTrue(bookService.saveBooksIfDirty());
+        assertEquals(1, FileManager.readLines(FILE).size());
+
+        assertFalse(bookService.isDirty());
+        assertFalse(bookService.saveBooksIfDirty());
+    }
+
+    @Test
+    public void titles_with_commas_survive_save_and_load() {
+        bookService.addBook("Free, Book", "Doe, \"J\"", "1");
+        Book b = bookService.findBookByISBN("1");
+        b.borrowBook(LocalDate.of(2025, 1, 1));
+        bookService.saveBooksToFile();
+
+        BookService reloaded = new BookService();
+        reloaded.loadBooksFromFile();
+
+        Book loaded = reloaded.findBookByISBN("1");
+        assertNotNull(loaded);
+        assertEquals("Free, Book", loaded.getTitle());
+        assertEquals("Doe, \"J\"", loaded.getAuthor());
+        assertFalse(loaded.isAvailable());
+        assertEquals(LocalDate.of(2025, 1, 29), loaded.getDueDate());
+    }
+
+    @Test
+    public void change_during_full_save_waits_and_is_not_lost() throws Exception {
+        bookService.setJournaling(true);
+        bookService.addBook("T", "A", "1");
+        Book book = bookService.findBookByISBN("1");
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        List<Future<?>> put = new ArrayList<>();
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
+            fm.when(() -> FileManager.writeLines(anyString(), anyList())).thenAnswer(inv -> {
+                put.add(other.submit(() -> {
+                    book.borrowBook(LocalDate.of(2025, 1, 1));
+                    bookService.saveBook(book);
+                }));
+                Thread.sleep(100);
+                assertFalse(put.get(0).isDone());
+                return inv.callRealMethod();
+            });
+
+            bookService.saveBooksToFile();
+            put.get(0).get(5, TimeUnit.SECONDS);
+        } finally {
+            other.shutdownNow();
+        }
+
+        assertTrue(bookService.isDirty());
+        BookService reloaded = new BookService();
+        reloaded.loadBooksFromFile();
+        assertFalse(reloaded.findBookByISBN("1").isAvailable());
+
+        bookService.saveBooksToFile();
+    }
 }
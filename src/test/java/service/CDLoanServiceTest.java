@@ -4,20 +4,34 @@ import domain.CD;
 import domain.CDLoan;
 import domain.User;
 import file.FileManager;
+import file.Journal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static service.FileRecords.records;
 
 @ExtendWith(MockitoExtension.class)
 public class CDLoanServiceTest {
@@ -58,7 +72,7 @@ public class CDLoanServiceTest {
         CD cd = mock(CD.class);
 
         when(user.getFineBalance()).thenReturn(0.0);
-        when(user.hasOverdueLoans()).thenReturn(true);
+        when(user.hasOverdueLoans(any(LocalDate.class))).thenReturn(true);
 
         assertFalse(cdLoanService.createCDLoan(user, cd));
         assertTrue(cdLoanService.getAllCDLoans().isEmpty());
@@ -70,7 +84,7 @@ public class CDLoanServiceTest {
         CD cd = mock(CD.class);
 
         when(user.getFineBalance()).thenReturn(0.0);
-        when(user.hasOverdueLoans()).thenReturn(false);
+        when(user.hasOverdueLoans(any(LocalDate.class))).thenReturn(false);
         when(cd.isAvailable()).thenReturn(false);
 
         assertFalse(cdLoanService.createCDLoan(user, cd));
@@ -83,18 +97,37 @@ public class CDLoanServiceTest {
         CD cd = mock(CD.class);
 
         when(user.getFineBalance()).thenReturn(0.0);
-        when(user.hasOverdueLoans()).thenReturn(false);
+        when(user.hasOverdueLoans(any(LocalDate.class))).thenReturn(false);
         when(cd.isAvailable()).thenReturn(true);
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
             assertTrue(cdLoanService.createCDLoan(user, cd));
 
             assertEquals(1, cdLoanService.getAllCDLoans().size());
-            verify(user, times(1)).addCDLoan(any(CDLoan.class));
+            verify(user, times(1)).addCDLoan(any(CDLoan.class), any(LocalDate.class));
             fm.verify(() -> FileManager.writeLines(anyString(), anyList()), times(1));
         }
     }
 
+    @Test
+    void clock_pinsBorrowDate_andOverdueReference() {
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        cdLoanService.setClock(Clock.fixed(day.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+        User user = new User("U", "u@mail.com");
+        CD cd = new CD("T", "A", "CD1");
+
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            assertTrue(cdLoanService.createCDLoan(user, cd));
+        }
+        CDLoan loan = cdLoanService.getAllCDLoans().get(0);
+        assertEquals(day, loan.getBorrowDate());
+        assertEquals(day.plusDays(7), cd.getDueDate());
+
+        LocalDate later = day.plusDays(8);
+        cdLoanService.setClock(Clock.fixed(later.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+        assertEquals(List.of(loan), cdLoanService.getOverdueCDLoans());
+    }
+
     @Test
     void returnCDLoan_userOrCdNull_false() {
         User user = mock(User.class);
@@ -123,7 +156,7 @@ public class CDLoanServiceTest {
         CD otherCd = mock(CD.class);
 
         when(otherUser.getFineBalance()).thenReturn(0.0);
-        when(otherUser.hasOverdueLoans()).thenReturn(false);
+        when(otherUser.hasOverdueLoans(any(LocalDate.class))).thenReturn(false);
         when(otherCd.isAvailable()).thenReturn(true);
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
@@ -152,7 +185,7 @@ public class CDLoanServiceTest {
         CD cd = mock(CD.class);
 
         when(user.getFineBalance()).thenReturn(0.0);
-        when(user.hasOverdueLoans()).thenReturn(false);
+        when(user.hasOverdueLoans(any(LocalDate.class))).thenReturn(false);
         when(cd.isAvailable()).thenReturn(true);
 
         CDLoan loan;
@@ -174,7 +207,7 @@ public class CDLoanServiceTest {
     @Test
     void loadCDLoansFromFile_linesNull_noCrash() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(null);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(List.of()));
 
             assertDoesNotThrow(() -> cdLoanService.loadCDLoansFromFile(new ArrayList<>()));
             assertTrue(cdLoanService.getAllCDLoans().isEmpty());
@@ -187,14 +220,14 @@ public class CDLoanServiceTest {
         User realUser = new User("UserA", "u@test.com");
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString()))
-                    .thenReturn(Arrays.asList(
+            fm.when(() -> FileManager.forEachRecord(anyString(), any()))
+                    .thenAnswer(records(Arrays.asList(
                             null,
                             "",
                             "bad,short,line",
                             "UserA,CD999,2024-01-01,2024-01-05,true",
                             "UserMissing,CD100,2024-01-01,2024-01-05,true"
-                    ));
+                    )));
 
             when(userService.findUserByName("UserA")).thenReturn(realUser);
             when(userService.findUserByName("UserMissing")).thenReturn(null);
@@ -215,10 +248,10 @@ public class CDLoanServiceTest {
         User realUser = new User("UserA", "u@test.com");
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString()))
-                    .thenReturn(List.of(
+            fm.when(() -> FileManager.forEachRecord(anyString(), any()))
+                    .thenAnswer(records(List.of(
                             "UserA,CD100,2024-01-01,2024-01-05,true"
-                    ));
+                    )));
 
             when(userService.findUserByName("UserA")).thenReturn(realUser);
 
@@ -243,10 +276,10 @@ public class CDLoanServiceTest {
         User realUser = new User("UserA", "u@test.com");
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString()))
-                    .thenReturn(List.of(
+            fm.when(() -> FileManager.forEachRecord(anyString(), any()))
+                    .thenAnswer(records(List.of(
                             "UserA,CD200,2023-01-01,2023-01-05,false"
-                    ));
+                    )));
 
             when(userService.findUserByName("UserA")).thenReturn(realUser);
 
@@ -291,4 +324,141 @@ public class CDLoanServiceTest {
         cdLoanService.getAllCDLoans().add(mock(CDLoan.class));
         assertEquals(1, cdLoanService.getAllCDLoans().size());
     }
+
+    @Test
+    void concurrentCDLoans_sameItemIsLentOnlyOnce() throws Exception {
+        // journaling keeps the threads away from the real data file
+        cdLoanService.setJournaling(true);
+        try {
+            List<CD> cds = new ArrayList<>();
+            for (int i = 0; i < 16; i++) cds.add(new CD("Title " + i, "Artist", "cd-" + i));
+
+            AtomicInteger successes = new AtomicInteger();
+            runConcurrently(64, t -> {
+                User user = new User("user" + t);
+                for (int i = 0; i < cds.size(); i++) {
+                    if (cdLoanService.createCDLoan(user, cds.get((t + i) % cds.size()))) {
+                        successes.incrementAndGet();
+                    }
+                }
+            });
+
+            assertEquals(cds.size(), successes.get());
+            for (CD cd : cds) {
+                long active = cdLoanService.getAllCDLoans().stream()
+                        .filter(l -> l.getCD() == cd && l.isActive())
+                        .count();
+                assertEquals(1, active);
+            }
+        } finally {
+            Files.deleteIfExists(Path.of("src/main/resources/data/cdloans.txt" + Journal.SUFFIX));
+        }
+    }
+
+    @Test
+    void concurrentBorrowAndReturn_neverTwoHoldersAtOnce() throws Exception {
+        cdLoanService.setJournaling(true);
+        try {
+            List<CD> cds = new ArrayList<>();
+            for (int i = 0; i < 8; i++) cds.add(new CD("Title " + i, "Artist", "cd-" + i));
+
+            AtomicIntegerArray holders = new AtomicIntegerArray(cds.size());
+            AtomicInteger violations = new AtomicInteger();
+            AtomicInteger failedReturns = new AtomicInteger();
+
+            runConcurrently(64, t -> {
+                User user = new User("user" + t);
+                for (int i = 0; i < 6; i++) {
+                    int n = (t * 7 + i) % cds.size();
+                    CD cd = cds.get(n);
+                    if (!cdLoanService.createCDLoan(user, cd)) continue;
+
+                    if (holders.incrementAndGet(n) > 1) violations.incrementAndGet();
+                    holders.decrementAndGet(n);
+
+                    if (!cdLoanService.returnCDLoan(user, cd)) failedReturns.incrementAndGet();
+                }
+            });
+
+            assertEquals(0, violations.get());
+            assertEquals(0, failedReturns.get());
+            assertTrue(cdLoanService.getAllCDLoans().stream().noneMatch(CDLoan::isActive));
+        } finally {
+            Files.deleteIfExists(Path.of("src/main/resources/data/cdloans.txt" + Journal.SUFFIX));
+        }
+    }
+
+    @Test
+    void getOverdueCDLoans_onDate_skipsReturnedLoans() {
+        User u = new User("u");
+        CD late = new CD("CD1", "Artist", "CD1");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        CDLoan lateLoan = new CDLoan(u, late, day.minusDays(20), day.minusDays(13), true);
+        cdLoanService.getAllCDLoans().add(lateLoan);
+        u.getActiveCDLoans().add(lateLoan);
+
+        assertEquals(List.of(lateLoan), cdLoanService.getOverdueCDLoans(day));
+        assertTrue(cdLoanService.getOverdueCDLoans(day.minusDays(13)).isEmpty());
+
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            assertTrue(cdLoanService.returnCDLoan(u, late));
+        }
+
+        assertTrue(cdLoanService.getOverdueCDLoans(day).isEmpty());
+    }
+
+    @Test
+    void findActiveLoan_usesItemIndex_andRejectsOtherUsersOnReturn() {
+        User owner = new User("owner");
+        User other = new User("other");
+        CD cd = new CD("CD1", "Artist", "CD1");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        CDLoan loan = new CDLoan(owner, cd, day, day.plusDays(7), true);
+        cdLoanService.getAllCDLoans().add(loan);
+        owner.getActiveCDLoans().add(loan);
+
+        assertSame(loan, cdLoanService.findActiveLoan(cd));
+
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            assertFalse(cdLoanService.returnCDLoan(other, cd));
+            assertTrue(cdLoanService.returnCDLoan(owner, cd));
+        }
+
+        assertNull(cdLoanService.findActiveLoan(cd));
+    }
+
+    private static void runConcurrently(int threads, IntConsumer task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.accept(id);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void saveLoansIfDirty_skipsRestoredLoans() {
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            cdLoanService.restoreCDLoans(List.of(), List.of());
+
+            assertFalse(cdLoanService.isDirty());
+            assertFalse(cdLoanService.saveLoansIfDirty());
+            fm.verify(() -> FileManager.writeLines(anyString(), anyList()), never());
+        }
+    }
 }
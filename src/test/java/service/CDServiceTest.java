@@ -13,6 +13,7 @@ import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static service.FileRecords.records;
 
 public class CDServiceTest {
 
@@ -47,8 +48,7 @@ public class CDServiceTest {
     }
     @Test
     void saveCDsToFile_writes_all_rows_including_null_dates() {
-        cdService.getAllCDs().add(new CD("T1", "A1", "C1"));
-        cdService.getAllCDs().add(new CD("T2", "A2", "C2"));
+        cdService.restoreCDs(List.of(new CD("T1", "A1", "C1"), new CD("T2", "A2", "C2")));
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
             fm.when(() -> FileManager.writeLines(anyString(), anyList())).thenAnswer(inv -> null);
@@ -69,11 +69,10 @@ public class CDServiceTest {
         }
     }
 
-
     @Test
     void loadCDsFromFile_linesNull_noCrash() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(null);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(List.of()));
 
             assertDoesNotThrow(() -> cdService.loadCDsFromFile());
             assertTrue(cdService.getAllCDs().isEmpty());
@@ -83,12 +82,12 @@ public class CDServiceTest {
     @Test
     void loadCDsFromFile_skips_blank_and_incomplete() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(Arrays.asList(
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(Arrays.asList(
                     null,
                     "",
                     "only,two",
                     "T1,A1,C1,true,null,null"
-            ));
+            )));
 
             cdService.loadCDsFromFile();
 
@@ -97,12 +96,26 @@ public class CDServiceTest {
         }
     }
 
+    @Test
+    void loadCDsFromFile_sharesRepeatedArtistString() {
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(List.of(
+                    "T1,Shared Artist,C1",
+                    "T2,Shared Artist,C2"
+            )));
+
+            cdService.loadCDsFromFile();
+
+            assertSame(cdService.findCDById("C1").getArtist(), cdService.findCDById("C2").getArtist());
+        }
+    }
+
     @Test
     void loadCDsFromFile_available_true_forces_clear_dates() {
         List<String> lines = List.of("T1,A1,C1,true,2025-01-01,2025-01-10");
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(lines);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(lines));
 
             cdService.loadCDsFromFile();
 
@@ -119,7 +132,7 @@ public class CDServiceTest {
         List<String> lines = List.of("T1,A1,C1,null,2025-01-01,2025-01-08");
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(lines);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(lines));
 
             cdService.loadCDsFromFile();
 
@@ -136,7 +149,7 @@ public class CDServiceTest {
         List<String> lines = List.of("T1,A1,C1,false,2025-01-01,2025-01-08");
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(lines);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(lines));
 
             cdService.loadCDsFromFile();
 
@@ -213,9 +226,36 @@ public class CDServiceTest {
     }
 
     @Test
-    void getAllCDs_live_list() {
-        assertTrue(cdService.getAllCDs().isEmpty());
-        cdService.getAllCDs().add(new CD("T", "A", "X"));
+    void getAllCDs_returns_immutable_snapshot() {
+        List<CD> before = cdService.getAllCDs();
+        assertTrue(before.isEmpty());
+        assertThrows(UnsupportedOperationException.class, () -> before.add(new CD("T", "A", "X")));
+
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
+            fm.when(() -> FileManager.writeLines(anyString(), anyList())).thenAnswer(inv -> null);
+            cdService.addCD("T", "A", "X");
+        }
+
+        assertTrue(before.isEmpty());
         assertEquals(1, cdService.getAllCDs().size());
     }
+
+    @Test
+    void saveCD_persists_state_and_saveIfDirty_skips_current_file() {
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class, CALLS_REAL_METHODS)) {
+            fm.when(() -> FileManager.writeLines(anyString(), anyList())).thenAnswer(inv -> null);
+
+            cdService.addCD("T1", "A1", "C1");
+            CD cd = cdService.findCDById("C1");
+            cd.borrowCD(LocalDate.of(2025, 1, 1));
+            cdService.saveCD(cd);
+
+            fm.verify(() -> FileManager.writeLines(eq(FILE), argThat(list ->
+                    list != null && list.size() == 1 && list.get(0).startsWith("T1,A1,C1,false,2025-01-01,"))));
+            assertEquals(2, cdService.getGeneration());
+            assertFalse(cdService.isDirty());
+            assertFalse(cdService.saveCDsIfDirty());
+            fm.verify(() -> FileManager.writeLines(eq(FILE), anyList()), times(2));
+        }
+    }
 }
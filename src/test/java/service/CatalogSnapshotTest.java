@@ -0,0 +1,58 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogSnapshotTest {
+
+    @Test
+    void plus_returnsLongerVersion_andLeavesOlderOnesUnchanged() {
+        CatalogSnapshot<String> empty = CatalogSnapshot.empty();
+        CatalogSnapshot<String> one = empty.plus("a");
+        CatalogSnapshot<String> two = one.plus("b");
+
+        assertEquals(List.of(), empty);
+        assertEquals(List.of("a"), one);
+        assertEquals(List.of("a", "b"), two);
+    }
+
+    @Test
+    void plus_growsPastInitialCapacity() {
+        CatalogSnapshot<Integer> snapshot = CatalogSnapshot.empty();
+        List<CatalogSnapshot<Integer>> versions = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            snapshot = snapshot.plus(i);
+            versions.add(snapshot);
+        }
+
+        assertEquals(100, snapshot.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i + 1, versions.get(i).size());
+            assertEquals(i, versions.get(i).get(i));
+        }
+    }
+
+    @Test
+    void of_copiesItems() {
+        List<String> source = new ArrayList<>(List.of("a", "b"));
+        CatalogSnapshot<String> snapshot = CatalogSnapshot.of(source);
+        source.add("c");
+
+        assertEquals(List.of("a", "b"), snapshot);
+        assertEquals(List.of("a", "b", "d"), snapshot.plus("d"));
+    }
+
+    @Test
+    void isImmutable_andChecksBounds() {
+        CatalogSnapshot<String> snapshot = CatalogSnapshot.<String>empty().plus("a");
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add("b"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.set(0, "b"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(1));
+    }
+}
@@ -0,0 +1,49 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeTrackerTest {
+
+    @Test
+    void changesMakeDirty_untilSaved() {
+        ChangeTracker changes = new ChangeTracker();
+        assertFalse(changes.isDirty());
+        assertEquals(0, changes.generation());
+
+        changes.changed();
+        changes.changed();
+        assertTrue(changes.isDirty());
+        assertEquals(2, changes.generation());
+
+        changes.saved(changes.generation());
+        assertFalse(changes.isDirty());
+    }
+
+    @Test
+    void changeDuringSave_keepsDirty() {
+        ChangeTracker changes = new ChangeTracker();
+        changes.changed();
+
+        long generation = changes.generation();
+        changes.changed();
+        changes.saved(generation);
+
+        assertTrue(changes.isDirty());
+    }
+
+    @Test
+    void loaded_isClean_andOlderSaveDoesNotGoBack() {
+        ChangeTracker changes = new ChangeTracker();
+        changes.changed();
+        long old = changes.generation();
+
+        changes.loaded();
+        assertFalse(changes.isDirty());
+        assertEquals(2, changes.generation());
+
+        changes.saved(old);
+        assertFalse(changes.isDirty());
+    }
+}
@@ -0,0 +1,33 @@
+package service;
+
+import file.CsvRecord;
+import org.mockito.stubbing.Answer;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Stubs for {@link file.FileManager} calls in service tests.
+ */
+final class FileRecords {
+
+    private FileRecords() {
+    }
+
+    /**
+     * Answers a mocked {@code FileManager.forEachRecord(path, action)} by
+     * feeding the given lines to the action, skipping nulls.
+     *
+     * @param lines the file's lines
+     * @return the answer
+     */
+    static Answer<Void> records(List<String> lines) {
+        return inv -> {
+            Consumer<CsvRecord> action = inv.getArgument(1);
+            for (String line : lines) {
+                if (line != null) action.accept(CsvRecord.of(line));
+            }
+            return null;
+        };
+    }
+}
@@ -14,6 +14,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import static service.FileRecords.records;
 
 public class LibrarianServiceTest {
 
@@ -188,8 +189,8 @@ public class LibrarianServiceTest {
 
         try (MockedStatic<FileManager> mocked = mockStatic(FileManager.class)) {
 
-            mocked.when(() -> FileManager.readLines(anyString()))
-                    .thenReturn(fakeLines);
+            mocked.when(() -> FileManager.forEachRecord(anyString(), any()))
+                    .thenAnswer(records(fakeLines));
 
             service.loadLibrariansFromFile();
 
@@ -219,8 +220,8 @@ public class LibrarianServiceTest {
 
         try (MockedStatic<FileManager> mocked = mockStatic(FileManager.class)) {
 
-            mocked.when(() -> FileManager.readLines(anyString()))
-                    .thenReturn(null);
+            mocked.when(() -> FileManager.forEachRecord(anyString(), any()))
+                    .thenAnswer(records(List.of()));
 
             service.loadLibrariansFromFile();
 
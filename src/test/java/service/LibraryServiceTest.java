@@ -8,8 +8,12 @@ import domain.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -52,6 +56,17 @@ public class LibraryServiceTest {
         verify(bookService, times(1)).findBookByISBN("111");
     }
 
+    @Test
+    void searchBooks_delegates_and_treatsNullAsBlank() {
+        Book b = mock(Book.class);
+        when(bookService.search("java")).thenReturn(List.of(b));
+        when(bookService.search("")).thenReturn(List.of());
+
+        assertEquals(List.of(b), libraryService.searchBooks("java"));
+        assertTrue(libraryService.searchBooks(null).isEmpty());
+        verify(bookService).search("");
+    }
+
     @Test
     void findCDById_returnsMatch_orNull() {
         CD c1 = new CD("T1", "A1", "1");
@@ -66,31 +81,21 @@ public class LibraryServiceTest {
     void findLoanUser_returnsUserWhenActiveLoanMatches() {
         Book b = mock(Book.class);
 
-        Loan l1 = mock(Loan.class);
-        when(l1.getBook()).thenReturn(mock(Book.class));
-        when(l1.isActive()).thenReturn(true);
-
-        Loan l2 = mock(Loan.class);
-        when(l2.getBook()).thenReturn(b);
-        when(l2.isActive()).thenReturn(true);
-
+        Loan l = mock(Loan.class);
         User u = mock(User.class);
-        when(l2.getUser()).thenReturn(u);
+        when(l.getUser()).thenReturn(u);
 
-        when(loanService.getAllLoans()).thenReturn(List.of(l1, l2));
+        when(loanService.findActiveLoan(b)).thenReturn(l);
 
         assertSame(u, libraryService.findLoanUser(b));
+        verify(loanService, never()).getAllLoans();
     }
 
     @Test
     void findLoanUser_returnsNullWhenNoMatch() {
         Book b = mock(Book.class);
 
-        Loan l = mock(Loan.class);
-        when(l.getBook()).thenReturn(mock(Book.class));
-        when(l.isActive()).thenReturn(true);
-
-        when(loanService.getAllLoans()).thenReturn(List.of(l));
+        when(loanService.findActiveLoan(b)).thenReturn(null);
 
         assertNull(libraryService.findLoanUser(b));
     }
@@ -105,8 +110,8 @@ public class LibraryServiceTest {
         assertTrue(libraryService.borrowBook(u, b));
 
         verify(loanService, times(1)).createLoan(u, b);
-        verify(bookService, times(1)).saveBooksToFile();
-        verify(userService, times(1)).saveUsers();
+        verify(bookService, times(1)).saveBook(b);
+        verify(userService, times(1)).saveUser(u);
     }
 
     @Test
@@ -119,8 +124,8 @@ public class LibraryServiceTest {
         assertFalse(libraryService.borrowBook(u, b));
 
         verify(loanService, times(1)).createLoan(u, b);
-        verify(bookService, never()).saveBooksToFile();
-        verify(userService, never()).saveUsers();
+        verify(bookService, never()).saveBook(b);
+        verify(userService, never()).saveUser(u);
     }
 
     @Test
@@ -133,8 +138,8 @@ public class LibraryServiceTest {
         assertTrue(libraryService.returnBook(u, b));
 
         verify(loanService, times(1)).returnLoan(u, b);
-        verify(bookService, times(1)).saveBooksToFile();
-        verify(userService, times(1)).saveUsers();
+        verify(bookService, times(1)).saveBook(b);
+        verify(userService, times(1)).saveUser(u);
     }
 
     @Test
@@ -147,8 +152,8 @@ public class LibraryServiceTest {
         assertFalse(libraryService.returnBook(u, b));
 
         verify(loanService, times(1)).returnLoan(u, b);
-        verify(bookService, never()).saveBooksToFile();
-        verify(userService, never()).saveUsers();
+        verify(bookService, never()).saveBook(b);
+        verify(userService, never()).saveUser(u);
     }
 
     @Test
@@ -157,12 +162,11 @@ public class LibraryServiceTest {
         CD cd = mock(CD.class);
 
         when(cdLoanService.createCDLoan(u, cd)).thenReturn(true);
-        when(cdLoanService.getAllCDLoans()).thenReturn(new ArrayList<>());
 
         assertTrue(libraryService.borrowCD(u, cd));
 
         verify(cdLoanService, times(1)).createCDLoan(u, cd);
-        verify(userService, times(1)).saveUsers();
+        verify(userService, times(1)).saveUser(u);
     }
 
     @Test
@@ -175,7 +179,7 @@ public class LibraryServiceTest {
         assertFalse(libraryService.borrowCD(u, cd));
 
         verify(cdLoanService, times(1)).createCDLoan(u, cd);
-        verify(userService, never()).saveUsers();
+        verify(userService, never()).saveUser(u);
     }
 
     @Test
@@ -184,12 +188,11 @@ public class LibraryServiceTest {
         CD cd = mock(CD.class);
 
         when(cdLoanService.returnCDLoan(u, cd)).thenReturn(true);
-        when(cdLoanService.getAllCDLoans()).thenReturn(new ArrayList<>());
 
         assertTrue(libraryService.returnCD(u, cd));
 
         verify(cdLoanService, times(1)).returnCDLoan(u, cd);
-        verify(userService, times(1)).saveUsers();
+        verify(userService, times(1)).saveUser(u);
     }
 
     @Test
@@ -202,7 +205,7 @@ public class LibraryServiceTest {
         assertFalse(libraryService.returnCD(u, cd));
 
         verify(cdLoanService, times(1)).returnCDLoan(u, cd);
-        verify(userService, never()).saveUsers();
+        verify(userService, never()).saveUser(u);
     }
 
     @Test
@@ -242,16 +245,21 @@ public class LibraryServiceTest {
     }
 
     @Test
-    void sendOverdueReminders_passesBothLists() {
+    void sendOverdueReminders_passesBothLists_forOneBusinessDate() {
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        libraryService.setClock(Clock.fixed(day.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+
         List<Loan> overdueBooks = List.of(mock(Loan.class), mock(Loan.class));
         List<CDLoan> overdueCds = List.of(mock(CDLoan.class));
 
-        when(loanService.getOverdueLoans()).thenReturn(overdueBooks);
-        when(cdLoanService.getOverdueCDLoans()).thenReturn(overdueCds);
+        when(loanService.getOverdueLoans(day)).thenReturn(overdueBooks);
+        when(cdLoanService.getOverdueCDLoans(day)).thenReturn(overdueCds);
 
-        libraryService.sendOverdueReminders();
+        CompletableFuture<ReminderReport> run = new CompletableFuture<>();
+        when(reminderService.dispatchReminders(overdueBooks, overdueCds)).thenReturn(run);
 
-        verify(reminderService, times(1)).sendReminders(overdueBooks, overdueCds);
+        assertSame(run, libraryService.sendOverdueReminders());
+        verify(reminderService, times(1)).dispatchReminders(overdueBooks, overdueCds);
     }
 
     @Test
@@ -271,4 +279,20 @@ public class LibraryServiceTest {
         assertSame(books, libraryService.getAllBooks());
         verify(bookService, times(1)).getAllBooks();
     }
+
+    @Test
+    void borrowAndReturnCD_saveCD_whenCDServiceAttached() {
+        User u = mock(User.class);
+        CD cd = mock(CD.class);
+        CDService cdService = mock(CDService.class);
+        libraryService.setCDService(cdService);
+
+        when(cdLoanService.createCDLoan(u, cd)).thenReturn(true);
+        when(cdLoanService.returnCDLoan(u, cd)).thenReturn(false);
+
+        assertTrue(libraryService.borrowCD(u, cd));
+        assertFalse(libraryService.returnCD(u, cd));
+
+        verify(cdService, times(1)).saveCD(cd);
+    }
 }
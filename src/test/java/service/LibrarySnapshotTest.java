@@ -0,0 +1,190 @@
+package service;
+
+import domain.Admin;
+import domain.Book;
+import domain.CD;
+import domain.CDLoan;
+import domain.Loan;
+import domain.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LibrarySnapshotTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    private final UserService userService = new UserService();
+    private final BookService bookService = new BookService();
+    private final CDService cdService = new CDService();
+    private final LoanService loanService = new LoanService(bookService, userService);
+    private final CDLoanService cdLoanService = new CDLoanService(bookService, userService);
+    private final AdminService adminService = new AdminService();
+
+    private LibrarySnapshot snapshot(UserService u, BookService b, CDService c,
+                                     LoanService l, CDLoanService cl, AdminService a) {
+        return new LibrarySnapshot(u, b, c, l, cl, a);
+    }
+
+    private void fillState() {
+        User ann = new User("Ann", "ann@mail.com");
+        ann.setFineBalance(2.5);
+        User bob = new User("Bob", null);
+        userService.restoreUsers(List.of(ann, bob));
+
+        Book free = new Book("Free, Book", "Ünal", "111");
+        Book lent = new Book("Lent", "Author", "222");
+        bookService.restoreBooks(List.of(free, lent));
+
+        CD cd = new CD("Album", "Artist", "CD1");
+        cdService.restoreCDs(List.of(cd, new CD("Other", "Artist", "CD2")));
+
+        loanService.restoreLoans(List.of(
+                new LoanService.LoanRecord("Ann", "222", DAY, DAY.plusDays(28), true),
+                new LoanService.LoanRecord("Bob", "111", DAY.minusDays(60), DAY.minusDays(32), false)));
+        cdLoanService.restoreCDLoans(List.of(
+                new LoanService.LoanRecord("Bob", "CD1", DAY, DAY.plusDays(7), true)), cdService.getAllCDs());
+
+        adminService.restoreAdmins(List.of(new Admin("admin", 1, "secret")));
+    }
+
+    @Test
+    void writeThenRead_restoresWholeState() {
+        fillState();
+        Path file = dir.resolve(LibrarySnapshot.FILE_NAME);
+        snapshot(userService, bookService, cdService, loanService, cdLoanService, adminService).write(file);
+
+        UserService users = new UserService();
+        BookService books = new BookService();
+        CDService cds = new CDService();
+        LoanService loans = new LoanService(books, users);
+        CDLoanService cdLoans = new CDLoanService(books, users);
+        AdminService admins = new AdminService();
+        snapshot(users, books, cds, loans, cdLoans, admins).read(file);
+
+        User ann = users.findUserByName("ann");
+        assertEquals("ann@mail.com", ann.getEmail());
+        assertEquals(2.5, ann.getFineBalance());
+        assertNull(users.findUserByName("Bob").getEmail());
+
+        Book lent = books.findBookByISBN("222");
+        assertFalse(lent.isAvailable());
+        assertEquals(DAY.plusDays(28), lent.getDueDate());
+        assertEquals("Free, Book", books.findBookByISBN("111").getTitle());
+        assertEquals("Ünal", books.findBookByISBN("111").getAuthor());
+        assertTrue(books.findBookByISBN("111").isAvailable());
+
+        assertEquals(2, loans.getAllLoans().size());
+        Loan active = loans.findActiveLoan(lent);
+        assertSame(ann, active.getUser());
+        assertEquals(DAY, active.getBorrowDate());
+        assertEquals(1, ann.getActiveBookLoans().size());
+        assertFalse(loans.getAllLoans().get(1).isActive());
+
+        CD cd = cds.findCDById("CD1");
+        assertFalse(cd.isAvailable());
+        assertTrue(cds.findCDById("CD2").isAvailable());
+        CDLoan cdLoan = cdLoans.getAllCDLoans().get(0);
+        assertSame(cd, cdLoan.getCD());
+        assertEquals(DAY.plusDays(7), cdLoan.getDueDate());
+
+        assertEquals(1, admins.getAllAdmins().size());
+        assertTrue(admins.login("admin", "secret"));
+    }
+
+    @Test
+    void writeThenRead_keepsStoredCDDates() {
+        CD late = new CD("Late", "Artist", "CD1");
+        late.setAvailable(false);
+        late.setBorrowDate(DAY);
+        late.setDueDate(DAY.plusDays(10));
+        CD undated = new CD("Undated", "Artist", "CD2");
+        undated.setAvailable(false);
+        undated.setDueDate(DAY.plusDays(3));
+        cdService.restoreCDs(List.of(late, undated));
+
+        Path file = dir.resolve(LibrarySnapshot.FILE_NAME);
+        snapshot(userService, bookService, cdService, loanService, cdLoanService, adminService).write(file);
+
+        UserService users = new UserService();
+        BookService books = new BookService();
+        CDService cds = new CDService();
+        snapshot(users, books, cds, new LoanService(books, users), new CDLoanService(books, users),
+                new AdminService()).read(file);
+
+        CD readLate = cds.findCDById("CD1");
+        assertFalse(readLate.isAvailable());
+        assertEquals(DAY, readLate.getBorrowDate());
+        assertEquals(DAY.plusDays(10), readLate.getDueDate());
+
+        CD readUndated = cds.findCDById("CD2");
+        assertFalse(readUndated.isAvailable());
+        assertNull(readUndated.getBorrowDate());
+        assertEquals(DAY.plusDays(3), readUndated.getDueDate());
+    }
+
+    @Test
+    void read_rejectsOtherFilesAndVersions() throws Exception {
+        Path garbage = dir.resolve("garbage");
+        Files.writeString(garbage, "users.txt is not a snapshot");
+        LibrarySnapshot s = snapshot(userService, bookService, cdService, loanService, cdLoanService, adminService);
+
+        assertThrows(IllegalStateException.class, () -> s.read(garbage));
+
+        Path future = dir.resolve("future");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(future))) {
+            out.writeInt(0x4C494253);
+            out.writeShort(LibrarySnapshot.VERSION + 1);
+        }
+        assertThrows(IllegalStateException.class, () -> s.read(future));
+    }
+
+    @Test
+    void isUpToDate_comparesWithDataFilesAndJournals() throws Exception {
+        Path file = dir.resolve(LibrarySnapshot.FILE_NAME);
+        assertFalse(LibrarySnapshot.isUpToDate(file));
+
+        Path books = dir.resolve("books.txt");
+        Files.writeString(books, "T,A,1,true,null,null");
+        Files.setLastModifiedTime(books, FileTime.fromMillis(1_000_000));
+        snapshot(userService, bookService, cdService, loanService, cdLoanService, adminService).write(file);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(2_000_000));
+
+        assertTrue(LibrarySnapshot.isUpToDate(file));
+
+        Path journal = dir.resolve("loans.txt.journal");
+        Files.writeString(journal, "#base,0,0\n");
+        Files.setLastModifiedTime(journal, FileTime.fromMillis(3_000_000));
+
+        assertFalse(LibrarySnapshot.isUpToDate(file));
+    }
+
+    @Test
+    void isCurrent_followsServiceChanges() {
+        fillState();
+        Path file = dir.resolve(LibrarySnapshot.FILE_NAME);
+        LibrarySnapshot snapshot = snapshot(userService, bookService, cdService,
+                loanService, cdLoanService, adminService);
+
+        assertFalse(snapshot.isCurrent());
+        snapshot.write(file);
+        assertTrue(snapshot.isCurrent());
+
+        adminService.restoreAdmins(List.of());
+        assertFalse(snapshot.isCurrent());
+
+        snapshot.read(file);
+        assertTrue(snapshot.isCurrent());
+    }
+}
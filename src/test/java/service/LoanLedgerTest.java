@@ -0,0 +1,178 @@
+package service;
+
+import domain.Book;
+import domain.EpochDays;
+import domain.Loan;
+import domain.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class LoanLedgerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 1);
+
+    private LoanLedger<Loan> ledger;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new LoanLedger<>(Loan::getBook, Loan::getDueEpochDay, Loan::isActive, Loan::isOverdue,
+                Loan::setDueDateListener);
+        user = new User("u");
+    }
+
+    private Loan loan(String isbn, int dueInDays, boolean active) {
+        LocalDate due = TODAY.plusDays(dueInDays);
+        return new Loan(user, new Book("T" + isbn, "A", isbn), due.minusDays(28), due, active);
+    }
+
+    @Test
+    void overdueAt_returnsActiveLoansDueBeforeDate_orderedByDueDate() {
+        Loan late = loan("1", -10, true);
+        Loan lateReturned = loan("2", -20, false);
+        Loan dueToday = loan("3", 0, true);
+        Loan notYet = loan("4", 5, true);
+        Loan veryLate = loan("5", -30, true);
+
+        ledger.add(late);
+        ledger.add(lateReturned);
+        ledger.add(dueToday);
+        ledger.add(notYet);
+        ledger.add(veryLate);
+
+        assertEquals(List.of(veryLate, late), ledger.overdueAt(TODAY));
+        assertEquals(List.of(veryLate, late, dueToday), ledger.overdueAt(TODAY.plusDays(1)));
+        assertEquals(5, ledger.size());
+        assertEquals(4, ledger.indexedCount());
+    }
+
+    @Test
+    void returned_removesLoanFromIndex_butKeepsItInList() {
+        Loan a = loan("1", -3, true);
+        ledger.add(a);
+
+        a.returnBook();
+        ledger.returned(a);
+
+        assertEquals(0, ledger.indexedCount());
+        assertTrue(ledger.overdueAt(TODAY).isEmpty());
+        assertSame(a, ledger.get(0));
+    }
+
+    @Test
+    void overdueAt_dropsLoansReturnedBehindItsBack() {
+        Loan a = loan("1", -3, true);
+        Loan b = loan("2", -3, true);
+        ledger.add(a);
+        ledger.add(b);
+
+        a.returnBook();
+
+        assertEquals(List.of(b), ledger.overdueAt(TODAY));
+        assertEquals(1, ledger.indexedCount());
+    }
+
+    @Test
+    void removeAndClear_keepIndexInSync() {
+        Loan a = loan("1", -3, true);
+        Loan b = loan("2", -4, true);
+        ledger.add(a);
+        ledger.add(b);
+
+        ledger.remove(a);
+        assertEquals(List.of(b), ledger.overdueAt(TODAY));
+
+        ledger.clear();
+        assertTrue(ledger.isEmpty());
+        assertEquals(0, ledger.indexedCount());
+
+        ledger.add(a);
+        assertEquals(List.of(a), ledger.overdueAt(TODAY));
+    }
+
+    @Test
+    void set_replacesIndexedLoan() {
+        Loan a = loan("1", -3, true);
+        Loan b = loan("2", -4, true);
+        ledger.add(a);
+
+        assertSame(a, ledger.set(0, b));
+        assertEquals(List.of(b), ledger.overdueAt(TODAY));
+    }
+
+    @Test
+    void loansWithoutDueDate_areCheckedOnEveryQuery() {
+        Loan undated = mock(Loan.class);
+        when(undated.getDueEpochDay()).thenReturn(EpochDays.NONE);
+        when(undated.isOverdue(anyInt())).thenReturn(false, true);
+
+        ledger.add(undated);
+        ledger.add(null);
+
+        assertTrue(ledger.overdueAt(TODAY).isEmpty());
+        assertEquals(List.of(undated), ledger.overdueAt(TODAY));
+    }
+
+    @Test
+    void activeLoanFor_findsCurrentLoanOfItem() {
+        Book book = new Book("T", "A", "1");
+        Loan old = new Loan(user, book, TODAY.minusDays(60), TODAY.minusDays(32), false);
+        Loan current = new Loan(user, book, TODAY, TODAY.plusDays(28), true);
+
+        ledger.add(old);
+        ledger.add(current);
+
+        assertSame(current, ledger.activeLoanFor(book));
+        assertNull(ledger.activeLoanFor(new Book("T", "A", "1")));
+        assertNull(ledger.activeLoanFor(null));
+
+        current.returnBook();
+        ledger.returned(current);
+
+        assertNull(ledger.activeLoanFor(book));
+    }
+
+    @Test
+    void activeLoanFor_dropsLoansReturnedBehindItsBack_andFollowsRemoval() {
+        Loan a = loan("1", 5, true);
+        Loan b = loan("2", 5, true);
+        ledger.add(a);
+        ledger.add(b);
+
+        a.returnBook();
+        assertNull(ledger.activeLoanFor(a.getBook()));
+
+        ledger.remove(b);
+        assertNull(ledger.activeLoanFor(b.getBook()));
+
+        ledger.add(b);
+        ledger.clear();
+        assertNull(ledger.activeLoanFor(b.getBook()));
+    }
+
+    @Test
+    void dueDateChange_movesLoanInIndex() {
+        Loan a = loan("1", 5, true);
+        Loan b = loan("2", 5, true);
+        ledger.add(a);
+        ledger.add(b);
+
+        a.setDueDate(TODAY.minusDays(1));
+        b.setDueDate(null);
+        assertEquals(List.of(a), ledger.overdueAt(TODAY));
+
+        b.setDueDate(TODAY.minusDays(2));
+        assertEquals(List.of(b, a), ledger.overdueAt(TODAY));
+
+        a.setDueDate(TODAY.plusDays(20));
+        assertEquals(List.of(b), ledger.overdueAt(TODAY.plusDays(10)));
+        assertEquals(2, ledger.indexedCount());
+    }
+}
@@ -1,21 +1,36 @@
 package service;
 
 import domain.Book;
+import domain.EpochDays;
 import domain.Loan;
 import domain.User;
 import file.FileManager;
+import file.Journal;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static service.FileRecords.records;
 
 public class LoanServiceTest {
 
@@ -48,7 +63,7 @@ public class LoanServiceTest {
         Book b = mock(Book.class);
 
         when(u.getFineBalance()).thenReturn(0.0);
-        when(u.hasOverdueLoans()).thenReturn(true);
+        when(u.hasOverdueLoans(any(LocalDate.class))).thenReturn(true);
 
         assertFalse(loanService.createLoan(u, b));
         assertTrue(loanService.getAllLoans().isEmpty());
@@ -60,7 +75,7 @@ public class LoanServiceTest {
         Book b = mock(Book.class);
 
         when(u.getFineBalance()).thenReturn(0.0);
-        when(u.hasOverdueLoans()).thenReturn(false);
+        when(u.hasOverdueLoans(any(LocalDate.class))).thenReturn(false);
         when(b.isBorrowed()).thenReturn(true);
 
         assertFalse(loanService.createLoan(u, b));
@@ -73,14 +88,14 @@ public class LoanServiceTest {
         Book b = mock(Book.class);
 
         when(u.getFineBalance()).thenReturn(0.0);
-        when(u.hasOverdueLoans()).thenReturn(false);
+        when(u.hasOverdueLoans(any(LocalDate.class))).thenReturn(false);
         when(b.isBorrowed()).thenReturn(false);
 
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
             assertTrue(loanService.createLoan(u, b));
 
             assertEquals(1, loanService.getAllLoans().size());
-            verify(u, times(1)).addLoan(any(Loan.class));
+            verify(u, times(1)).addLoan(any(Loan.class), any(LocalDate.class));
             fm.verify(() -> FileManager.writeLines(anyString(), anyList()), times(1));
         }
     }
@@ -143,7 +158,7 @@ public class LoanServiceTest {
     @Test
     void loadLoansFromFile_linesNull_noCrash() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(null);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(List.of()));
 
             assertDoesNotThrow(() -> loanService.loadLoansFromFile());
             assertTrue(loanService.getAllLoans().isEmpty());
@@ -153,13 +168,13 @@ public class LoanServiceTest {
     @Test
     void loadLoansFromFile_skips_invalid_lines_and_missing_refs() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(Arrays.asList(
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(Arrays.asList(
                     null,
                     "",
                     "bad,short,line",
                     "Ghost,999,2025-01-01,2025-01-10,true",
                     "Ahmad,111,2025-01-01,2025-01-10,true"
-            ));
+            )));
 
             when(userService.findUserByName("Ghost")).thenReturn(null);
             when(bookService.findBookByISBN("999")).thenReturn(null);
@@ -180,8 +195,8 @@ public class LoanServiceTest {
     @Test
     void loadLoansFromFile_inactive_sets_book_available_and_not_added_to_user_list() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString()))
-                    .thenReturn(List.of("Ahmad,111,2025-01-01,2025-01-10,false"));
+            fm.when(() -> FileManager.forEachRecord(anyString(), any()))
+                    .thenAnswer(records(List.of("Ahmad,111,2025-01-01,2025-01-10,false")));
 
             User u = mock(User.class);
             Book b = mock(Book.class);
@@ -198,8 +213,8 @@ public class LoanServiceTest {
             assertTrue(userLoans.isEmpty());
 
             verify(b, times(1)).setAvailable(true);
-            verify(b, times(1)).setBorrowDate(null);
-            verify(b, times(1)).setDueDate(null);
+            verify(b, times(1)).setBorrowEpochDay(EpochDays.NONE);
+            verify(b, times(1)).setDueEpochDay(EpochDays.NONE);
         }
     }
 
@@ -285,8 +300,10 @@ public class LoanServiceTest {
         Loan overdue = mock(Loan.class);
         Loan ok = mock(Loan.class);
 
-        when(overdue.isOverdue()).thenReturn(true);
-        when(ok.isOverdue()).thenReturn(false);
+        when(overdue.getDueEpochDay()).thenReturn(EpochDays.NONE);
+        when(ok.getDueEpochDay()).thenReturn(EpochDays.NONE);
+        when(overdue.isOverdue(anyInt())).thenReturn(true);
+        when(ok.isOverdue(anyInt())).thenReturn(false);
 
         loanService.getAllLoans().add(overdue);
         loanService.getAllLoans().add(ok);
@@ -298,6 +315,30 @@ public class LoanServiceTest {
         assertFalse(res.contains(ok));
     }
 
+    @Test
+    void clock_pinsBorrowDate_andOverdueReference() {
+        LocalDate day = LocalDate.of(2025, 3, 1);
+        loanService.setClock(fixedClock(day));
+        User u = new User("U", "u@mail.com");
+        Book b = new Book("T", "A", "1");
+
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            assertTrue(loanService.createLoan(u, b));
+        }
+        Loan loan = loanService.getAllLoans().get(0);
+        assertEquals(day, loan.getBorrowDate());
+        assertEquals(day.plusDays(28), b.getDueDate());
+        assertTrue(loanService.getOverdueLoans().isEmpty());
+
+        loanService.setClock(fixedClock(day.plusDays(29)));
+        assertEquals(List.of(loan), loanService.getOverdueLoans());
+        assertFalse(loanService.createLoan(u, new Book("T2", "A", "2")));
+    }
+
+    private static Clock fixedClock(LocalDate day) {
+        return Clock.fixed(day.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    }
+
     @Test
     void getOverdueLoans_empty_when_none() {
         assertTrue(loanService.getOverdueLoans().isEmpty());
@@ -309,4 +350,146 @@ public class LoanServiceTest {
         loanService.getAllLoans().add(mock(Loan.class));
         assertEquals(1, loanService.getAllLoans().size());
     }
+
+    @Test
+    void concurrentLoans_sameItemIsLentOnlyOnce() throws Exception {
+        // journaling keeps the threads away from the real data file
+        loanService.setJournaling(true);
+        try {
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < 16; i++) books.add(new Book("Title " + i, "Author", "isbn-" + i));
+
+            AtomicInteger successes = new AtomicInteger();
+            runConcurrently(64, t -> {
+                User user = new User("user" + t);
+                for (int i = 0; i < books.size(); i++) {
+                    if (loanService.createLoan(user, books.get((t + i) % books.size()))) {
+                        successes.incrementAndGet();
+                    }
+                }
+            });
+
+            assertEquals(books.size(), successes.get());
+            for (Book book : books) {
+                long active = loanService.getAllLoans().stream()
+                        .filter(l -> l.getBook() == book && l.isActive())
+                        .count();
+                assertEquals(1, active);
+            }
+        } finally {
+            Files.deleteIfExists(Path.of(FILE + Journal.SUFFIX));
+        }
+    }
+
+    @Test
+    void concurrentBorrowAndReturn_neverTwoHoldersAtOnce() throws Exception {
+        loanService.setJournaling(true);
+        try {
+            List<Book> books = new ArrayList<>();
+            for (int i = 0; i < 8; i++) books.add(new Book("Title " + i, "Author", "isbn-" + i));
+
+            AtomicIntegerArray holders = new AtomicIntegerArray(books.size());
+            AtomicInteger violations = new AtomicInteger();
+            AtomicInteger failedReturns = new AtomicInteger();
+
+            runConcurrently(64, t -> {
+                User user = new User("user" + t);
+                for (int i = 0; i < 6; i++) {
+                    int n = (t * 7 + i) % books.size();
+                    Book book = books.get(n);
+                    if (!loanService.createLoan(user, book)) continue;
+
+                    if (holders.incrementAndGet(n) > 1) violations.incrementAndGet();
+                    holders.decrementAndGet(n);
+
+                    if (!loanService.returnLoan(user, book)) failedReturns.incrementAndGet();
+                }
+            });
+
+            assertEquals(0, violations.get());
+            assertEquals(0, failedReturns.get());
+            assertTrue(loanService.getAllLoans().stream().noneMatch(Loan::isActive));
+        } finally {
+            Files.deleteIfExists(Path.of(FILE + Journal.SUFFIX));
+        }
+    }
+
+    @Test
+    void getOverdueLoans_onDate_skipsReturnedLoans() {
+        User u = new User("u");
+        Book late = new Book("T1", "A", "1");
+        Book fine = new Book("T2", "A", "2");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        Loan lateLoan = new Loan(u, late, day.minusDays(40), day.minusDays(12), true);
+        Loan fineLoan = new Loan(u, fine, day.minusDays(5), day.plusDays(23), true);
+        loanService.getAllLoans().add(lateLoan);
+        loanService.getAllLoans().add(fineLoan);
+        u.getActiveBookLoans().add(lateLoan);
+        u.getActiveBookLoans().add(fineLoan);
+
+        assertEquals(List.of(lateLoan), loanService.getOverdueLoans(day));
+
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            assertTrue(loanService.returnLoan(u, late));
+        }
+
+        assertTrue(loanService.getOverdueLoans(day).isEmpty());
+        assertEquals(List.of(fineLoan), loanService.getOverdueLoans(day.plusDays(30)));
+    }
+
+    @Test
+    void findActiveLoan_usesItemIndex_andRejectsOtherUsersOnReturn() {
+        User owner = new User("owner");
+        User other = new User("other");
+        Book book = new Book("T", "A", "1");
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        Loan loan = new Loan(owner, book, day, day.plusDays(28), true);
+        loanService.getAllLoans().add(loan);
+        owner.getActiveBookLoans().add(loan);
+
+        assertSame(loan, loanService.findActiveLoan(book));
+        assertNull(loanService.findActiveLoan(new Book("T2", "A", "2")));
+
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            assertFalse(loanService.returnLoan(other, book));
+            assertTrue(loanService.returnLoan(owner, book));
+        }
+
+        assertNull(loanService.findActiveLoan(book));
+    }
+
+    private static void runConcurrently(int threads, IntConsumer task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.accept(id);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void saveLoansIfDirty_skipsRestoredLoans() {
+        try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
+            loanService.restoreLoans(List.of());
+
+            assertFalse(loanService.isDirty());
+            assertFalse(loanService.saveLoansIfDirty());
+            fm.verify(() -> FileManager.writeLines(anyString(), anyList()), never());
+        }
+    }
 }
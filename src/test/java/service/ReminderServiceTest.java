@@ -1,13 +1,23 @@
 package service;
 
 import domain.*;
+import file.Outbox;
 import notification.MockNotifier;
+import notification.NotificationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +29,9 @@ public class ReminderServiceTest {
     private User userA;
     private User userB;
 
+    @TempDir
+    Path dir;
+
     @BeforeEach
     public void setUp() {
         reminderService = new ReminderService();
@@ -120,4 +133,231 @@ public class ReminderServiceTest {
 
         assertEquals(2, notifier.getMessages().size());
     }
+
+    // ---------------------------------------------------------
+    // ASYNCHRONOUS DELIVERY TESTS
+    // ---------------------------------------------------------
+
+    private static List<Loan> overdueLoans(int users) {
+        List<Loan> loans = new ArrayList<>();
+        LocalDate due = LocalDate.now().minusDays(3);
+        for (int i = 0; i < users; i++) {
+            User u = new User("U" + i, "u" + i + "@mail.com");
+            loans.add(new Loan(u, new Book("T", "A", "isbn-" + i), due.minusDays(28), due, true));
+        }
+        return loans;
+    }
+
+    @Test
+    public void testDispatchReturnsBeforeDelivery_andReportsCounts() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ReminderService rs = new ReminderService(1);
+        rs.addObserver((user, message) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture<ReminderReport> run = rs.dispatchReminders(overdueLoans(5), List.of());
+
+        assertFalse(run.isDone());
+        release.countDown();
+
+        ReminderReport report = run.get(5, TimeUnit.SECONDS);
+        assertEquals(5, report.getUsers());
+        assertEquals(5, report.getTotalDelivered());
+        assertEquals(0, report.getTotalFailed());
+        rs.close();
+    }
+
+    @Test
+    public void testWorkersDeliverInParallel() throws Exception {
+        CountDownLatch allBusy = new CountDownLatch(4);
+        ReminderService rs = new ReminderService();
+        rs.addObserver((user, message) -> {
+            allBusy.countDown();
+            try {
+                // only returns once four reminders are being delivered at the same time
+                assertTrue(allBusy.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 4);
+
+        ReminderReport report = rs.dispatchReminders(overdueLoans(8), List.of()).get(10, TimeUnit.SECONDS);
+
+        assertEquals(8, report.getTotalDelivered());
+        rs.close();
+    }
+
+    @Test
+    public void testFailuresAreCountedPerChannel() throws Exception {
+        ReminderService rs = new ReminderService();
+        MockNotifier ok = new MockNotifier();
+        AtomicInteger calls = new AtomicInteger();
+        rs.addObserver(ok);
+        rs.addObserver(new MockNotifier() {
+            @Override
+            public void notify(User user, String message) {
+                if (calls.incrementAndGet() % 2 == 0) throw new IllegalStateException("smtp down");
+            }
+        });
+
+        ReminderReport report = rs.dispatchReminders(overdueLoans(4), List.of()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(4, report.getDelivered("MockNotifier"));
+        assertEquals(0, report.getFailed("MockNotifier"));
+        String other = report.getDeliveredByChannel().keySet().stream()
+                .filter(name -> !name.equals("MockNotifier")).findFirst().orElseThrow();
+        assertEquals(2, report.getDelivered(other));
+        assertEquals(2, report.getFailed(other));
+        assertEquals(4, ok.getMessages().size());
+        rs.close();
+    }
+
+    @Test
+    public void testCloseDrainsQueue_andRejectsNewRuns() {
+        ReminderService rs = new ReminderService(2);
+        AtomicInteger delivered = new AtomicInteger();
+        rs.addObserver((user, message) -> delivered.incrementAndGet());
+
+        CompletableFuture<ReminderReport> run = rs.dispatchReminders(overdueLoans(20), List.of());
+        rs.close();
+
+        assertTrue(run.isDone());
+        assertEquals(20, delivered.get());
+        assertFalse(rs.addObserver(new MockNotifier()));
+        assertThrows(IllegalStateException.class, () -> rs.dispatchReminders(List.of(), List.of()));
+    }
+
+    @Test
+    public void testDispatchWithoutOverdueCompletesImmediately() {
+        CompletableFuture<ReminderReport> run = reminderService.dispatchReminders(List.of(), List.of());
+
+        assertTrue(run.isDone());
+        assertEquals(0, run.join().getUsers());
+        assertThrows(IllegalArgumentException.class, () -> new ReminderService(0));
+        assertThrows(IllegalArgumentException.class, () -> reminderService.addObserver(new MockNotifier(), 0));
+    }
+
+    // ---------------------------------------------------------
+    // RETRY AND OUTBOX TESTS
+    // ---------------------------------------------------------
+
+    /**
+     * Fails every reminder with {@link NotificationException} until it was tried {@code failures} times.
+     */
+    private static class FlakyNotifier extends MockNotifier {
+
+        private final int failures;
+        private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+        final AtomicInteger calls = new AtomicInteger();
+
+        FlakyNotifier(int failures) {
+            this.failures = failures;
+        }
+
+        @Override
+        public void notify(User user, String message) {
+            calls.incrementAndGet();
+            if (attempts.merge(user.getUserName(), 1, Integer::sum) <= failures) {
+                throw new NotificationException("smtp down", null);
+            }
+            super.notify(user, message);
+        }
+    }
+
+    @Test
+    public void testRetriesWithBackoff_untilDelivered() throws Exception {
+        ReminderService rs = new ReminderService();
+        FlakyNotifier flaky = new FlakyNotifier(2);
+        rs.addObserver(flaky);
+        rs.setRetryPolicy(3, 10);
+
+        long start = System.nanoTime();
+        ReminderReport report = rs.dispatchReminders(overdueLoans(3), List.of()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, report.getTotalDelivered());
+        assertEquals(0, report.getTotalFailed());
+        assertEquals(9, flaky.calls.get());
+        assertEquals(3, flaky.getMessages().size());
+        // 10 ms before the first retry, 20 ms before the second
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+        rs.close();
+    }
+
+    @Test
+    public void testGivesUpAfterMaxAttempts_andSettlesOutbox() throws Exception {
+        ReminderService rs = new ReminderService();
+        FlakyNotifier flaky = new FlakyNotifier(Integer.MAX_VALUE);
+        rs.addObserver(flaky);
+        rs.setRetryPolicy(2, 1);
+        Outbox outbox = new Outbox(dir.resolve("outbox.txt").toString());
+        rs.setOutbox(outbox);
+
+        ReminderReport report = rs.dispatchReminders(overdueLoans(3), List.of()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, report.getTotalFailed());
+        assertEquals(6, flaky.calls.get());
+        assertEquals(0, outbox.pendingCount());
+        rs.close();
+        assertTrue(new Outbox(dir.resolve("outbox.txt").toString()).recover().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> rs.setRetryPolicy(0, 1));
+    }
+
+    @Test
+    public void testOutbox_keepsUndeliveredReminders_andResumeDeliversThem() throws Exception {
+        String file = dir.resolve("outbox.txt").toString();
+
+        ReminderService first = new ReminderService();
+        FlakyNotifier down = new FlakyNotifier(Integer.MAX_VALUE);
+        first.addObserver(down);
+        first.setRetryPolicy(5, 60_000);
+        first.setOutbox(new Outbox(file));
+        CompletableFuture<ReminderReport> run = first.dispatchReminders(overdueLoans(3), List.of());
+        while (down.calls.get() < 3) {
+            Thread.sleep(5);
+        }
+        first.close();
+
+        assertEquals(3, run.get(5, TimeUnit.SECONDS).getTotalFailed());
+
+        ReminderService second = new ReminderService();
+        FlakyNotifier up = new FlakyNotifier(0);
+        second.addObserver(up);
+        second.setOutbox(new Outbox(file));
+        ReminderReport resumed = second.resumeOutbox().get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, resumed.getUsers());
+        assertEquals(3, resumed.getDelivered("FlakyNotifier"));
+        assertEquals(3, up.getMessages().size());
+        assertTrue(up.getMessages().get(0).contains("1 overdue item"));
+        second.close();
+
+        ReminderService third = new ReminderService();
+        third.addObserver(new FlakyNotifier(0));
+        third.setOutbox(new Outbox(file));
+        assertEquals(0, third.resumeOutbox().join().getUsers());
+        third.close();
+    }
+
+    @Test
+    public void testResumeOutbox_leavesRemindersOfUnknownChannels() throws Exception {
+        String file = dir.resolve("outbox.txt").toString();
+        Outbox recorded = new Outbox(file);
+        recorded.add("SmsNotifier", "UserA", "a@mail.com", "You have 1 overdue item(s).");
+        recorded.close();
+
+        ReminderService rs = new ReminderService();
+        rs.addObserver(notifier);
+        Outbox outbox = new Outbox(file);
+        rs.setOutbox(outbox);
+
+        assertEquals(0, rs.resumeOutbox().get(5, TimeUnit.SECONDS).getUsers());
+        assertEquals(1, outbox.pendingCount());
+        assertEquals(0, reminderService.resumeOutbox().join().getUsers());
+        rs.close();
+    }
 }
@@ -0,0 +1,89 @@
+package service;
+
+import domain.CD;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StartupLoaderTest {
+
+    private UserService userService;
+    private BookService bookService;
+    private CDService cdService;
+    private LoanService loanService;
+    private CDLoanService cdLoanService;
+    private AdminService adminService;
+    private StartupLoader loader;
+
+    private final Set<String> done = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        bookService = mock(BookService.class);
+        cdService = mock(CDService.class);
+        loanService = mock(LoanService.class);
+        cdLoanService = mock(CDLoanService.class);
+        adminService = mock(AdminService.class);
+
+        loader = new StartupLoader(userService, bookService, cdService, loanService, cdLoanService, adminService);
+    }
+
+    private void record(String name) {
+        done.add(name);
+    }
+
+    @Test
+    void load_runsEveryLoad_andLoansAfterTheirDependencies() {
+        List<CD> cds = List.of(new CD("T", "A", "1"));
+        when(cdService.getAllCDs()).thenReturn(cds);
+
+        AtomicBoolean loansSawDeps = new AtomicBoolean();
+        AtomicBoolean cdLoansSawDeps = new AtomicBoolean();
+
+        doAnswer(inv -> { record("users"); return null; }).when(userService).loadUsersFromFile();
+        doAnswer(inv -> { record("books"); return null; }).when(bookService).loadBooksFromFile();
+        doAnswer(inv -> { record("cds"); return null; }).when(cdService).loadCDsFromFile();
+        doAnswer(inv -> { record("admins"); return null; }).when(adminService).loadAdminsFromFile();
+        doAnswer(inv -> {
+            loansSawDeps.set(done.containsAll(Set.of("users", "books")));
+            return null;
+        }).when(loanService).loadLoansFromFile();
+        doAnswer(inv -> {
+            cdLoansSawDeps.set(done.containsAll(Set.of("users", "cds")));
+            return null;
+        }).when(cdLoanService).loadCDLoansFromFile(cds);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            loader.load(pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(loansSawDeps.get());
+        assertTrue(cdLoansSawDeps.get());
+        verify(adminService).loadAdminsFromFile();
+        verify(cdLoanService).loadCDLoansFromFile(cds);
+    }
+
+    @Test
+    void load_rethrowsFailure_andSkipsDependentLoads() {
+        doThrow(new IllegalStateException("broken users file")).when(userService).loadUsersFromFile();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> loader.load());
+
+        assertEquals("broken users file", e.getMessage());
+        verify(bookService).loadBooksFromFile();
+        verify(loanService, never()).loadLoansFromFile();
+        verify(cdLoanService, never()).loadCDLoansFromFile(any());
+    }
+}
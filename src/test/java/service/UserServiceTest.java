@@ -10,12 +10,23 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mockStatic;
+import static service.FileRecords.records;
 
 public class UserServiceTest {
 
@@ -67,7 +78,7 @@ public class UserServiceTest {
     @Test
     public void loadUsersFromFile_linesNull_returnsWithoutCrash() {
         try (MockedStatic<FileManager> fm = mockStatic(FileManager.class)) {
-            fm.when(() -> FileManager.readLines(anyString())).thenReturn(null);
+            fm.when(() -> FileManager.forEachRecord(anyString(), any())).thenAnswer(records(List.of()));
             assertDoesNotThrow(() -> userService.loadUsersFromFile());
             assertTrue(userService.getAllUsers().isEmpty());
         }
@@ -150,6 +161,19 @@ public class UserServiceTest {
         assertFalse(userService.canBorrow(u));
     }
 
+    @Test
+    public void canBorrow_usesClockDate() {
+        User u = new User("U", "u@mail.com");
+        LocalDate due = LocalDate.of(2025, 3, 1);
+        u.getActiveBookLoans().add(new Loan(u, new Book("T", "A", "111"), due.minusDays(28), due, true));
+
+        userService.setClock(Clock.fixed(due.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+        assertTrue(userService.canBorrow(u));
+
+        userService.setClock(Clock.fixed(due.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+        assertFalse(userService.canBorrow(u));
+    }
+
     @Test
     public void unregisterUser_null_false() {
         assertFalse(userService.unregisterUser(null));
@@ -164,6 +188,37 @@ public class UserServiceTest {
         assertNull(userService.findUserByName("A"));
     }
 
+    @Test
+    public void findUserByName_afterLoad_ignoresCaseIndependentOfLocale() {
+        FileManager.writeLines("src/main/resources/data/users.txt",
+                List.of("TITLE,t@mail.com,0.0", "Omar,o@mail.com,0.0"));
+
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            userService.loadUsersFromFile();
+
+            assertNotNull(userService.findUserByName("title"));
+            assertNotNull(userService.findUserByName("OMAR"));
+            assertNull(userService.findUserByName("Omar2"));
+        } finally {
+            Locale.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void unregisterUser_loadedCaseDuplicate_takesOverLookup() {
+        FileManager.writeLines("src/main/resources/data/users.txt",
+                List.of("Ali,a@mail.com,0.0", "ALI,b@mail.com,0.0"));
+        userService.loadUsersFromFile();
+
+        User first = userService.findUserByName("ali");
+        assertEquals("a@mail.com", first.getEmail());
+
+        assertTrue(userService.unregisterUser(first));
+        assertEquals("b@mail.com", userService.findUserByName("ali").getEmail());
+    }
+
     @Test
     public void unregisterUser_notInList_false() {
         assertFalse(userService.unregisterUser(new User("Ghost", "g@mail.com")));
@@ -192,4 +247,72 @@ public class UserServiceTest {
         u.getActiveCDLoans().add(new CDLoan(u, new CD("C", "X", "1")));
         assertFalse(userService.unregisterUser(u));
     }
+
+    @Test
+    public void journaling_records_add_update_and_unregister() {
+        userService.setJournaling(true);
+        userService.addUser("Keep", "k@mail.com");
+        userService.addUser("Drop", "d@mail.com");
+
+        User keep = userService.findUserByName("Keep");
+        keep.setFineBalance(5.0);
+        userService.saveUser(keep);
+        userService.unregisterUser(userService.findUserByName("Drop"));
+
+        UserService reloaded = new UserService();
+        reloaded.loadUsersFromFile();
+
+        assertEquals(1, reloaded.getAllUsers().size());
+        assertEquals(5.0, reloaded.findUserByName("Keep").getFineBalance());
+
+        reloaded.saveUsers();
+        assertEquals(List.of("Keep,k@mail.com,5.0"), FileManager.readLines("src/main/resources/data/users.txt"));
+    }
+
+    @Test
+    public void journaledSaveUser_isDirty_untilSaveUsersIfDirty() {
+        userService.setJournaling(true);
+        userService.addUser("UserA", "a@mail.com");
+        User user = userService.findUserByName("UserA");
+        user.setFineBalance(4.0);
+        userService.saveUser(user);
+
+        assertTrue(userService.isDirty());
+        assertTrue(userService.saveUsersIfDirty());
+        assertFalse(userService.isDirty());
+        assertFalse(userService.saveUsersIfDirty());
+        assertEquals(1, FileManager.readLines("src/main/resources/data/users.txt").size());
+    }
+
+    @Test
+    public void concurrentAddUser_sameName_onlyOneWins() throws Exception {
+        int threads = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                results.add(pool.submit(() -> {
+                    go.await();
+                    userService.addUser("user" + id, null);
+                    return userService.addUser("bob", "bob@mail.com");
+                }));
+            }
+            go.countDown();
+
+            int added = 0;
+            for (Future<Boolean> f : results) {
+                if (f.get(30, TimeUnit.SECONDS)) added++;
+            }
+            assertEquals(1, added);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(threads + 1, userService.getAllUsers().size());
+        for (int t = 0; t < threads; t++) {
+            assertNotNull(userService.findUserByName("user" + t));
+        }
+    }
 }
@@ -0,0 +1,176 @@
+package tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetGeneratorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 15);
+
+    @TempDir
+    Path dir;
+
+    private DatasetGenerator small(long seed) {
+        DatasetGenerator g = new DatasetGenerator();
+        g.setUsers(50);
+        g.setBooks(200);
+        g.setCds(40);
+        g.setLoans(1000);
+        g.setCdLoans(100);
+        g.setSeed(seed);
+        g.setToday(TODAY);
+        return g;
+    }
+
+    @Test
+    void generate_writesRequestedRowCountsInServiceFormats() throws IOException {
+        small(1).generate(dir);
+
+        List<String> users = Files.readAllLines(dir.resolve("users.txt"));
+        List<String> books = Files.readAllLines(dir.resolve("books.txt"));
+        List<String> cds = Files.readAllLines(dir.resolve("cds.txt"));
+        List<String> loans = Files.readAllLines(dir.resolve("loans.txt"));
+        List<String> cdLoans = Files.readAllLines(dir.resolve("cdloans.txt"));
+
+        assertEquals(50, users.size());
+        assertEquals(200, books.size());
+        assertEquals(40, cds.size());
+        assertEquals(1000, loans.size());
+        assertEquals(100, cdLoans.size());
+
+        assertEquals(3, users.get(0).split(",").length);
+        assertEquals(6, books.get(0).split(",").length);
+        assertEquals(6, cds.get(0).split(",").length);
+
+        String[] loan = loans.get(0).split(",");
+        assertEquals(5, loan.length);
+        assertEquals(LocalDate.parse(loan[2]).plusDays(28), LocalDate.parse(loan[3]));
+    }
+
+    @Test
+    void generate_sameSeedGivesSameFiles_otherSeedDiffers() throws IOException {
+        small(7).generate(dir.resolve("a"));
+        small(7).generate(dir.resolve("b"));
+        small(8).generate(dir.resolve("c"));
+
+        assertEquals(Files.readAllLines(dir.resolve("a/loans.txt")), Files.readAllLines(dir.resolve("b/loans.txt")));
+        assertEquals(Files.readAllLines(dir.resolve("a/books.txt")), Files.readAllLines(dir.resolve("b/books.txt")));
+        assertNotEquals(Files.readAllLines(dir.resolve("a/loans.txt")), Files.readAllLines(dir.resolve("c/loans.txt")));
+    }
+
+    @Test
+    void generate_atMostOneActiveLoanPerBook_andBooksAgree() throws IOException {
+        DatasetGenerator g = small(3);
+        g.setActiveRatio(0.5);
+        g.generate(dir);
+
+        Map<String, String> activeDue = new HashMap<>();
+        for (String l : Files.readAllLines(dir.resolve("loans.txt"))) {
+            String[] p = l.split(",");
+            if (Boolean.parseBoolean(p[4])) {
+                assertNull(activeDue.put(p[1], p[3]), "two active loans for " + p[1]);
+            }
+        }
+        assertEquals(200, activeDue.size());
+
+        for (String b : Files.readAllLines(dir.resolve("books.txt"))) {
+            String[] p = b.split(",");
+            assertEquals("false", p[3]);
+            assertEquals(activeDue.get(p[2]), p[5]);
+        }
+    }
+
+    @Test
+    void generate_overdueRatioControlsOverdueActiveLoans() throws IOException {
+        DatasetGenerator g = small(5);
+        g.setBooks(5000);
+        g.setLoans(5000);
+        g.setActiveRatio(1.0);
+        g.setOverdueRatio(0.3);
+        g.generate(dir);
+
+        int active = 0;
+        int overdue = 0;
+        for (String l : Files.readAllLines(dir.resolve("loans.txt"))) {
+            String[] p = l.split(",");
+            if (!Boolean.parseBoolean(p[4])) continue;
+            active++;
+            if (TODAY.isAfter(LocalDate.parse(p[3]))) overdue++;
+        }
+
+        assertEquals(5000, active);
+        assertEquals(0.3, overdue / (double) active, 0.03);
+    }
+
+    @Test
+    void generate_skewedLoansConcentrateOnPopularBooks() throws IOException {
+        DatasetGenerator g = small(9);
+        g.setActiveRatio(0.0);
+        g.setBookSkew(1.2);
+        g.generate(dir);
+
+        Map<String, Integer> perBook = new HashMap<>();
+        for (String l : Files.readAllLines(dir.resolve("loans.txt"))) {
+            perBook.merge(l.split(",")[1], 1, Integer::sum);
+        }
+        int top = perBook.values().stream().max(Integer::compare).orElse(0);
+
+        // a uniform draw would give about 5 loans per book
+        assertTrue(top > 100, "most popular book has only " + top + " loans");
+    }
+
+    @Test
+    void generate_removesStaleJournals() throws IOException {
+        Files.writeString(dir.resolve("loans.txt.journal"), "#base,0,0\nA,x\n");
+        small(1).generate(dir);
+        assertFalse(Files.exists(dir.resolve("loans.txt.journal")));
+    }
+
+    @Test
+    void setters_rejectInvalidValues() {
+        DatasetGenerator g = new DatasetGenerator();
+        assertThrows(IllegalArgumentException.class, () -> g.setBooks(0));
+        assertThrows(IllegalArgumentException.class, () -> g.setLoans(-1));
+        assertThrows(IllegalArgumentException.class, () -> g.setOverdueRatio(1.5));
+        assertThrows(IllegalArgumentException.class, () -> g.setUserSkew(-0.1));
+    }
+
+    @Test
+    void zipf_staysInRange_andUniformWhenSkewIsZero() {
+        SplittableRandom rnd = new SplittableRandom(1);
+        DatasetGenerator.Zipf uniform = new DatasetGenerator.Zipf(10, 0.0);
+        DatasetGenerator.Zipf skewed = new DatasetGenerator.Zipf(10, 2.0);
+
+        Set<Integer> seen = new HashSet<>();
+        int zeros = 0;
+        for (int i = 0; i < 10_000; i++) {
+            int u = uniform.next(rnd);
+            int s = skewed.next(rnd);
+            assertTrue(u >= 0 && u < 10);
+            assertTrue(s >= 0 && s < 10);
+            seen.add(u);
+            if (s == 0) zeros++;
+        }
+        assertEquals(10, seen.size());
+        assertTrue(zeros > 5000);
+    }
+
+    @Test
+    void isbn_isThirteenDigits() {
+        assertEquals("9780000000042", DatasetGenerator.isbn(42));
+        assertEquals(13, DatasetGenerator.isbn(1_234_567).length());
+    }
+}
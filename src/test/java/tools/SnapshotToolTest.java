@@ -0,0 +1,33 @@
+package tools;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotToolTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void import_writesSnapshotOfDataDirectory() throws Exception {
+        Path file = dir.resolve("library.snapshot");
+
+        SnapshotTool.main(new String[]{"import", "--snapshot=" + file});
+
+        assertTrue(Files.size(file) >= 6);
+        assertFalse(Files.exists(dir.resolve("library.snapshot.tmp")));
+    }
+
+    @Test
+    void main_rejectsBadArguments() {
+        assertThrows(IllegalArgumentException.class, () -> SnapshotTool.main(new String[0]));
+        assertThrows(IllegalArgumentException.class, () -> SnapshotTool.main(new String[]{"convert"}));
+        assertThrows(IllegalArgumentException.class,
+                () -> SnapshotTool.main(new String[]{"import", "--out=x"}));
+    }
+}